@@ -31,4 +31,16 @@ public final class Access {
         request.changeMatch(match);
     }
 
+    public static void maxBodySize(Request request, long maxBodySize) {
+        request.maxBodySize(maxBodySize);
+    }
+
+    public static HaltException payloadTooLarge() {
+        return HaltException.payloadTooLarge();
+    }
+
+    public static boolean closeConnection(HaltException halt) {
+        return halt.closeConnection();
+    }
+
 }
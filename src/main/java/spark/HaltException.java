@@ -28,6 +28,7 @@ public class HaltException extends RuntimeException {
 
     private int statusCode = HttpServletResponse.SC_OK;
     private String body = null;
+    private boolean closeConnection = false;
 
     HaltException() {
         super(null, null, false, false);
@@ -49,6 +50,23 @@ public class HaltException extends RuntimeException {
         this.body = body;
     }
 
+    /**
+     * @return the exception rejecting a request body over the maximum size (413, Payload Too Large).
+     * The rest of the body is not read, so the connection is closed instead of being reused.
+     */
+    static HaltException payloadTooLarge() {
+        HaltException halt = new HaltException(HttpServletResponse.SC_REQUEST_ENTITY_TOO_LARGE);
+        halt.closeConnection = true;
+        return halt;
+    }
+
+    /**
+     * @return true if the connection has to be closed after the response
+     */
+    boolean closeConnection() {
+        return closeConnection;
+    }
+
     /**
      * @return the statusCode
      * @deprecated replaced by {@link #statusCode()}
@@ -16,6 +16,10 @@
  */
 package spark;
 
+import java.io.ByteArrayInputStream;
+import java.io.FilterInputStream;
+import java.io.IOException;
+import java.io.InputStream;
 import java.io.UnsupportedEncodingException;
 import java.net.URLDecoder;
 import java.util.ArrayList;
@@ -28,12 +32,12 @@ import java.util.Map;
 import java.util.Set;
 import java.util.TreeSet;
 import java.util.regex.Matcher;
-import java.util.regex.Pattern;
 
 import jakarta.servlet.http.Cookie;
 import jakarta.servlet.http.HttpServletRequest;
 import jakarta.servlet.http.HttpSession;
 import spark.routematch.RouteMatch;
+import spark.routematch.RoutePattern;
 import spark.utils.IOUtils;
 import spark.utils.SparkUtils;
 import spark.utils.StringUtils;
@@ -59,6 +63,7 @@ public class Request {
     private Session session = null;
     private boolean validSession = false;
     private String matchedPath = null;
+    private long maxBodySize = 0;
 
 
     /* Lazy loaded stuff */
@@ -119,9 +124,30 @@ public class Request {
         splat = new ArrayList<>();
     }
 
+    /**
+     * Sets the maximum body size of the matched route (for the filters running before it)
+     */
+    void maxBodySize(long maxBodySize) {
+        this.maxBodySize = maxBodySize;
+    }
+
     protected void changeMatch(RouteMatch match) {
-        if(match.getMatchUri().startsWith("~/")) {
+        Object target = match.getTarget();
+        if (target instanceof RouteImpl) {
+            // The filters keep the maximum body size of the route
+            this.maxBodySize = ((RouteImpl) target).getMaxBodySize();
+        }
+
+        if(RoutePattern.isRegex(match.getMatchUri())) {
+            // The request may be reused for another match (ie: by the next filter)
+            this.matchedPath = match.getMatchUri();
             params = getRegexParams(match);
+            splat = Collections.emptyList();
+        } else if (match.getParams() != null && match.getSplat() != null) {
+            // Captured while matching
+            this.matchedPath = match.getMatchUri();
+            params = match.getParams();
+            splat = match.getSplat();
         } else {
             List<String> requestList = SparkUtils.convertRouteToList(match.getRequestURI());
             List<String> matchedList = SparkUtils.convertRouteToList(match.getMatchUri());
@@ -313,12 +339,35 @@ public class Request {
 
     private void readBodyAsBytes() {
         try {
-            bodyAsBytes = IOUtils.toByteArray(servletRequest.getInputStream());
+            bodyAsBytes = IOUtils.toByteArray(bodyStream(), servletRequest.getContentLengthLong());
+        } catch (HaltException e) {
+            throw e;
         } catch (Exception e) {
             LOG.warn("Exception when reading body", e);
         }
     }
 
+    /**
+     * Streams the request body sent by the client, without buffering it: this is the way to read large bodies.
+     * The body can only be streamed once, and not together with {@link #body()} or {@link #bodyAsBytes()}
+     * (unless they were called first, the stream then reads the body they loaded).
+     *
+     * @return the request body
+     * @throws IOException when the body can't be read
+     */
+    public InputStream bodyStream() throws IOException {
+        if (bodyAsBytes != null) {
+            return new ByteArrayInputStream(bodyAsBytes);
+        }
+        if (maxBodySize <= 0) {
+            return servletRequest.getInputStream();
+        }
+        if (servletRequest.getContentLengthLong() > maxBodySize) {
+            throw HaltException.payloadTooLarge();
+        }
+        return new MaxSizeInputStream(servletRequest.getInputStream(), maxBodySize);
+    }
+
     /**
      * @return the length of request.body
      */
@@ -585,16 +634,6 @@ public class Request {
         return Collections.unmodifiableMap(params);
     }
 
-    // Java doesn't expose Pattern.namedGroups(), se we have extract them again:
-    private static Set<String> getNamedGroups(String regex) {
-        Set<String> namedGroups = new TreeSet<>();
-        Matcher m = Pattern.compile("\\(\\?<([a-zA-Z][a-zA-Z0-9]*)>").matcher(regex);
-        while (m.find()) {
-            namedGroups.add(m.group(1));
-        }
-        return namedGroups;
-    }
-
     /**
      * Get params from regex
      * @param match RouteMatch object
@@ -603,13 +642,15 @@ public class Request {
     private static Map<String, String> getRegexParams(final RouteMatch match) {
         Map<String, String> params = new HashMap<>();
         String uri = match.getRequestURI();
-        String path = StringUtils.cleanRegex(match.getMatchUri());
+        RoutePattern routePattern = match.getRoutePattern();
+        if (routePattern == null) {
+            routePattern = RoutePattern.compile(match.getMatchUri());
+        }
         // Only process regex if it contains groups:
-        if(path.contains("(") && path.contains(")")) {
-            Pattern pattern = Pattern.compile(path);
-            Matcher matcher = pattern.matcher(uri);
+        if(routePattern.hasGroups()) {
+            Matcher matcher = routePattern.pattern().matcher(uri);
             if(matcher.find()) {
-                for(String name : getNamedGroups(path)) {
+                for(String name : routePattern.namedGroups()) {
                     params.put(name, matcher.group(name));
                 }
             }
@@ -667,4 +708,42 @@ public class Request {
         this.validSession = validSession;
     }
 
+    /**
+     * Halts with 413 (Payload Too Large) when more than the maximum body size is read
+     */
+    private static final class MaxSizeInputStream extends FilterInputStream {
+
+        private long remaining;
+
+        private MaxSizeInputStream(InputStream input, long maxBodySize) {
+            super(input);
+            this.remaining = maxBodySize;
+        }
+
+        @Override
+        public int read() throws IOException {
+            int b = super.read();
+            if (b >= 0) {
+                consumed(1);
+            }
+            return b;
+        }
+
+        @Override
+        public int read(byte[] b, int off, int len) throws IOException {
+            int count = super.read(b, off, len);
+            if (count > 0) {
+                consumed(count);
+            }
+            return count;
+        }
+
+        private void consumed(int count) {
+            remaining -= count;
+            if (remaining < 0) {
+                throw HaltException.payloadTooLarge();
+            }
+        }
+    }
+
 }
@@ -40,6 +40,7 @@ public class Response {
 
     public enum Compression {
         // Compression should not be handled in any way by Spark
+        // (the embedded server compresses the response according to its compression policy)
         NONE,
         // It will request Spark to compress depending on browser support (BROTLI if not, GZIP)
         AUTO,
@@ -17,6 +17,8 @@
 package spark;
 
 import spark.route.HttpMethod;
+import spark.sse.SseHandler;
+import spark.sse.SseRouteImpl;
 import spark.utils.SparkUtils;
 
 /**
@@ -795,6 +797,38 @@ abstract class Routable {
         addRoute(HttpMethod.patch, ResponseTransformerRouteImpl.create(path, acceptType, route, transformer));
     }
 
+    //////////////////////////////////////////////////
+    // BEGIN Server-Sent Events
+    //////////////////////////////////////////////////
+
+    /**
+     * Maps the path to a stream of server-sent events (text/event-stream), for example:
+     * sse("/events", (request, emitter) -> broadcaster.add(emitter));
+     * The stream uses asynchronous requests and non-blocking I/O: an open stream holds no thread.
+     * A heartbeat is sent when no event was sent for {@value SseRouteImpl#DEFAULT_HEARTBEAT_MILLIS} ms.
+     *
+     * @param path    the path
+     * @param handler the handler invoked when a client opens the stream
+     */
+    public void sse(String path, SseHandler handler) {
+        sse(path, handler, SseRouteImpl.DEFAULT_HEARTBEAT_MILLIS);
+    }
+
+    /**
+     * Maps the path to a stream of server-sent events (text/event-stream).
+     *
+     * @param path            the path
+     * @param handler         the handler invoked when a client opens the stream
+     * @param heartbeatMillis the time without events after which a heartbeat is sent, 0 for none
+     */
+    public void sse(String path, SseHandler handler, long heartbeatMillis) {
+        addRoute(HttpMethod.get, SseRouteImpl.create(path, handler, heartbeatMillis));
+    }
+
+    //////////////////////////////////////////////////
+    // END Server-Sent Events
+    //////////////////////////////////////////////////
+
     /**
      * Create route implementation or use default response transformer
      *
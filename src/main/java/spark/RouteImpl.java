@@ -28,9 +28,18 @@ import spark.utils.Wrapper;
 public abstract class RouteImpl implements Route, Wrapper {
     public static final String DEFAULT_ACCEPT_TYPE = "*/*";
 
+    /**
+     * The timeout in milliseconds of the asynchronous requests of the routes which do not set one (see
+     * {@link #withAsyncTimeout(long)})
+     */
+    public static final long DEFAULT_ASYNC_TIMEOUT = 30_000;
+
     private String path;
     private String acceptType;
     private Object delegate;
+    private long asyncTimeout = DEFAULT_ASYNC_TIMEOUT;
+    private boolean asyncTimeoutSet;
+    private long maxBodySize;
 
     /**
      * Prefix the path (used for {@link Service#path})
@@ -43,6 +52,40 @@ public abstract class RouteImpl implements Route, Wrapper {
         return this;
     }
 
+    /**
+     * Sets the timeout of the asynchronous requests handled by this route, ie: when the route returns a
+     * {@link java.util.concurrent.CompletionStage}. A request whose stage has not completed in time is answered
+     * with 503 (Service Unavailable), unless an exception handler is mapped for
+     * {@link java.util.concurrent.TimeoutException}.
+     *
+     * @param asyncTimeout the timeout in milliseconds, 0 for no timeout ({@link #DEFAULT_ASYNC_TIMEOUT} if not set)
+     * @return itself for easy chaining
+     */
+    public RouteImpl withAsyncTimeout(long asyncTimeout) {
+        if (asyncTimeout < 0) {
+            throw new IllegalArgumentException("asyncTimeout must not be negative");
+        }
+        this.asyncTimeout = asyncTimeout;
+        this.asyncTimeoutSet = true;
+        return this;
+    }
+
+    /**
+     * Sets the maximum size of the body of the requests handled by this route. A request declaring a larger
+     * body (Content-Length) is answered with 413 (Payload Too Large) without reading the body or invoking
+     * the route. A body of unknown length is rejected the same way when reading it goes past the maximum.
+     *
+     * @param maxBodySize the maximum size in bytes, 0 for no maximum
+     * @return itself for easy chaining
+     */
+    public RouteImpl withMaxBodySize(long maxBodySize) {
+        if (maxBodySize < 0) {
+            throw new IllegalArgumentException("maxBodySize must not be negative");
+        }
+        this.maxBodySize = maxBodySize;
+        return this;
+    }
+
     /**
      * Wraps the route in RouteImpl
      *
@@ -142,6 +185,28 @@ public abstract class RouteImpl implements Route, Wrapper {
         return this.path;
     }
 
+    /**
+     * @return the timeout of the asynchronous requests in milliseconds, 0 if there is none
+     */
+    public long getAsyncTimeout() {
+        return asyncTimeout;
+    }
+
+    /**
+     * @return true if the timeout of the asynchronous requests was set for this route (the one of its group
+     * is not used then)
+     */
+    boolean hasAsyncTimeout() {
+        return asyncTimeoutSet;
+    }
+
+    /**
+     * @return the maximum size in bytes of the body of the requests, 0 if there is no maximum
+     */
+    public long getMaxBodySize() {
+        return maxBodySize;
+    }
+
     /**
      * @return the route used to create the route implementation
      */
@@ -20,6 +20,7 @@ import java.security.Security;
 import java.util.ArrayDeque;
 import java.util.Deque;
 import java.util.HashMap;
+import java.util.LinkedHashMap;
 import java.util.List;
 import java.util.Map;
 import java.util.Optional;
@@ -31,6 +32,7 @@ import org.conscrypt.OpenSSLProvider;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
+import spark.compression.CompressionPolicy;
 import spark.embeddedserver.EmbeddedServer;
 import spark.embeddedserver.EmbeddedServers;
 import spark.embeddedserver.jetty.websocket.WebSocketHandlerClassWrapper;
@@ -42,6 +44,7 @@ import spark.route.ServletRoutes;
 import spark.routematch.RouteMatch;
 import spark.ssl.SslStores;
 import spark.staticfiles.MimeType;
+import spark.staticfiles.StaticFilesCache;
 import spark.staticfiles.StaticFilesConfiguration;
 
 import static java.util.Objects.requireNonNull;
@@ -100,6 +103,20 @@ public final class Service extends Routable {
 
     private boolean trustForwardHeaders = true;
 
+    private int routeCacheMaxEntries = 0;
+
+    private boolean virtualThreads = false;
+
+    private boolean nonBlockingWrites = false;
+
+    private long asyncTimeout = -1;
+
+    private long maxBodySize = 0;
+
+    private CompressionPolicy compressionPolicy = null;
+
+    private final Map<String, CompressionPolicy> pathCompressionPolicies = new LinkedHashMap<>();
+
     /**
      * Creates a new Service (a Spark instance). This should be used instead of the static API if the user wants
      * multiple services in one process.
@@ -229,6 +246,53 @@ public final class Service extends Routable {
         }
     }
 
+    /**
+     * Enables the cache of resolved routes: the route found for a http method, path and accept type
+     * (or the fact that none was found) is kept until routes are added or removed.
+     * Useful when most of the requests are for a limited set of paths. Disabled by default.
+     *
+     * @param maxEntries the maximum number of cached routes (the least recently used are evicted)
+     * @return the object with the route cache enabled
+     */
+    public synchronized Service enableRouteCache(int maxEntries) {
+        if (maxEntries <= 0) {
+            throw new IllegalArgumentException("maxEntries must be greater than 0");
+        }
+        routeCache(maxEntries);
+        return this;
+    }
+
+    /**
+     * Disables the cache of resolved routes
+     *
+     * @return the object with the route cache disabled
+     */
+    public synchronized Service disableRouteCache() {
+        routeCache(0);
+        return this;
+    }
+
+    private void routeCache(int maxEntries) {
+        routeCacheMaxEntries = maxEntries;
+        if (routes != null) {
+            routes.cache(maxEntries);
+        }
+    }
+
+    /**
+     * @return the number of requests for which the route was found in the route cache
+     */
+    public synchronized long routeCacheHits() {
+        return routes != null ? routes.cacheHits() : 0;
+    }
+
+    /**
+     * @return the number of requests for which the route was not found in the route cache
+     */
+    public synchronized long routeCacheMisses() {
+        return routes != null ? routes.cacheMisses() : 0;
+    }
+
     /**
      * Set the connection to be secure, using the specified keystore and
      * truststore. This has to be called before any route mapping is done. You
@@ -410,6 +474,77 @@ public final class Service extends Routable {
         return this;
     }
 
+    /**
+     * Handles the requests on virtual threads (requires Java 21+, else the thread pool is used),
+     * so routes blocking on I/O don't hold a thread of the pool. The thread pool still runs the
+     * embedded web server's selectors and acceptors.
+     * This has to be called before any route mapping is done.
+     *
+     * @return the object with virtual threads enabled
+     */
+    public synchronized Service virtualThreads() {
+        if (initialized) {
+            throwBeforeRouteMappingException();
+        }
+        this.virtualThreads = true;
+        return this;
+    }
+
+    /**
+     * Writes the bodies which are an input stream or bytes with non-blocking I/O: the request is switched
+     * to asynchronous mode and a thread is only used while the client can take data, so slow clients
+     * downloading large bodies don't hold the threads of the pool. Asynchronous routes still write with
+     * blocking I/O (on the thread completing the route).
+     * This has to be called before any route mapping is done.
+     *
+     * @return the object with non-blocking writes enabled
+     */
+    public synchronized Service nonBlockingWrites() {
+        if (initialized) {
+            throwBeforeRouteMappingException();
+        }
+        this.nonBlockingWrites = true;
+        return this;
+    }
+
+    /**
+     * Sets the policy of the response compression made by the embedded server (by default, the responses of GET,
+     * POST and PUT requests are compressed with br, zstd or gzip): the minimum size of a compressed response, the
+     * compressed or excluded mime types and paths, the level of each encoding...
+     * This has to be called before any route mapping is done.
+     *
+     * @param policy the policy, {@link CompressionPolicy#disabled()} to compress nothing
+     * @return the object with the compression policy set
+     */
+    public synchronized Service compression(CompressionPolicy policy) {
+        requireNonNull(policy, "Compression policy cannot be null");
+        if (initialized) {
+            throwBeforeRouteMappingException();
+        }
+        this.compressionPolicy = policy;
+        return this;
+    }
+
+    /**
+     * Sets the compression policy of the routes under a path, overriding the server wide one (its minimum size and
+     * levels still apply). For example, to not compress the already compressed downloads:
+     * compression("/downloads/*", CompressionPolicy.disabled());
+     * This has to be called before any route mapping is done.
+     *
+     * @param path   the route path ("/api/*", "/reports/:id")
+     * @param policy the policy
+     * @return the object with the compression policy set
+     */
+    public synchronized Service compression(String path, CompressionPolicy policy) {
+        requireNonNull(path, "Compression path cannot be null");
+        requireNonNull(policy, "Compression policy cannot be null");
+        if (initialized) {
+            throwBeforeRouteMappingException();
+        }
+        pathCompressionPolicies.put(path, policy);
+        return this;
+    }
+
     /**
      * Sets the folder in classpath serving static files. Observe: this method
      * must be called before all other methods.
@@ -644,6 +779,87 @@ public final class Service extends Routable {
         pathDeque.removeLast();
     }
 
+    /**
+     * Adds the routes declared in the routeGroup in one batch: they are all published at once
+     * when the routeGroup returns (and not visible before), which is much faster when
+     * mapping a large number of routes. For example:
+     * batch(() -> {
+     * ....get("/users/:id",  UserApi::getUser);
+     * ....path("/api/email", EmailApi::routes);
+     * ....etc
+     * });
+     *
+     * @param routeGroup group of routes (can also contain path() calls)
+     */
+    public void batch(RouteGroup routeGroup) {
+        init();
+        routes.startBatch();
+        try {
+            routeGroup.addRoutes();
+        } finally {
+            routes.endBatch();
+        }
+    }
+
+    /**
+     * Sets the timeout of the asynchronous requests handled by the routes declared in the routeGroup
+     * (routes returning a {@link java.util.concurrent.CompletionStage}). For example:
+     * asyncTimeout(500, () -> {
+     * ....get("/quotes", QuoteApi::fetchAll);
+     * ....path("/api/prices", PriceApi::routes);
+     * ....etc
+     * });
+     * A request whose stage has not completed in time is answered with 503 (Service Unavailable), unless an
+     * exception handler is mapped for {@link java.util.concurrent.TimeoutException}. Without a timeout, the requests
+     * time out after {@link RouteImpl#DEFAULT_ASYNC_TIMEOUT}.
+     * The timeout of a single route can also be set with {@link RouteImpl#withAsyncTimeout(long)}, the one of the
+     * group does not apply to it then (nor to the server-sent events routes, whose streams have no timeout).
+     *
+     * @param millis     the timeout in milliseconds, 0 for no timeout
+     * @param routeGroup group of routes (can also contain path() calls)
+     */
+    public void asyncTimeout(long millis, RouteGroup routeGroup) {
+        if (millis < 0) {
+            throw new IllegalArgumentException("millis must not be negative");
+        }
+        long previous = asyncTimeout;
+        asyncTimeout = millis;
+        try {
+            routeGroup.addRoutes();
+        } finally {
+            asyncTimeout = previous;
+        }
+    }
+
+    /**
+     * Sets the maximum size of the body of the requests handled by the routes declared in the routeGroup.
+     * For example:
+     * maxBodySize(10 * 1024 * 1024, () -> {
+     * ....post("/upload", UploadApi::upload);
+     * ....path("/api/documents", DocumentApi::routes);
+     * ....etc
+     * });
+     * A request declaring a larger body (Content-Length) is answered with 413 (Payload Too Large) without
+     * reading the body or invoking the route. A body of unknown length is rejected the same way when reading
+     * it goes past the maximum. The maximum of a single route can also be set with
+     * {@link RouteImpl#withMaxBodySize(long)}.
+     *
+     * @param bytes      the maximum size in bytes, 0 for no maximum
+     * @param routeGroup group of routes (can also contain path() calls)
+     */
+    public void maxBodySize(long bytes, RouteGroup routeGroup) {
+        if (bytes < 0) {
+            throw new IllegalArgumentException("bytes must not be negative");
+        }
+        long previous = maxBodySize;
+        maxBodySize = bytes;
+        try {
+            routeGroup.addRoutes();
+        } finally {
+            maxBodySize = previous;
+        }
+    }
+
     public String getPaths() {
         return pathDeque.stream().collect(Collectors.joining(""));
     }
@@ -657,7 +873,7 @@ public final class Service extends Routable {
     @Override
     public void addRoute(HttpMethod httpMethod, RouteImpl route) {
         init();
-        routes.add(httpMethod, route.withPrefix(getPaths()));
+        routes.add(httpMethod, withGroupSettings(route).withPrefix(getPaths()));
     }
 
     @Override
@@ -670,7 +886,17 @@ public final class Service extends Routable {
     @Deprecated
     public void addRoute(String httpMethod, RouteImpl route) {
         init();
-        routes.add(httpMethod + " '" + getPaths() + route.getPath() + "'", route.getAcceptType(), route);
+        routes.add(httpMethod + " '" + getPaths() + route.getPath() + "'", route.getAcceptType(), withGroupSettings(route));
+    }
+
+    private RouteImpl withGroupSettings(RouteImpl route) {
+        if (asyncTimeout >= 0 && !route.hasAsyncTimeout()) {
+            route.withAsyncTimeout(asyncTimeout);
+        }
+        if (maxBodySize > 0 && route.getMaxBodySize() == 0) {
+            route.withMaxBodySize(maxBodySize);
+        }
+        return route;
     }
 
     @Override
@@ -702,6 +928,16 @@ public final class Service extends Routable {
 
                     server.configureWebSockets(webSocketHandlers, webSocketIdleTimeoutMillis);
                     server.trustForwardHeaders(trustForwardHeaders);
+                    if (virtualThreads) {
+                        server.virtualThreads(true);
+                    }
+                    if (nonBlockingWrites) {
+                        server.nonBlockingWrites(true);
+                    }
+                    if (compressionPolicy != null || !pathCompressionPolicies.isEmpty()) {
+                        server.compression(compressionPolicy != null ? compressionPolicy : CompressionPolicy.create(),
+                                           new LinkedHashMap<>(pathCompressionPolicies));
+                    }
 
                     port = server.ignite(
                             ipAddress,
@@ -733,10 +969,14 @@ public final class Service extends Routable {
         } else {
             routes = Routes.create();
         }
+        if (routeCacheMaxEntries > 0) {
+            routes.cache(routeCacheMaxEntries);
+        }
     }
 
     /**
      * @return The approximate number of currently active threads in the embedded Jetty server
+     * (including the virtual threads handling requests, when enabled)
      */
     public synchronized int activeThreadCount() {
         if (server != null) {
@@ -913,6 +1153,49 @@ public final class Service extends Routable {
             staticFilesConfiguration.setExpireTimeSeconds(seconds);
         }
 
+        /**
+         * Enables an in-memory cache of the static files: the files up to maxFileBytes are kept in memory, the least
+         * recently used ones being evicted to stay under maxBytes. Cached external files are not reloaded when
+         * they change, the cache has to be invalidated (see {@link #cache()}).
+         *
+         * @param maxBytes     the maximum total size of the cached files
+         * @param maxFileBytes the maximum size of a cached file
+         */
+        public void cache(long maxBytes, long maxFileBytes) {
+            staticFilesConfiguration.setCache(maxBytes, maxFileBytes);
+        }
+
+        /**
+         * Gets the in-memory cache of the static files, for its statistics (hits, misses, evictions) or to
+         * invalidate it.
+         *
+         * @return the cache, null if not enabled (see {@link #cache(long, long)})
+         */
+        public StaticFilesCache cache() {
+            return staticFilesConfiguration.getCache();
+        }
+
+        /**
+         * Serves the precompressed siblings of the static files ("app.js.br", "app.js.zst" or "app.js.gz" for
+         * "app.js") to the clients accepting their encoding, instead of compressing the files on each request.
+         */
+        public void precompressed() {
+            staticFilesConfiguration.setPrecompressed(true);
+        }
+
+        /**
+         * Memory maps the large files of the external static files location (media, datasets...): they are
+         * written from the mapped memory instead of being copied through heap buffers, and the mappings are shared
+         * by the concurrent downloads and range requests. These files are not compressed dynamically.
+         *
+         * @param minFileBytes   the minimum size of a mapped file
+         * @param maxMappedBytes the maximum total size of the mapped files, the least recently used files being
+         *                       unmapped first
+         */
+        public void memoryMapped(long minFileBytes, long maxMappedBytes) {
+            staticFilesConfiguration.setMemoryMapped(minFileBytes, maxMappedBytes);
+        }
+
         /**
          * Maps an extension to a mime-type. This will overwrite any previous mappings.
          *
@@ -19,7 +19,9 @@ package spark;
 import java.util.List;
 import java.util.function.Consumer;
 
+import spark.compression.CompressionPolicy;
 import spark.routematch.RouteMatch;
+import spark.sse.SseHandler;
 import spark.ssl.SslStores;
 
 import static spark.Service.ignite;
@@ -88,6 +90,39 @@ public class Spark {
         getInstance().path(path, routeGroup);
     }
 
+    /**
+     * Adds the routes declared in the routeGroup in one batch: they are all published at once
+     * when the routeGroup returns (and not visible before), which is much faster when
+     * mapping a large number of routes.
+     *
+     * @param routeGroup group of routes (can also contain path() calls)
+     */
+    public static void batch(RouteGroup routeGroup) {
+        getInstance().batch(routeGroup);
+    }
+
+    /**
+     * Sets the timeout of the asynchronous requests handled by the routes declared in the routeGroup
+     * (routes returning a {@link java.util.concurrent.CompletionStage}).
+     *
+     * @param millis     the timeout in milliseconds, 0 for no timeout
+     * @param routeGroup group of routes (can also contain path() calls)
+     */
+    public static void asyncTimeout(long millis, RouteGroup routeGroup) {
+        getInstance().asyncTimeout(millis, routeGroup);
+    }
+
+    /**
+     * Sets the maximum size of the body of the requests handled by the routes declared in the routeGroup.
+     * Larger requests are answered with 413 (Payload Too Large).
+     *
+     * @param bytes      the maximum size in bytes, 0 for no maximum
+     * @param routeGroup group of routes (can also contain path() calls)
+     */
+    public static void maxBodySize(long bytes, RouteGroup routeGroup) {
+        getInstance().maxBodySize(bytes, routeGroup);
+    }
+
     /**
      * Map the route for HTTP GET requests
      *
@@ -1214,6 +1249,52 @@ public class Spark {
         getInstance().threadPool(maxThreads, minThreads, idleTimeoutMillis);
     }
 
+    /**
+     * Handles the requests on virtual threads (requires Java 21+, else the thread pool is used),
+     * so routes blocking on I/O don't hold a thread of the pool. The thread pool still runs the
+     * embedded web server's selectors and acceptors.
+     * This has to be called before any route mapping is done.
+     */
+    public static void virtualThreads() {
+        getInstance().virtualThreads();
+    }
+
+    /**
+     * Writes the bodies which are an input stream or bytes with non-blocking I/O: the request is switched
+     * to asynchronous mode and a thread is only used while the client can take data, so slow clients
+     * downloading large bodies don't hold the threads of the pool. Asynchronous routes still write with
+     * blocking I/O (on the thread completing the route).
+     * This has to be called before any route mapping is done.
+     */
+    public static void nonBlockingWrites() {
+        getInstance().nonBlockingWrites();
+    }
+
+    /**
+     * Sets the policy of the response compression made by the embedded server (by default, the responses of GET,
+     * POST and PUT requests are compressed with br, zstd or gzip): the minimum size of a compressed response, the
+     * compressed or excluded mime types and paths, the level of each encoding...
+     * This has to be called before any route mapping is done.
+     *
+     * @param policy the policy, {@link CompressionPolicy#disabled()} to compress nothing
+     */
+    public static void compression(CompressionPolicy policy) {
+        getInstance().compression(policy);
+    }
+
+    /**
+     * Sets the compression policy of the routes under a path, overriding the server wide one (its minimum size and
+     * levels still apply). For example, to not compress the already compressed downloads:
+     * compression("/downloads/*", CompressionPolicy.disabled());
+     * This has to be called before any route mapping is done.
+     *
+     * @param path   the route path ("/api/*", "/reports/:id")
+     * @param policy the policy
+     */
+    public static void compression(String path, CompressionPolicy policy) {
+        getInstance().compression(path, policy);
+    }
+
     /**
      * Sets the folder in classpath serving static files. Observe: this method
      * must be called before all other methods.
@@ -1261,6 +1342,32 @@ public class Spark {
     	getInstance().awaitStop();
     }
 
+    ///////////////////////
+    // Server-Sent Events //
+
+    /**
+     * Maps the path to a stream of server-sent events (text/event-stream), for example:
+     * sse("/events", (request, emitter) -> broadcaster.add(emitter));
+     * The stream uses asynchronous requests and non-blocking I/O: an open stream holds no thread.
+     *
+     * @param path    the path
+     * @param handler the handler invoked when a client opens the stream
+     */
+    public static void sse(String path, SseHandler handler) {
+        getInstance().sse(path, handler);
+    }
+
+    /**
+     * Maps the path to a stream of server-sent events (text/event-stream).
+     *
+     * @param path            the path
+     * @param handler         the handler invoked when a client opens the stream
+     * @param heartbeatMillis the time without events after which a heartbeat is sent, 0 for none
+     */
+    public static void sse(String path, SseHandler handler, long heartbeatMillis) {
+        getInstance().sse(path, handler, heartbeatMillis);
+    }
+
     ////////////////
     // Websockets //
 
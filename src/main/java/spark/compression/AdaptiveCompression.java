@@ -0,0 +1,264 @@
+/*
+ * Copyright 2011- Per Wendel
+ *
+ *  Licensed under the Apache License, Version 2.0 (the "License");
+ *  you may not use this file except in compliance with the License.
+ *  You may obtain a copy of the License at
+ *
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package spark.compression;
+
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import spark.utils.Assert;
+
+/**
+ * Load-adaptive compression: when the server is under CPU pressure, or its requests queue up, the compression backs
+ * off, and it is restored when the load falls.
+ * <ul>
+ * <li>{@link Mode#REDUCED}: the encodings are used at their reduced levels, and gzip is preferred to br</li>
+ * <li>{@link Mode#SATURATED}: the responses smaller than a threshold are not compressed anymore</li>
+ * </ul>
+ * The load is sampled by the embedded server. This object also publishes the current decisions (the mode and the
+ * load it was decided on), for example:
+ * <pre>
+ * AdaptiveCompression adaptive = AdaptiveCompression.create().cpuThresholds(0.7, 0.9);
+ * compression(CompressionPolicy.create().adaptive(adaptive));
+ * ...
+ * gauge("compression.mode", () -&gt; adaptive.mode().ordinal());
+ * </pre>
+ */
+public final class AdaptiveCompression {
+
+    private static final Logger LOG = LoggerFactory.getLogger(AdaptiveCompression.class);
+
+    /**
+     * How much the CPU load has to fall under a threshold before the compression is restored
+     */
+    private static final double CPU_HYSTERESIS = 0.1;
+
+    /**
+     * The modes of the compression, by increasing load
+     */
+    public enum Mode {
+        // The compression policy applies as configured
+        NORMAL,
+        // The encodings are used at their reduced levels, gzip is preferred to br
+        REDUCED,
+        // Additionally, the small responses are not compressed
+        SATURATED
+    }
+
+    private final Map<String, Integer> reducedLevels = new LinkedHashMap<>();
+    private double reducedCpuLoad = 0.75;
+    private double saturatedCpuLoad = 0.9;
+    private int reducedQueueSize = 50;
+    private int saturatedQueueSize = 200;
+    private int saturatedMinSize = 16 * 1024;
+    private long intervalMillis = 1000;
+
+    private volatile Mode mode = Mode.NORMAL;
+    private volatile double cpuLoad;
+    private volatile int queueSize;
+    private volatile long modeChanges;
+
+    private AdaptiveCompression() {
+        reducedLevels.put("br", 2);
+        reducedLevels.put("zstd", 1);
+        reducedLevels.put("gzip", 1);
+    }
+
+    /**
+     * @return an adaptive compression with the default thresholds: reduced at 75% of CPU load or 50 queued
+     * requests, saturated at 90% of CPU load or 200 queued requests
+     */
+    public static AdaptiveCompression create() {
+        return new AdaptiveCompression();
+    }
+
+    /**
+     * Sets the CPU loads (of the process, from 0 to 1) reducing the compression
+     *
+     * @param reduced   the load of the reduced mode
+     * @param saturated the load of the saturated mode
+     * @return this object
+     */
+    public AdaptiveCompression cpuThresholds(double reduced, double saturated) {
+        Assert.isTrue(reduced > 0 && reduced <= saturated, "'reduced' must be positive and at most 'saturated'");
+        this.reducedCpuLoad = reduced;
+        this.saturatedCpuLoad = saturated;
+        return this;
+    }
+
+    /**
+     * Sets the numbers of queued requests (waiting for a thread of the pool) reducing the compression
+     *
+     * @param reduced   the queue size of the reduced mode
+     * @param saturated the queue size of the saturated mode
+     * @return this object
+     */
+    public AdaptiveCompression queueThresholds(int reduced, int saturated) {
+        Assert.isTrue(reduced > 0 && reduced <= saturated, "'reduced' must be positive and at most 'saturated'");
+        this.reducedQueueSize = reduced;
+        this.saturatedQueueSize = saturated;
+        return this;
+    }
+
+    /**
+     * Sets the level of an encoding in the reduced and saturated modes (by default 2 for br, 1 for zstd and gzip)
+     *
+     * @param encoding the encoding
+     * @param level    the level
+     * @return this object
+     */
+    public AdaptiveCompression reducedLevel(String encoding, int level) {
+        Assert.notNull(encoding, "'encoding' must not be null");
+        reducedLevels.put(encoding, level);
+        return this;
+    }
+
+    /**
+     * Sets the minimum size of a compressed response in the saturated mode (16KB by default)
+     *
+     * @param bytes the minimum size in bytes
+     * @return this object
+     */
+    public AdaptiveCompression saturatedMinSize(int bytes) {
+        Assert.isTrue(bytes >= 0, "'bytes' must not be negative");
+        this.saturatedMinSize = bytes;
+        return this;
+    }
+
+    /**
+     * Sets how often the load is sampled (every second by default)
+     *
+     * @param millis the interval in milliseconds
+     * @return this object
+     */
+    public AdaptiveCompression interval(long millis) {
+        Assert.isTrue(millis > 0, "'millis' must be positive");
+        this.intervalMillis = millis;
+        return this;
+    }
+
+    /**
+     * Updates the mode from a sample of the load (called by the embedded server). The compression backs off as soon
+     * as the load reaches a threshold, and is restored one mode at a time, once the load has fallen well under it.
+     *
+     * @param cpuLoad   the CPU load of the process, from 0 to 1 (negative if not available)
+     * @param queueSize the number of queued requests
+     * @return the mode
+     */
+    public synchronized Mode update(double cpuLoad, int queueSize) {
+        this.cpuLoad = cpuLoad;
+        this.queueSize = queueSize;
+
+        Mode current = mode;
+        Mode next = current;
+        if (cpuLoad >= saturatedCpuLoad || queueSize >= saturatedQueueSize) {
+            next = Mode.SATURATED;
+        } else if (current == Mode.NORMAL && (cpuLoad >= reducedCpuLoad || queueSize >= reducedQueueSize)) {
+            next = Mode.REDUCED;
+        } else if (current != Mode.NORMAL && isRelieved(current, cpuLoad, queueSize)) {
+            next = Mode.values()[current.ordinal() - 1];
+        }
+
+        if (next != current) {
+            mode = next;
+            modeChanges++;
+            LOG.info("Compression mode {} -> {} (CPU load: {}, queued requests: {})",
+                     current, next, String.format("%.2f", cpuLoad), queueSize);
+        }
+        return next;
+    }
+
+    private boolean isRelieved(Mode current, double cpuLoad, int queueSize) {
+        double cpuThreshold = current == Mode.SATURATED ? saturatedCpuLoad : reducedCpuLoad;
+        int queueThreshold = current == Mode.SATURATED ? saturatedQueueSize : reducedQueueSize;
+        return cpuLoad < cpuThreshold - CPU_HYSTERESIS && queueSize < queueThreshold / 2;
+    }
+
+    /**
+     * @return the current mode
+     */
+    public Mode mode() {
+        return mode;
+    }
+
+    /**
+     * @return the CPU load of the last sample
+     */
+    public double cpuLoad() {
+        return cpuLoad;
+    }
+
+    /**
+     * @return the number of queued requests of the last sample
+     */
+    public int queueSize() {
+        return queueSize;
+    }
+
+    /**
+     * @return the number of times the mode changed
+     */
+    public long modeChanges() {
+        return modeChanges;
+    }
+
+    /**
+     * @return true if br is preferred (to gzip) in the current mode
+     */
+    public boolean isBrotliPreferred() {
+        return mode == Mode.NORMAL;
+    }
+
+    /**
+     * @param encoding the encoding
+     * @return the level of the encoding in the current mode, -1 for its level in the compression policy
+     */
+    public int level(String encoding) {
+        return mode == Mode.NORMAL ? -1 : reducedLevels.getOrDefault(encoding, -1);
+    }
+
+    /**
+     * @return the minimum size of a compressed response in the current mode, -1 for the one of the compression policy
+     */
+    public int minSize() {
+        return mode == Mode.SATURATED ? saturatedMinSize : -1;
+    }
+
+    /**
+     * @return the levels of the encodings in the reduced and saturated modes
+     */
+    public Map<String, Integer> getReducedLevels() {
+        return Collections.unmodifiableMap(reducedLevels);
+    }
+
+    /**
+     * @return the minimum size of a compressed response in the saturated mode
+     */
+    public int getSaturatedMinSize() {
+        return saturatedMinSize;
+    }
+
+    /**
+     * @return how often the load is sampled, in milliseconds
+     */
+    public long getIntervalMillis() {
+        return intervalMillis;
+    }
+}
@@ -0,0 +1,265 @@
+/*
+ * Copyright 2011- Per Wendel
+ *
+ *  Licensed under the Apache License, Version 2.0 (the "License");
+ *  you may not use this file except in compliance with the License.
+ *  You may obtain a copy of the License at
+ *
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package spark.compression;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+import spark.utils.Assert;
+
+/**
+ * The policy of the response compression made by the embedded server: the encodings, the methods, mime types and
+ * paths of the compressed responses, the minimum size of a compressed response, and the level of each encoding.
+ * <p>
+ * For example:
+ * <pre>
+ * compression(CompressionPolicy.create()
+ *     .minSize(1024)
+ *     .excludeMimeTypes("image/png", "video/mp4")
+ *     .level("br", 5)
+ *     .adaptive(AdaptiveCompression.create()));
+ * compression("/downloads/*", CompressionPolicy.disabled());
+ * </pre>
+ * A single response can also be compressed by Spark, or marked as already compressed, with
+ * {@link spark.Response#compression}: the server doesn't compress the responses having a Content-Encoding.
+ */
+public final class CompressionPolicy {
+
+    /**
+     * The default encodings, in order of preference
+     */
+    public static final List<String> DEFAULT_ENCODINGS = List.of("br", "zstd", "gzip");
+
+    /**
+     * The default compressed methods
+     */
+    public static final Set<String> DEFAULT_METHODS = Set.of("GET", "POST", "PUT");
+
+    private final boolean enabled;
+    private final List<String> encodings = new ArrayList<>(DEFAULT_ENCODINGS);
+    private final Set<String> methods = new LinkedHashSet<>(DEFAULT_METHODS);
+    private final Set<String> includedMimeTypes = new LinkedHashSet<>();
+    private final Set<String> excludedMimeTypes = new LinkedHashSet<>();
+    private final Set<String> includedPaths = new LinkedHashSet<>();
+    private final Set<String> excludedPaths = new LinkedHashSet<>();
+    private final Map<String, Integer> levels = new LinkedHashMap<>();
+    private int minSize = -1;
+    private AdaptiveCompression adaptive;
+
+    private CompressionPolicy(boolean enabled) {
+        this.enabled = enabled;
+    }
+
+    /**
+     * @return a policy compressing the responses of GET, POST and PUT requests with br, zstd or gzip, at the
+     * default levels of the server
+     */
+    public static CompressionPolicy create() {
+        return new CompressionPolicy(true);
+    }
+
+    /**
+     * @return a policy compressing nothing
+     */
+    public static CompressionPolicy disabled() {
+        return new CompressionPolicy(false);
+    }
+
+    /**
+     * Sets the encodings, in order of preference when the client accepts several of them
+     *
+     * @param encodings the encodings ("br", "zstd", "gzip")
+     * @return this policy
+     */
+    public CompressionPolicy encodings(String... encodings) {
+        Assert.isTrue(encodings.length > 0, "'encodings' must not be empty");
+        this.encodings.clear();
+        this.encodings.addAll(Arrays.asList(encodings));
+        return this;
+    }
+
+    /**
+     * Sets the methods of the requests whose responses are compressed
+     *
+     * @param methods the methods
+     * @return this policy
+     */
+    public CompressionPolicy methods(String... methods) {
+        this.methods.clear();
+        this.methods.addAll(Arrays.asList(methods));
+        return this;
+    }
+
+    /**
+     * Only compresses the responses of these mime types
+     *
+     * @param mimeTypes the mime types ("text/html", "application/json")
+     * @return this policy
+     */
+    public CompressionPolicy includeMimeTypes(String... mimeTypes) {
+        includedMimeTypes.addAll(Arrays.asList(mimeTypes));
+        return this;
+    }
+
+    /**
+     * Doesn't compress the responses of these mime types, typically the already compressed ones
+     *
+     * @param mimeTypes the mime types ("image/png", "video/mp4")
+     * @return this policy
+     */
+    public CompressionPolicy excludeMimeTypes(String... mimeTypes) {
+        excludedMimeTypes.addAll(Arrays.asList(mimeTypes));
+        return this;
+    }
+
+    /**
+     * Only compresses the responses to these paths
+     *
+     * @param paths the paths, as route paths ("/api/*", "/reports/:id")
+     * @return this policy
+     */
+    public CompressionPolicy includePaths(String... paths) {
+        includedPaths.addAll(Arrays.asList(paths));
+        return this;
+    }
+
+    /**
+     * Doesn't compress the responses to these paths
+     *
+     * @param paths the paths, as route paths ("/downloads/*", "/files/:name")
+     * @return this policy
+     */
+    public CompressionPolicy excludePaths(String... paths) {
+        excludedPaths.addAll(Arrays.asList(paths));
+        return this;
+    }
+
+    /**
+     * Sets the minimum size of a compressed response: smaller responses (ie: tiny JSON responses) are not worth
+     * compressing. Only applies to the server wide policy.
+     *
+     * @param bytes the minimum size in bytes
+     * @return this policy
+     */
+    public CompressionPolicy minSize(int bytes) {
+        Assert.isTrue(bytes >= 0, "'bytes' must not be negative");
+        this.minSize = bytes;
+        return this;
+    }
+
+    /**
+     * Sets the compression level of an encoding (0-11 for br, 1-22 for zstd, 1-9 for gzip). Only applies to the
+     * server wide policy.
+     *
+     * @param encoding the encoding
+     * @param level    the level
+     * @return this policy
+     */
+    public CompressionPolicy level(String encoding, int level) {
+        Assert.notNull(encoding, "'encoding' must not be null");
+        levels.put(encoding, level);
+        return this;
+    }
+
+    /**
+     * Makes the compression back off when the server is under load. Only applies to the server wide policy.
+     *
+     * @param adaptive the adaptive compression, also publishing its current decisions
+     * @return this policy
+     */
+    public CompressionPolicy adaptive(AdaptiveCompression adaptive) {
+        Assert.notNull(adaptive, "'adaptive' must not be null");
+        this.adaptive = adaptive;
+        return this;
+    }
+
+    /**
+     * @return true if responses are compressed
+     */
+    public boolean isEnabled() {
+        return enabled;
+    }
+
+    /**
+     * @return the encodings, in order of preference
+     */
+    public List<String> getEncodings() {
+        return Collections.unmodifiableList(encodings);
+    }
+
+    /**
+     * @return the methods of the requests whose responses are compressed
+     */
+    public Set<String> getMethods() {
+        return Collections.unmodifiableSet(methods);
+    }
+
+    /**
+     * @return the only compressed mime types, empty for all of them
+     */
+    public Set<String> getIncludedMimeTypes() {
+        return Collections.unmodifiableSet(includedMimeTypes);
+    }
+
+    /**
+     * @return the mime types not compressed
+     */
+    public Set<String> getExcludedMimeTypes() {
+        return Collections.unmodifiableSet(excludedMimeTypes);
+    }
+
+    /**
+     * @return the only compressed paths, empty for all of them
+     */
+    public Set<String> getIncludedPaths() {
+        return Collections.unmodifiableSet(includedPaths);
+    }
+
+    /**
+     * @return the paths not compressed
+     */
+    public Set<String> getExcludedPaths() {
+        return Collections.unmodifiableSet(excludedPaths);
+    }
+
+    /**
+     * @return the minimum size of a compressed response, -1 for the default of the server
+     */
+    public int getMinSize() {
+        return minSize;
+    }
+
+    /**
+     * @return the compression levels by encoding, the encodings not in there use their default level
+     */
+    public Map<String, Integer> getLevels() {
+        return Collections.unmodifiableMap(levels);
+    }
+
+    /**
+     * @return the adaptive compression, null if the compression doesn't adapt to the load
+     */
+    public AdaptiveCompression getAdaptive() {
+        return adaptive;
+    }
+}
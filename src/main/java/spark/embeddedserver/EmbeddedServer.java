@@ -19,6 +19,7 @@ package spark.embeddedserver;
 import java.util.Map;
 import java.util.Optional;
 
+import spark.compression.CompressionPolicy;
 import spark.embeddedserver.jetty.websocket.WebSocketHandlerWrapper;
 import spark.ssl.SslStores;
 
@@ -58,6 +59,44 @@ public interface EmbeddedServer {
 
     }
 
+    /**
+     * Must be called before ignite()
+     *
+     * Enables handling requests on virtual threads (Java 21+).
+     *
+     * @param enabled - whether virtual threads are used or not.
+     */
+    default void virtualThreads(boolean enabled) {
+        if (enabled) {
+            NotSupportedException.raise(getClass().getSimpleName(), "Virtual threads");
+        }
+    }
+
+    /**
+     * Must be called before ignite()
+     *
+     * Enables writing input stream and bytes bodies with non-blocking I/O.
+     *
+     * @param enabled - whether non-blocking writes are used or not.
+     */
+    default void nonBlockingWrites(boolean enabled) {
+        if (enabled) {
+            NotSupportedException.raise(getClass().getSimpleName(), "Non-blocking writes");
+        }
+    }
+
+    /**
+     * Must be called before ignite()
+     *
+     * Sets the policy of the response compression.
+     *
+     * @param policy       - the server wide policy.
+     * @param pathPolicies - the policies of the paths (route paths), overriding the server wide one.
+     */
+    default void compression(CompressionPolicy policy, Map<String, CompressionPolicy> pathPolicies) {
+        NotSupportedException.raise(getClass().getSimpleName(), "Compression policies");
+    }
+
     /**
      * Configures the web sockets for the embedded server.
      *
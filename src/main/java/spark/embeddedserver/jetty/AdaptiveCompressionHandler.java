@@ -0,0 +1,241 @@
+/*
+ * Copyright 2011- Per Wendel
+ *
+ *  Licensed under the Apache License, Version 2.0 (the "License");
+ *  you may not use this file except in compliance with the License.
+ *  You may obtain a copy of the License at
+ *
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package spark.embeddedserver.jetty;
+
+import java.lang.management.ManagementFactory;
+import java.lang.management.OperatingSystemMXBean;
+import java.util.IdentityHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+import java.util.function.DoubleSupplier;
+import java.util.function.IntSupplier;
+
+import org.eclipse.jetty.compression.Compression;
+import org.eclipse.jetty.http.HttpFields;
+import org.eclipse.jetty.http.HttpHeader;
+import org.eclipse.jetty.server.Handler;
+import org.eclipse.jetty.server.Request;
+import org.eclipse.jetty.server.Response;
+import org.eclipse.jetty.util.Callback;
+import org.eclipse.jetty.util.thread.QueuedThreadPool;
+import org.eclipse.jetty.util.thread.Scheduler;
+import org.eclipse.jetty.util.thread.ThreadPool;
+
+import spark.compression.AdaptiveCompression;
+
+/**
+ * Wraps the compression handler to make the compression back off under load: samples the CPU load and the queue
+ * of the thread pool, and applies the mode of the adaptive compression to the compressions (their levels and minimum
+ * size) and to the requests (br is removed from the encodings accepted along with gzip).
+ */
+final class AdaptiveCompressionHandler extends Handler.Wrapper {
+
+    private static final String BROTLI = "br";
+    private static final String GZIP = "gzip";
+
+    private final AdaptiveCompression adaptive;
+    private final List<Compression> compressions;
+    private final Map<Compression, Integer> levels = new IdentityHashMap<>();
+    private final Map<Compression, Integer> minSizes = new IdentityHashMap<>();
+    private final DoubleSupplier cpuLoad;
+    private IntSupplier queueSize;
+
+    private AdaptiveCompression.Mode applied = AdaptiveCompression.Mode.NORMAL;
+    private Scheduler.Task task;
+
+    /**
+     * @param handler      the compression handler
+     * @param adaptive     the adaptive compression
+     * @param compressions the compressions of the compression handler
+     */
+    AdaptiveCompressionHandler(Handler handler, AdaptiveCompression adaptive, List<Compression> compressions) {
+        this(handler, adaptive, compressions, processCpuLoad(), null);
+    }
+
+    AdaptiveCompressionHandler(Handler handler,
+                               AdaptiveCompression adaptive,
+                               List<Compression> compressions,
+                               DoubleSupplier cpuLoad,
+                               IntSupplier queueSize) {
+        super(handler);
+        this.adaptive = adaptive;
+        this.compressions = compressions;
+        this.cpuLoad = cpuLoad;
+        this.queueSize = queueSize;
+        for (Compression compression : compressions) {
+            levels.put(compression, compression.getDefaultEncoderConfig().getCompressionLevel());
+            minSizes.put(compression, compression.getMinCompressSize());
+        }
+    }
+
+    @Override
+    public boolean handle(Request request, Response response, Callback callback) throws Exception {
+        if (!adaptive.isBrotliPreferred()) {
+            request = withoutBrotli(request);
+        }
+        return super.handle(request, response, callback);
+    }
+
+    @Override
+    protected void doStart() throws Exception {
+        super.doStart();
+        if (queueSize == null) {
+            ThreadPool threadPool = getServer().getThreadPool();
+            queueSize = threadPool instanceof QueuedThreadPool ? ((QueuedThreadPool) threadPool)::getQueueSize : () -> 0;
+        }
+        schedule();
+    }
+
+    @Override
+    protected void doStop() throws Exception {
+        synchronized (this) {
+            if (task != null) {
+                task.cancel();
+                task = null;
+            }
+        }
+        apply(AdaptiveCompression.Mode.NORMAL);
+        super.doStop();
+    }
+
+    private synchronized void schedule() {
+        if (isRunning()) {
+            task = getServer().getScheduler().schedule(this::sample, adaptive.getIntervalMillis(), TimeUnit.MILLISECONDS);
+        }
+    }
+
+    /**
+     * Samples the load, and applies the resulting mode
+     */
+    void sample() {
+        try {
+            apply(adaptive.update(cpuLoad.getAsDouble(), queueSize.getAsInt()));
+        } finally {
+            schedule();
+        }
+    }
+
+    private synchronized void apply(AdaptiveCompression.Mode mode) {
+        if (mode == applied) {
+            return;
+        }
+        for (Compression compression : compressions) {
+            int level = adaptive.level(compression.getEncodingName());
+            compression.getDefaultEncoderConfig().setCompressionLevel(level >= 0 ? level : levels.get(compression));
+            int minSize = adaptive.minSize();
+            compression.setMinCompressSize(Math.max(minSize, minSizes.get(compression)));
+        }
+        applied = mode;
+    }
+
+    /**
+     * @return the request without br in its accepted encodings, if it accepts gzip
+     */
+    static Request withoutBrotli(Request request) {
+        List<String> encodings = request.getHeaders().getCSV(HttpHeader.ACCEPT_ENCODING, false);
+        boolean brotli = false;
+        boolean gzip = false;
+        for (String encoding : encodings) {
+            brotli |= accepts(encoding, BROTLI);
+            gzip |= accepts(encoding, GZIP);
+        }
+        if (!brotli || !gzip) {
+            return request;
+        }
+        StringBuilder acceptEncoding = new StringBuilder();
+        for (String encoding : encodings) {
+            if (!hasName(encoding, BROTLI)) {
+                if (acceptEncoding.length() > 0) {
+                    acceptEncoding.append(", ");
+                }
+                acceptEncoding.append(encoding);
+            }
+        }
+        HttpFields headers = HttpFields.build(request.getHeaders())
+                .put(HttpHeader.ACCEPT_ENCODING, acceptEncoding.toString())
+                .asImmutable();
+        return new Request.Wrapper(request) {
+            @Override
+            public HttpFields getHeaders() {
+                return headers;
+            }
+        };
+    }
+
+    // Parsed by hand, without allocating: this runs for every request while the server is busy
+
+    private static boolean accepts(String encoding, String name) {
+        return hasName(encoding, name) && !zeroQuality(encoding);
+    }
+
+    private static boolean hasName(String encoding, String name) {
+        int semicolon = encoding.indexOf(';');
+        int start = skipSpaces(encoding, 0);
+        int end = semicolon < 0 ? encoding.length() : semicolon;
+        while (end > start && encoding.charAt(end - 1) <= ' ') {
+            end--;
+        }
+        return end - start == name.length() && encoding.regionMatches(true, start, name, 0, name.length());
+    }
+
+    /**
+     * @return true if the last parameter of the encoding is a zero quality (q=0, q=0.0, ...)
+     */
+    private static boolean zeroQuality(String encoding) {
+        int semicolon = encoding.lastIndexOf(';');
+        if (semicolon < 0) {
+            return false;
+        }
+        int i = skipSpaces(encoding, semicolon + 1);
+        if (i >= encoding.length() || Character.toLowerCase(encoding.charAt(i)) != 'q') {
+            return false;
+        }
+        i = skipSpaces(encoding, i + 1);
+        if (i >= encoding.length() || encoding.charAt(i) != '=') {
+            return false;
+        }
+        i = skipSpaces(encoding, i + 1);
+        if (i >= encoding.length() || encoding.charAt(i) != '0') {
+            return false;
+        }
+        i++;
+        if (i < encoding.length() && encoding.charAt(i) == '.') {
+            i++;
+            while (i < encoding.length() && encoding.charAt(i) == '0') {
+                i++;
+            }
+        }
+        return skipSpaces(encoding, i) == encoding.length();
+    }
+
+    private static int skipSpaces(String value, int from) {
+        int i = from;
+        while (i < value.length() && value.charAt(i) <= ' ') {
+            i++;
+        }
+        return i;
+    }
+
+    private static DoubleSupplier processCpuLoad() {
+        OperatingSystemMXBean os = ManagementFactory.getOperatingSystemMXBean();
+        if (os instanceof com.sun.management.OperatingSystemMXBean) {
+            return ((com.sun.management.OperatingSystemMXBean) os)::getProcessCpuLoad;
+        }
+        return () -> -1;
+    }
+}
@@ -31,6 +31,7 @@ public class EmbeddedJettyFactory implements EmbeddedServerFactory {
     private final JettyServerFactory serverFactory;
     private ThreadPool threadPool;
     private boolean httpOnly = true;
+    private boolean virtualThreads = false;
 
     public EmbeddedJettyFactory() {
         this.serverFactory = new JettyServer();
@@ -47,7 +48,9 @@ public class EmbeddedJettyFactory implements EmbeddedServerFactory {
         MatcherFilter matcherFilter = new MatcherFilter(routeMatcher, staticFilesConfiguration, exceptionMapper, false, hasMultipleHandler);
         matcherFilter.init(null);
 
-        return new EmbeddedJettyServer(serverFactory, httpOnly, matcherFilter).withThreadPool(threadPool);
+        return new EmbeddedJettyServer(serverFactory, httpOnly, matcherFilter)
+            .withThreadPool(threadPool)
+            .withVirtualThreads(virtualThreads);
     }
 
     /**
@@ -62,6 +65,18 @@ public class EmbeddedJettyFactory implements EmbeddedServerFactory {
         return this;
     }
 
+    /**
+     * Sets whether requests are handled on virtual threads (Java 21+) instead of the threads of the pool.
+     * Selectors and acceptors still run on the threads of the pool.
+     *
+     * @param virtualThreads true to use virtual threads
+     * @return Builder pattern - returns this instance
+     */
+    public EmbeddedJettyFactory withVirtualThreads(boolean virtualThreads) {
+        this.virtualThreads = virtualThreads;
+        return this;
+    }
+
     public EmbeddedJettyFactory withHttpOnly(boolean httpOnly) {
         this.httpOnly = httpOnly;
         return this;
@@ -18,25 +18,24 @@ package spark.embeddedserver.jetty;
 
 import java.io.IOException;
 import java.net.ServerSocket;
+import java.util.Collections;
 import java.util.EnumSet;
-import java.util.List;
 import java.util.Map;
 import java.util.Optional;
 
 import jakarta.servlet.DispatcherType;
-import org.eclipse.jetty.compression.server.CompressionConfig;
-import org.eclipse.jetty.compression.server.CompressionHandler;
 import org.eclipse.jetty.ee10.servlet.ServletContextHandler;
 import org.eclipse.jetty.ee10.servlet.SessionHandler;
-import org.eclipse.jetty.http.HttpMethod;
 import org.eclipse.jetty.server.Connector;
 import org.eclipse.jetty.server.Handler;
 import org.eclipse.jetty.server.Server;
 import org.eclipse.jetty.server.ServerConnector;
+import org.eclipse.jetty.util.VirtualThreads;
 import org.eclipse.jetty.util.thread.ThreadPool;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
+import spark.compression.CompressionPolicy;
 import spark.embeddedserver.EmbeddedServer;
 import spark.embeddedserver.jetty.websocket.WebSocketHandlerWrapper;
 import spark.embeddedserver.jetty.websocket.WebSocketServletContextHandlerFactory;
@@ -65,6 +64,10 @@ public class EmbeddedJettyServer implements EmbeddedServer {
 
     private ThreadPool threadPool = null;
     private boolean trustForwardHeaders = true; // true by default
+    private boolean virtualThreads = false;
+    private VirtualThreadsExecutor virtualThreadsExecutor;
+    private CompressionPolicy compressionPolicy = CompressionPolicy.create();
+    private Map<String, CompressionPolicy> pathCompressionPolicies = Collections.emptyMap();
 
     public EmbeddedJettyServer(JettyServerFactory serverFactory, boolean httpOnly, MatcherFilter matcherFilter) {
         this.serverFactory = serverFactory;
@@ -85,6 +88,22 @@ public class EmbeddedJettyServer implements EmbeddedServer {
         this.trustForwardHeaders = trust;
     }
 
+    @Override
+    public void virtualThreads(boolean enabled) {
+        this.virtualThreads = enabled;
+    }
+
+    @Override
+    public void nonBlockingWrites(boolean enabled) {
+        matcherFilter.setNonBlockingWrites(enabled);
+    }
+
+    @Override
+    public void compression(CompressionPolicy policy, Map<String, CompressionPolicy> pathPolicies) {
+        this.compressionPolicy = policy;
+        this.pathCompressionPolicies = pathPolicies;
+    }
+
     /**
      * {@inheritDoc}
      */
@@ -115,6 +134,10 @@ public class EmbeddedJettyServer implements EmbeddedServer {
             server = serverFactory.create(threadPool);
         }
 
+        if (virtualThreads) {
+            configureVirtualThreads(server.getThreadPool());
+        }
+
         ServerConnector connector;
 
         if (sslStores == null) {
@@ -150,9 +173,11 @@ public class EmbeddedJettyServer implements EmbeddedServer {
         sessionHandler.getSessionCookieConfig().setHttpOnly(httpOnly);
         servletContextHandler.setSessionHandler(sessionHandler);
 
-        servletContextHandler.addFilter(matcherFilter, "/*", EnumSet.allOf(DispatcherType.class));
+        // Async is supported for the routes returning a CompletionStage
+        servletContextHandler.addFilter(matcherFilter, "/*", EnumSet.allOf(DispatcherType.class))
+            .setAsyncSupported(true);
 
-        server.setHandler(configureCompression(servletContextHandler));
+        server.setHandler(JettyCompression.wrap(servletContextHandler, compressionPolicy, pathCompressionPolicies));
 
         logger.info("== {} has ignited ...", NAME);
         if (hasCustomizedConnectors) {
@@ -195,7 +220,37 @@ public class EmbeddedJettyServer implements EmbeddedServer {
         if (server == null) {
             return 0;
         }
-        return server.getThreadPool().getThreads() - server.getThreadPool().getIdleThreads();
+        int active = server.getThreadPool().getThreads() - server.getThreadPool().getIdleThreads();
+        if (virtualThreadsExecutor != null) {
+            // Requests are handled on virtual threads, the pool only runs selectors, acceptors, etc.
+            active += virtualThreadsExecutor.activeCount();
+        }
+        return active;
+    }
+
+    /**
+     * Sets whether requests are handled on virtual threads (Java 21+). Selectors and acceptors
+     * still run on the (platform) threads of the thread pool.
+     *
+     * @param virtualThreads true to use virtual threads
+     * @return Builder pattern - returns this instance
+     */
+    public EmbeddedJettyServer withVirtualThreads(boolean virtualThreads) {
+        this.virtualThreads = virtualThreads;
+        return this;
+    }
+
+    private void configureVirtualThreads(ThreadPool pool) {
+        if (!VirtualThreads.areSupported()) {
+            logger.warn("Virtual threads are not supported by this JVM (Java 21+ is required), using the thread pool");
+        } else if (!(pool instanceof VirtualThreads.Configurable)) {
+            logger.warn("The thread pool {} can't use virtual threads, using the thread pool", pool);
+        } else {
+            virtualThreadsExecutor =
+                new VirtualThreadsExecutor(VirtualThreads.getNamedVirtualThreadsExecutor(NAME.toLowerCase() + "-virtual-"));
+            ((VirtualThreads.Configurable) pool).setVirtualThreadsExecutor(virtualThreadsExecutor);
+            logger.info(">> Handling requests on virtual threads");
+        }
     }
 
     /**
@@ -208,21 +263,4 @@ public class EmbeddedJettyServer implements EmbeddedServer {
         this.threadPool = threadPool;
         return this;
     }
-
-    private static Handler configureCompression(final Handler handler) {
-        final CompressionConfig config = CompressionConfig.builder()
-            .compressIncludeEncoding("br")
-            .compressIncludeEncoding("gzip")
-            .compressIncludeEncoding("zstd")
-            .compressIncludeMethod(HttpMethod.GET.asString())
-            .compressIncludeMethod(HttpMethod.POST.asString())
-            .compressIncludeMethod(HttpMethod.PUT.asString())
-            .compressPreferredEncodings(List.of("br", "zstd", "gzip"))
-            .compressIncludePath("/")
-            .build();
-        final CompressionHandler compressHandler = new CompressionHandler();
-        compressHandler.setHandler(handler);
-        compressHandler.putConfiguration("/", config);
-        return compressHandler;
-    }
 }
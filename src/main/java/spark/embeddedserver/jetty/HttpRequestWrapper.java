@@ -69,7 +69,7 @@ public class HttpRequestWrapper extends HttpServletRequestWrapper {
     }
 
     private void cacheInputStream() throws IOException {
-        cachedBytes = IOUtils.toByteArray(super.getInputStream());
+        cachedBytes = IOUtils.toByteArray(super.getInputStream(), getContentLengthLong());
     }
 
     private class CachedServletInputStream extends ServletInputStream {
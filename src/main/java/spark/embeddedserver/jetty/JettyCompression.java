@@ -0,0 +1,136 @@
+/*
+ * Copyright 2011- Per Wendel
+ *
+ *  Licensed under the Apache License, Version 2.0 (the "License");
+ *  you may not use this file except in compliance with the License.
+ *  You may obtain a copy of the License at
+ *
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package spark.embeddedserver.jetty;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.ServiceLoader;
+import java.util.regex.Pattern;
+
+import org.eclipse.jetty.compression.Compression;
+import org.eclipse.jetty.compression.server.CompressionConfig;
+import org.eclipse.jetty.compression.server.CompressionHandler;
+import org.eclipse.jetty.server.Handler;
+
+import spark.compression.CompressionPolicy;
+
+/**
+ * Configures Jetty's compression handler from the compression policies, wrapped to adapt the compression to the
+ * load if the policy is adaptive.
+ */
+final class JettyCompression {
+
+    private JettyCompression() {
+    }
+
+    /**
+     * Wraps a handler with a compression handler
+     *
+     * @param handler      the handler
+     * @param policy       the server wide policy
+     * @param pathPolicies the policies of the paths (route paths)
+     * @return the compression handler, or the handler itself if nothing is compressed
+     */
+    static Handler wrap(Handler handler, CompressionPolicy policy, Map<String, CompressionPolicy> pathPolicies) {
+        if (!policy.isEnabled() && pathPolicies.isEmpty()) {
+            return handler;
+        }
+        CompressionHandler compressionHandler = new CompressionHandler();
+        compressionHandler.setHandler(handler);
+        List<Compression> compressions = compressions(policy);
+        compressions.forEach(compressionHandler::putCompression);
+        compressionHandler.putConfiguration("/", config(policy, "/"));
+        pathPolicies.forEach((path, pathPolicy) -> {
+            String pathSpec = pathSpec(path);
+            compressionHandler.putConfiguration(pathSpec, config(pathPolicy, pathSpec));
+        });
+        if (policy.getAdaptive() != null) {
+            return new AdaptiveCompressionHandler(compressionHandler, policy.getAdaptive(), compressions);
+        }
+        return compressionHandler;
+    }
+
+    /**
+     * @return the compressions with the minimum size and levels of the policy, empty to let the handler discover
+     * them with their defaults (unless they are adapted to the load)
+     */
+    static List<Compression> compressions(CompressionPolicy policy) {
+        List<Compression> compressions = new ArrayList<>();
+        if (policy.getMinSize() < 0 && policy.getLevels().isEmpty() && policy.getAdaptive() == null) {
+            return compressions;
+        }
+        for (Compression compression : ServiceLoader.load(Compression.class)) {
+            if (policy.getMinSize() >= 0) {
+                compression.setMinCompressSize(policy.getMinSize());
+            }
+            Integer level = policy.getLevels().get(compression.getEncodingName());
+            if (level != null) {
+                compression.getDefaultEncoderConfig().setCompressionLevel(level);
+            }
+            compressions.add(compression);
+        }
+        return compressions;
+    }
+
+    private static CompressionConfig config(CompressionPolicy policy, String pathSpec) {
+        CompressionConfig.Builder builder = CompressionConfig.builder();
+        if (!policy.isEnabled()) {
+            return builder.compressExcludePath(pathSpec).build();
+        }
+        policy.getEncodings().forEach(builder::compressIncludeEncoding);
+        policy.getMethods().forEach(builder::compressIncludeMethod);
+        policy.getIncludedMimeTypes().forEach(builder::compressIncludeMimeType);
+        policy.getExcludedMimeTypes().forEach(builder::compressExcludeMimeType);
+        if (policy.getIncludedPaths().isEmpty()) {
+            builder.compressIncludePath(pathSpec);
+        } else {
+            policy.getIncludedPaths().forEach(path -> builder.compressIncludePath(pathSpec(path)));
+        }
+        policy.getExcludedPaths().forEach(path -> builder.compressExcludePath(pathSpec(path)));
+        return builder.compressPreferredEncodings(policy.getEncodings()).build();
+    }
+
+    /**
+     * Converts a route path to a Jetty path spec: the paths without parameters nor wildcards but a trailing one
+     * ("/api/*") are servlet path specs, the others are regular expressions.
+     *
+     * @param path the route path ("/api/*", "/files/:name")
+     * @return the path spec
+     */
+    static String pathSpec(String path) {
+        if (path.indexOf(':') < 0 && path.indexOf('*') == (path.endsWith("/*") ? path.length() - 1 : -1)) {
+            return path;
+        }
+        StringBuilder regex = new StringBuilder("^");
+        String[] segments = path.split("/", -1);
+        for (int i = 0; i < segments.length; i++) {
+            String segment = segments[i];
+            if (i > 0) {
+                regex.append('/');
+            }
+            if (segment.startsWith(":")) {
+                regex.append("[^/]+");
+            } else if (segment.equals("*")) {
+                regex.append(".*");
+            } else if (!segment.isEmpty()) {
+                regex.append(Pattern.quote(segment));
+            }
+        }
+        return regex.append('$').toString();
+    }
+}
@@ -0,0 +1,61 @@
+/*
+ * Copyright 2011- Per Wendel
+ *
+ *  Licensed under the Apache License, Version 2.0 (the "License");
+ *  you may not use this file except in compliance with the License.
+ *  You may obtain a copy of the License at
+ *
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package spark.embeddedserver.jetty;
+
+import java.util.concurrent.Executor;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Runs the tasks given by Jetty (ie: handling requests) on virtual threads, counting the ones running,
+ * since virtual threads are not part of the thread pool.
+ */
+final class VirtualThreadsExecutor implements Executor {
+
+    private final Executor executor;
+    private final AtomicInteger active = new AtomicInteger();
+
+    /**
+     * @param executor the executor creating the virtual threads
+     */
+    VirtualThreadsExecutor(Executor executor) {
+        this.executor = executor;
+    }
+
+    @Override
+    public void execute(Runnable task) {
+        executor.execute(() -> {
+            active.incrementAndGet();
+            try {
+                task.run();
+            } finally {
+                active.decrementAndGet();
+            }
+        });
+    }
+
+    /**
+     * @return the number of tasks currently running on virtual threads
+     */
+    int activeCount() {
+        return active.get();
+    }
+
+    @Override
+    public String toString() {
+        return "VirtualThreadsExecutor{" + executor + "}";
+    }
+}
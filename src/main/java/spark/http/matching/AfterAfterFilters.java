@@ -33,9 +33,10 @@ final class AfterAfterFilters {
 
         Object content = context.body().get();
 
-        List<RouteMatch> matchSet = context.routeMatcher().findMultiple(HttpMethod.afterafter,
-                                                                               context.uri(),
-                                                                               context.acceptType());
+        List<RouteMatch> matchSet = context.routeMatcher().findFilters(HttpMethod.afterafter,
+                                                                       context.routeMatch(),
+                                                                       context.path(),
+                                                                       context.acceptType());
 
         for (RouteMatch filterMatch : matchSet) {
             Object filterTarget = filterMatch.getTarget();
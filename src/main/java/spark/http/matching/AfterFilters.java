@@ -33,9 +33,10 @@ final class AfterFilters {
 
         Object content = context.body().get();
 
-        List<RouteMatch> matchSet = context.routeMatcher().findMultiple(HttpMethod.after,
-                                                                        context.uri(),
-                                                                        context.acceptType());
+        List<RouteMatch> matchSet = context.routeMatcher().findFilters(HttpMethod.after,
+                                                                       context.routeMatch(),
+                                                                       context.path(),
+                                                                       context.acceptType());
 
         for (RouteMatch filterMatch : matchSet) {
             Object filterTarget = filterMatch.getTarget();
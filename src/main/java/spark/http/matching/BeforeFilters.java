@@ -18,9 +18,11 @@ package spark.http.matching;
 
 import java.util.List;
 
+import spark.Access;
 import spark.FilterImpl;
 import spark.Request;
 import spark.RequestResponseFactory;
+import spark.RouteImpl;
 import spark.route.HttpMethod;
 import spark.routematch.RouteMatch;
 
@@ -32,17 +34,32 @@ final class BeforeFilters {
     static void execute(RouteContext context) throws Exception {
         Object content = context.body().get();
 
-        List<RouteMatch> matchSet = context.routeMatcher().findMultiple(HttpMethod.before, context.uri(), context.acceptType());
+        // The body size is checked before the filters, which may read the body too
+        long maxBodySize = maxBodySize(context.routeMatch());
+        if (maxBodySize > 0 && context.httpRequest().getContentLengthLong() > maxBodySize) {
+            throw Access.payloadTooLarge();
+        }
+
+        List<RouteMatch> matchSet = context.routeMatcher().findFilters(HttpMethod.before,
+                                                                       context.routeMatch(),
+                                                                       context.path(),
+                                                                       context.acceptType());
 
         for (RouteMatch filterMatch : matchSet) {
             Object filterTarget = filterMatch.getTarget();
 
             if (filterTarget instanceof FilterImpl) {
-                Request request = RequestResponseFactory.create(filterMatch, context.httpRequest());
+                // The request is created once, then only its match is changed for the next filters
+                if (context.requestWrapper().getDelegate() == null) {
+                    Request request = RequestResponseFactory.create(filterMatch, context.httpRequest());
+                    Access.maxBodySize(request, maxBodySize);
+                    context.requestWrapper().setDelegate(request);
+                } else {
+                    context.requestWrapper().changeMatch(filterMatch);
+                }
 
                 FilterImpl filter = (FilterImpl) filterTarget;
 
-                context.requestWrapper().setDelegate(request);
                 context.responseWrapper().setDelegate(context.response());
 
                 filter.handle(context.requestWrapper(), context.responseWrapper());
@@ -58,4 +75,9 @@ final class BeforeFilters {
         context.body().set(content);
     }
 
+    private static long maxBodySize(RouteMatch match) {
+        Object target = match != null ? match.getTarget() : null;
+        return target instanceof RouteImpl ? ((RouteImpl) target).getMaxBodySize() : 0;
+    }
+
 }
@@ -16,13 +16,19 @@
  */
 package spark.http.matching;
 
+import java.io.File;
 import java.io.IOException;
 import java.io.OutputStream;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
 
+import jakarta.servlet.AsyncContext;
 import jakarta.servlet.http.HttpServletRequest;
 import jakarta.servlet.http.HttpServletResponse;
 import spark.Response;
 import spark.serialization.SerializerChain;
+import spark.staticfiles.MimeType;
 import spark.utils.CompressUtil;
 
 /**
@@ -76,24 +82,88 @@ final class Body {
                             HttpServletRequest httpRequest, Response.Compression compression) throws IOException {
 
         if (!httpResponse.isCommitted()) {
-            if (httpResponse.getContentType() == null && !useEmpty) {
-                //CS304 Issue link: https://github.com/perwendel/spark/issues/911
-                String type = Configuration.getDefaultcontentype();
-                httpResponse.setContentType(type);
-            }
+            boolean compress = compression != null && compression != Response.Compression.NONE;
+            setFileHeaders(httpResponse, !compress || compression.isCompressed());
+            setDefaultContentType(httpResponse);
 
-            // Check if GZIP is wanted/accepted and in that case handle that
-            // OutputStream responseStream = CompressUtil.checkAndWrap(httpRequest, httpResponse, compression);
-            final OutputStream responseStream = httpResponse.getOutputStream();
+            // Compressed (or marked as compressed) by Spark, the Content-Encoding keeps the server from compressing it
+            final OutputStream responseStream = compress
+                    ? CompressUtil.checkAndWrap(httpRequest, httpResponse, compression)
+                    : httpResponse.getOutputStream();
 
             // Serialize the body to output stream
-            serializerChain.process(httpResponse.getOutputStream(), content);
+            serializerChain.process(responseStream, content);
 
             responseStream.flush(); // needed for GZIP stream. Not sure where the HTTP response actually gets cleaned up
             responseStream.close(); // needed for GZIP
         }
     }
 
+    /**
+     * Writes the body with non-blocking I/O, if it is an input stream, bytes or a file: the request is switched to
+     * asynchronous mode and completed once the body is written, so a slow client does not hold a thread.
+     *
+     * @param httpRequest  received request
+     * @param httpResponse response to the request
+     * @return true if the body is being written, false if it has to be serialized (see serializeTo)
+     * @throws IOException throw exception if there is Input/Output error.
+     */
+    public boolean writeNonBlocking(HttpServletRequest httpRequest, HttpServletResponse httpResponse) throws IOException {
+        // Already asynchronous requests (ie: asynchronous routes) may have a timeout which would cut the response
+        if (httpResponse.isCommitted()
+                || !NonBlockingWriter.canWrite(content)
+                || !httpRequest.isAsyncSupported()
+                || httpRequest.isAsyncStarted()) {
+            return false;
+        }
+        setFileHeaders(httpResponse, true);
+        setDefaultContentType(httpResponse);
+        NonBlockingWriter writer = NonBlockingWriter.of(content);
+
+        AsyncContext asyncContext = httpRequest.startAsync();
+        asyncContext.setTimeout(0);
+        writer.start(asyncContext, httpResponse.getOutputStream());
+        return true;
+    }
+
+    /**
+     * Sets the Content-Length of a file body (a Path, File or FileChannel), unless Spark compresses it, and its
+     * content type unless the route set one.
+     */
+    private void setFileHeaders(HttpServletResponse httpResponse, boolean withLength) throws IOException {
+        long length;
+        String type;
+        if (content instanceof Path) {
+            Path path = (Path) content;
+            length = Files.size(path);
+            type = MimeType.fromFileName(String.valueOf(path.getFileName()));
+        } else if (content instanceof File) {
+            File file = (File) content;
+            length = Files.size(file.toPath());
+            type = MimeType.fromFileName(file.getName());
+        } else if (content instanceof FileChannel) {
+            FileChannel channel = (FileChannel) content;
+            length = Math.max(0, channel.size() - channel.position());
+            type = "application/octet-stream";
+        } else {
+            return;
+        }
+        if (withLength) {
+            httpResponse.setContentLengthLong(length);
+        }
+        if (httpResponse.getContentType() == null) {
+            httpResponse.setContentType(type);
+        }
+    }
+
+    private void setDefaultContentType(HttpServletResponse httpResponse) {
+        if (httpResponse.getContentType() == null && !useEmpty) {
+            //CS304 Issue link: https://github.com/perwendel/spark/issues/911
+            String type = Configuration.getDefaultcontentype();
+            httpResponse.setContentType(type);
+        }
+    }
+
     /**
      * CS304 Issue link: https://github.com/perwendel/spark/issues/1022
      * setter for boolean useEmpty
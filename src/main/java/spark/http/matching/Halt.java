@@ -17,6 +17,7 @@
 package spark.http.matching;
 
 import jakarta.servlet.http.HttpServletResponse;
+import spark.Access;
 import spark.HaltException;
 
 /**
@@ -34,6 +35,9 @@ public class Halt {
     public static void modify(HttpServletResponse httpResponse, Body body, HaltException halt) {
 
         httpResponse.setStatus(halt.statusCode());
+        if (Access.closeConnection(halt)) {
+            httpResponse.setHeader("Connection", "close");
+        }
 
         if (halt.body() != null) {
             body.set(halt.body());
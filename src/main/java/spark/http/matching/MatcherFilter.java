@@ -18,8 +18,19 @@ package spark.http.matching;
 
 import java.io.IOException;
 import java.net.URLDecoder;
-import java.util.List;
-
+import java.nio.charset.StandardCharsets;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.CompletionStage;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+import jakarta.servlet.AsyncContext;
+import jakarta.servlet.AsyncEvent;
+import jakarta.servlet.AsyncListener;
 import jakarta.servlet.Filter;
 import jakarta.servlet.FilterChain;
 import jakarta.servlet.FilterConfig;
@@ -34,7 +45,6 @@ import spark.HaltException;
 import spark.RequestResponseFactory;
 import spark.Response;
 import spark.route.HttpMethod;
-import spark.routematch.RouteMatch;
 import spark.serialization.SerializerChain;
 import spark.staticfiles.StaticFilesConfiguration;
 
@@ -59,6 +69,8 @@ public class MatcherFilter implements Filter {
     private final boolean externalContainer;
     private final boolean hasOtherHandlers;
 
+    private volatile boolean nonBlockingWrites;
+
     /**
      * Constructor
      *
@@ -82,6 +94,16 @@ public class MatcherFilter implements Filter {
         this.serializerChain = new SerializerChain();
     }
 
+    /**
+     * Sets whether input stream and bytes bodies are written with non-blocking I/O (the request is then
+     * switched to asynchronous mode), so that slow clients do not hold a thread while they are downloading.
+     *
+     * @param nonBlockingWrites true to write with non-blocking I/O
+     */
+    public void setNonBlockingWrites(boolean nonBlockingWrites) {
+        this.nonBlockingWrites = nonBlockingWrites;
+    }
+
     @Override
     public void init(FilterConfig config) {
         //
@@ -111,18 +133,15 @@ public class MatcherFilter implements Filter {
 
         String acceptType = httpRequest.getHeader(ACCEPT_TYPE_REQUEST_MIME_HEADER);
         String uri = httpRequest.getRequestURI();
-        uri = URLDecoder.decode(uri, "UTF-8");
-
-        List<RouteMatch> routes = routeMatcher.findAll();
-        String firstAcceptType = null;
-        for (RouteMatch rm : routes) {
-            if (rm.getMatchUri().equals(uri)) {
-                firstAcceptType = rm.getAcceptType();
-                break;
-            }
+        if (uri.indexOf('%') >= 0 || uri.indexOf('+') >= 0) {
+            uri = URLDecoder.decode(uri, StandardCharsets.UTF_8);
         }
-        if ("*/*".equals(acceptType) && firstAcceptType != null) {
-            acceptType = firstAcceptType;
+
+        if ("*/*".equals(acceptType)) {
+            String firstAcceptType = routeMatcher.firstAcceptType(uri);
+            if (firstAcceptType != null) {
+                acceptType = firstAcceptType;
+            }
         }
 
         final Body body = Body.create();
@@ -142,26 +161,70 @@ public class MatcherFilter implements Filter {
                 .withResponse(response)
                 .withHttpMethod(httpMethod);
 
+        boolean routed = false;
+        try {
+            BeforeFilters.execute(context);
+            Routes.execute(context);
+            routed = true;
+        } catch (HaltException halt) {
+
+            Halt.modify(httpResponse, body, halt);
+
+        } catch (Exception generalException) {
+
+            GeneralError.modify(
+                    httpRequest,
+                    httpResponse,
+                    body,
+                    requestWrapper,
+                    responseWrapper,
+                    exceptionMapper,
+                    generalException);
+
+        }
+
+        if (routed && context.asyncResult() != null) {
+            if (httpRequest.isAsyncSupported()) {
+                startAsync(context);
+                return;
+            }
+            routed = awaitResult(context);
+        }
+
+        finish(context, routed, chain);
+    }
+
+    /**
+     * Runs the after filters (if the route completed), sets the not found response if nothing was
+     * mapped, runs the afterafter filters and serializes the body.
+     */
+    private void finish(RouteContext context, boolean routed, FilterChain chain) throws IOException, ServletException {
+        final HttpServletRequest httpRequest = context.httpRequest();
+        final HttpServletResponse httpResponse = context.response().raw();
+        final Body body = context.body();
+        final RequestWrapper requestWrapper = context.requestWrapper();
+        final ResponseWrapper responseWrapper = context.responseWrapper();
+
         try {
-            try {
-                BeforeFilters.execute(context);
-                Routes.execute(context);
-                AfterFilters.execute(context);
-            } catch (HaltException halt) {
+            if (routed) {
+                try {
+                    AfterFilters.execute(context);
+                } catch (HaltException halt) {
 
-                Halt.modify(httpResponse, body, halt);
+                    Halt.modify(httpResponse, body, halt);
 
-            } catch (Exception generalException) {
+                } catch (Exception generalException) {
 
-                GeneralError.modify(
-                        httpRequest,
-                        httpResponse,
-                        body,
-                        requestWrapper,
-                        responseWrapper,
-                        exceptionMapper,
-                        generalException);
+                    GeneralError.modify(
+                            httpRequest,
+                            httpResponse,
+                            body,
+                            requestWrapper,
+                            responseWrapper,
+                            exceptionMapper,
+                            generalException);
 
+                }
             }
 
             // If redirected and content is null set to empty string to not throw NotConsumedException
@@ -171,10 +234,10 @@ public class MatcherFilter implements Filter {
 
             if (body.notSet()) {
                 int returnStatus;
-                if(httpMethodStr.equals("put") && response.status() == 200) returnStatus = HttpServletResponse.SC_METHOD_NOT_ALLOWED;
+                if(context.httpMethod() == HttpMethod.put && context.response().status() == 200) returnStatus = HttpServletResponse.SC_METHOD_NOT_ALLOWED;
                 else returnStatus = HttpServletResponse.SC_NOT_FOUND;
                 LOG.info("The requested route [{}] has not been mapped in Spark for {}: [{}]",
-                         uri, ACCEPT_TYPE_REQUEST_MIME_HEADER, acceptType);
+                         context.uri(), ACCEPT_TYPE_REQUEST_MIME_HEADER, context.acceptType());
                 httpResponse.setStatus(returnStatus);
 
                 if (CustomErrorPages.existsFor(returnStatus)) {
@@ -186,27 +249,191 @@ public class MatcherFilter implements Filter {
                 }
             }
         } finally {
-            try {
-                AfterAfterFilters.execute(context);
-            } catch (Exception generalException) {
-                GeneralError.modify(
-                        httpRequest,
-                        httpResponse,
-                        body,
-                        requestWrapper,
-                        responseWrapper,
-                        exceptionMapper,
-                        generalException);
-            }
+            afterAfter(context);
         }
 
         if (body.isSet()) {
-            body.serializeTo(httpResponse, serializerChain, httpRequest, responseWrapper.compression);
+            // The bodies compressed by Spark are written by the serializers
+            if (!nonBlockingWrites
+                    || responseWrapper.compression != Response.Compression.NONE
+                    || !body.writeNonBlocking(httpRequest, httpResponse)) {
+                body.serializeTo(httpResponse, serializerChain, httpRequest, responseWrapper.compression);
+            }
         } else if (chain != null) {
             chain.doFilter(httpRequest, httpResponse);
         }
     }
 
+    private void afterAfter(RouteContext context) {
+        try {
+            AfterAfterFilters.execute(context);
+        } catch (Exception generalException) {
+            GeneralError.modify(
+                    context.httpRequest(),
+                    context.response().raw(),
+                    context.body(),
+                    context.requestWrapper(),
+                    context.responseWrapper(),
+                    exceptionMapper,
+                    generalException);
+        }
+    }
+
+    /**
+     * Releases the container thread until the stage returned by the route completes (or times out),
+     * the rest of the request is then handled by the thread completing the stage.
+     */
+    private void startAsync(RouteContext context) {
+        final CompletionStage<?> result = context.asyncResult();
+        final AtomicBoolean done = new AtomicBoolean();
+        final HttpServletRequest httpRequest = context.httpRequest();
+        // The route may have started it already (ie: to use non-blocking I/O)
+        final AsyncContext asyncContext = httpRequest.isAsyncStarted()
+                ? httpRequest.getAsyncContext() : httpRequest.startAsync();
+
+        // Explicitly, so the default of the container is not used
+        asyncContext.setTimeout(context.asyncRoute().getAsyncTimeout());
+        asyncContext.addListener(new AsyncListener() {
+            @Override
+            public void onTimeout(AsyncEvent event) {
+                if (done.compareAndSet(false, true)) {
+                    cancel(result);
+                    timedOut(context, asyncContext.getTimeout());
+                    complete(context, asyncContext, false);
+                }
+            }
+
+            @Override
+            public void onError(AsyncEvent event) {
+                if (done.compareAndSet(false, true)) {
+                    LOG.debug("Asynchronous request failed", event.getThrowable());
+                    cancel(result);
+                    // The response can't be written anymore, but the afterafter filters are still run
+                    try {
+                        afterAfter(context);
+                    } finally {
+                        asyncContext.complete();
+                    }
+                }
+            }
+
+            @Override
+            public void onComplete(AsyncEvent event) {
+                //
+            }
+
+            @Override
+            public void onStartAsync(AsyncEvent event) {
+                //
+            }
+        });
+
+        result.whenComplete((element, failure) -> {
+            if (done.compareAndSet(false, true)) {
+                complete(context, asyncContext, resume(context, element, failure));
+            }
+        });
+    }
+
+    private void complete(RouteContext context, AsyncContext asyncContext, boolean routed) {
+        try {
+            finish(context, routed, null);
+        } catch (Exception e) {
+            LOG.error("Failed to complete asynchronous request [{}]", context.uri(), e);
+        } finally {
+            asyncContext.complete();
+        }
+    }
+
+    /**
+     * Blocks until the stage returned by the route completes, used when the container does not
+     * support asynchronous requests.
+     */
+    private boolean awaitResult(RouteContext context) {
+        CompletableFuture<?> result = context.asyncResult().toCompletableFuture();
+        long timeout = context.asyncRoute().getAsyncTimeout();
+
+        Object element = null;
+        Throwable failure = null;
+        try {
+            element = timeout > 0 ? result.get(timeout, TimeUnit.MILLISECONDS) : result.get();
+        } catch (TimeoutException e) {
+            cancel(result);
+            timedOut(context, timeout);
+            return false;
+        } catch (ExecutionException e) {
+            failure = e.getCause();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            failure = e;
+        }
+        return resume(context, element, failure);
+    }
+
+    /**
+     * Sets the content from the result of the stage returned by the route, or maps its failure.
+     *
+     * @return true if the route completed (ie: the after filters should be run)
+     */
+    private boolean resume(RouteContext context, Object element, Throwable failure) {
+        try {
+            if (failure != null) {
+                throw unwrap(failure);
+            }
+            Routes.complete(context, element);
+            return true;
+        } catch (HaltException halt) {
+
+            Halt.modify(context.response().raw(), context.body(), halt);
+
+        } catch (Exception generalException) {
+
+            GeneralError.modify(
+                    context.httpRequest(),
+                    context.response().raw(),
+                    context.body(),
+                    context.requestWrapper(),
+                    context.responseWrapper(),
+                    exceptionMapper,
+                    generalException);
+
+        }
+        return false;
+    }
+
+    private void timedOut(RouteContext context, long timeout) {
+        TimeoutException timeoutException = new TimeoutException(
+                "The route [" + context.uri() + "] did not complete within " + timeout + "ms");
+
+        if (exceptionMapper.getHandler(timeoutException) != null) {
+            GeneralError.modify(
+                    context.httpRequest(),
+                    context.response().raw(),
+                    context.body(),
+                    context.requestWrapper(),
+                    context.responseWrapper(),
+                    exceptionMapper,
+                    timeoutException);
+        } else {
+            LOG.warn(timeoutException.getMessage());
+            context.response().raw().setStatus(HttpServletResponse.SC_SERVICE_UNAVAILABLE);
+            context.body().set("");
+        }
+    }
+
+    private static void cancel(CompletionStage<?> result) {
+        if (result instanceof Future) {
+            ((Future<?>) result).cancel(true);
+        }
+    }
+
+    private static Exception unwrap(Throwable failure) {
+        if (failure instanceof CompletionException && failure.getCause() != null) {
+            failure = failure.getCause();
+        }
+        return failure instanceof Exception ? (Exception) failure : new CompletionException(failure);
+    }
+
     private String getHttpMethodFrom(HttpServletRequest httpRequest) {
         String method = httpRequest.getHeader(HTTP_METHOD_OVERRIDE_HEADER);
 
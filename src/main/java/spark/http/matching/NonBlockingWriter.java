@@ -0,0 +1,212 @@
+/*
+ * Copyright 2011- Per Wendel
+ *
+ *  Licensed under the Apache License, Version 2.0 (the "License");
+ *  you may not use this file except in compliance with the License.
+ *  You may obtain a copy of the License at
+ *
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package spark.http.matching;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+
+import jakarta.servlet.AsyncContext;
+import jakarta.servlet.ServletOutputStream;
+import jakarta.servlet.WriteListener;
+import spark.utils.BufferPool;
+
+/**
+ * Writes a body with non-blocking I/O: data is only written when the output can take it, so a slow
+ * client does not hold a thread for the whole response. Input streams, files (a {@link Path}, {@link File} or
+ * {@link FileChannel}, from its position) and direct buffers are copied with a pooled buffer.
+ * The asynchronous request is completed once the body has been written (or writing failed).
+ */
+final class NonBlockingWriter implements WriteListener {
+
+    private static final org.slf4j.Logger LOG = org.slf4j.LoggerFactory.getLogger(NonBlockingWriter.class);
+
+    private AsyncContext asyncContext;
+    private ServletOutputStream output;
+
+    private byte[] bytes;
+    private int offset;
+    private int length;
+    private InputStream input;
+    private FileChannel channel;
+    private ByteBuffer direct;
+    private byte[] buffer;
+    private ByteBuffer wrappedBuffer;
+    private boolean done;
+
+    private NonBlockingWriter(Object content) throws IOException {
+        if (content instanceof InputStream) {
+            this.input = (InputStream) content;
+        } else if (content instanceof FileChannel) {
+            this.channel = (FileChannel) content;
+        } else if (content instanceof Path || content instanceof File) {
+            Path path = content instanceof File ? ((File) content).toPath() : (Path) content;
+            this.channel = FileChannel.open(path, StandardOpenOption.READ);
+        } else if (content instanceof ByteBuffer) {
+            ByteBuffer byteBuffer = (ByteBuffer) content;
+            if (byteBuffer.hasArray()) {
+                bytes(byteBuffer.array(), byteBuffer.arrayOffset() + byteBuffer.position(), byteBuffer.remaining());
+            } else {
+                this.direct = byteBuffer;
+            }
+        } else {
+            byte[] array = (byte[]) content;
+            bytes(array, 0, array.length);
+        }
+    }
+
+    private void bytes(byte[] bytes, int offset, int length) {
+        this.bytes = bytes;
+        this.offset = offset;
+        this.length = length;
+    }
+
+    /**
+     * @param content the body
+     * @return true if the body can be written with non-blocking I/O
+     */
+    static boolean canWrite(Object content) {
+        return content instanceof InputStream
+                || content instanceof byte[]
+                || content instanceof ByteBuffer
+                || content instanceof Path
+                || content instanceof File
+                || content instanceof FileChannel;
+    }
+
+    /**
+     * Creates the writer of a body, opening it if it is a file.
+     *
+     * @param content the body (see {@link #canWrite(Object)})
+     * @return the writer
+     * @throws IOException when the file can't be opened
+     */
+    static NonBlockingWriter of(Object content) throws IOException {
+        return new NonBlockingWriter(content);
+    }
+
+    /**
+     * Starts writing the body, the asynchronous request is completed when it is written.
+     *
+     * @param asyncContext the context of the asynchronous request
+     * @param output       the output stream of the response
+     */
+    void start(AsyncContext asyncContext, ServletOutputStream output) {
+        this.asyncContext = asyncContext;
+        this.output = output;
+        output.setWriteListener(this);
+    }
+
+    @Override
+    public synchronized void onWritePossible() throws IOException {
+        if (done) {
+            return;
+        }
+        try {
+            // Each write completes before isReady() returns true again, the last one included
+            while (output.isReady()) {
+                if (bytes != null) {
+                    output.write(bytes, offset, length);
+                    bytes = null;
+                } else if (input == null && channel == null && direct == null) {
+                    complete();
+                    return;
+                } else {
+                    if (buffer == null) {
+                        buffer = BufferPool.acquire();
+                    }
+                    int read = read();
+                    if (read < 0) {
+                        release();
+                    } else {
+                        output.write(buffer, 0, read);
+                    }
+                }
+            }
+        } catch (IOException | RuntimeException e) {
+            onError(e);
+        }
+    }
+
+    /**
+     * Reads the next chunk of the body into the buffer
+     *
+     * @return the number of bytes read, -1 at the end of the body
+     */
+    private int read() throws IOException {
+        if (input != null) {
+            return input.read(buffer);
+        }
+        if (channel != null) {
+            if (wrappedBuffer == null) {
+                wrappedBuffer = ByteBuffer.wrap(buffer);
+            }
+            wrappedBuffer.clear();
+            return channel.read(wrappedBuffer);
+        }
+        if (!direct.hasRemaining()) {
+            return -1;
+        }
+        int count = Math.min(buffer.length, direct.remaining());
+        direct.get(buffer, 0, count);
+        return count;
+    }
+
+    @Override
+    public synchronized void onError(Throwable failure) {
+        if (done) {
+            return;
+        }
+        LOG.debug("Failed to write the response of [{}]", asyncContext.getRequest(), failure);
+        complete();
+    }
+
+    private void complete() {
+        done = true;
+        release();
+        asyncContext.complete();
+    }
+
+    private void release() {
+        if (input != null) {
+            try {
+                input.close();
+            } catch (IOException e) {
+                LOG.debug("Failed to close the body", e);
+            }
+            input = null;
+        }
+        if (channel != null) {
+            try {
+                channel.close();
+            } catch (IOException e) {
+                LOG.debug("Failed to close the body", e);
+            }
+            channel = null;
+        }
+        direct = null;
+        if (buffer != null) {
+            BufferPool.release(buffer);
+            buffer = null;
+            wrappedBuffer = null;
+        }
+    }
+}
@@ -16,6 +16,8 @@
  */
 package spark.http.matching;
 
+import java.io.IOException;
+import java.io.InputStream;
 import java.util.Map;
 import java.util.Set;
 
@@ -98,6 +100,11 @@ final class RequestWrapper extends Request {
         return delegate.bodyAsBytes();
     }
 
+    @Override
+    public InputStream bodyStream() throws IOException {
+        return delegate.bodyStream();
+    }
+
     @Override
     public int contentLength() {
         return delegate.contentLength();
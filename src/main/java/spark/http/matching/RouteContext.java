@@ -16,10 +16,15 @@
  */
 package spark.http.matching;
 
+import java.util.concurrent.CompletionStage;
+
 import jakarta.servlet.http.HttpServletRequest;
 import spark.Response;
+import spark.RouteImpl;
 import spark.route.HttpMethod;
+import spark.route.PathSegments;
 import spark.route.Routes;
+import spark.routematch.RouteMatch;
 
 /**
  * Holds the parameters needed in the Before filters, Routes and After filters execution.
@@ -36,12 +41,17 @@ final class RouteContext {
     private Routes routeMatcher;
     private HttpServletRequest httpRequest;
     private String uri;
+    private PathSegments path;
+    private RouteMatch routeMatch;
+    private boolean routeMatched;
     private String acceptType;
     private Body body;
     private RequestWrapper requestWrapper;
     private ResponseWrapper responseWrapper;
     private Response response;
     private HttpMethod httpMethod;
+    private RouteImpl asyncRoute;
+    private CompletionStage<?> asyncResult;
 
     private RouteContext() {
         // hidden
@@ -78,6 +88,8 @@ final class RouteContext {
 
     public RouteContext withUri(String uri) {
         this.uri = uri;
+        this.path = null;
+        this.routeMatched = false;
         return this;
     }
 
@@ -96,6 +108,18 @@ final class RouteContext {
         return this;
     }
 
+    /**
+     * Sets the result of a route which completes asynchronously
+     *
+     * @param route  the route
+     * @param result the stage returned by the route
+     */
+    public RouteContext withAsyncResult(RouteImpl route, CompletionStage<?> result) {
+        this.asyncRoute = route;
+        this.asyncResult = result;
+        return this;
+    }
+
     public HttpServletRequest httpRequest() {
         return httpRequest;
     }
@@ -104,6 +128,27 @@ final class RouteContext {
         return uri;
     }
 
+    /**
+     * @return the uri split in segments (it is split only once per request)
+     */
+    public PathSegments path() {
+        if (path == null) {
+            path = PathSegments.of(uri);
+        }
+        return path;
+    }
+
+    /**
+     * @return the route matching the request or null if none (it is resolved only once per request)
+     */
+    public RouteMatch routeMatch() {
+        if (!routeMatched) {
+            routeMatch = routeMatcher.find(httpMethod, path(), acceptType);
+            routeMatched = true;
+        }
+        return routeMatch;
+    }
+
     public String acceptType() {
         return acceptType;
     }
@@ -128,4 +173,18 @@ final class RouteContext {
         return httpMethod;
     }
 
+    /**
+     * @return the route which completes asynchronously, null if the request is handled synchronously
+     */
+    public RouteImpl asyncRoute() {
+        return asyncRoute;
+    }
+
+    /**
+     * @return the stage returned by the route, null if the request is handled synchronously
+     */
+    public CompletionStage<?> asyncResult() {
+        return asyncResult;
+    }
+
 }
@@ -16,6 +16,8 @@
  */
 package spark.http.matching;
 
+import java.util.concurrent.CompletionStage;
+
 import spark.Request;
 import spark.RequestResponseFactory;
 import spark.RouteImpl;
@@ -31,7 +33,7 @@ final class Routes {
 
         Object content = context.body().get();
 
-        RouteMatch match = context.routeMatcher().find(context.httpMethod(), context.uri(), context.acceptType());
+        RouteMatch match = context.routeMatch();
 
         Object target = null;
         if (match != null) {
@@ -39,45 +41,59 @@ final class Routes {
         } else if (context.httpMethod() == HttpMethod.head && context.body().notSet()) {
             // See if get is mapped to provide default head mapping
             content =
-                    context.routeMatcher().find(HttpMethod.get, context.uri(), context.acceptType())
+                    context.routeMatcher().find(HttpMethod.get, context.path(), context.acceptType())
                             != null ? "" : null;
         }
 
-        if (target != null) {
-            Object result = null;
-
-            if (target instanceof RouteImpl) {
-                RouteImpl route = ((RouteImpl) target);
+        if (target instanceof RouteImpl) {
+            RouteImpl route = ((RouteImpl) target);
 
-                if (context.requestWrapper().getDelegate() == null) {
-                    Request request = RequestResponseFactory.create(match, context.httpRequest());
-                    context.requestWrapper().setDelegate(request);
-                } else {
-                    context.requestWrapper().changeMatch(match);
-                }
+            if (context.requestWrapper().getDelegate() == null) {
+                Request request = RequestResponseFactory.create(match, context.httpRequest());
+                context.requestWrapper().setDelegate(request);
+            } else {
+                context.requestWrapper().changeMatch(match);
+            }
 
-                context.responseWrapper().setDelegate(context.response());
+            context.responseWrapper().setDelegate(context.response());
 
-                Object element = route.handle(context.requestWrapper(), context.responseWrapper());
-                if (!context.responseWrapper().isRedirected()) {
-                	result = route.render(element);
-                }
+            Object element = route.handle(context.requestWrapper(), context.responseWrapper());
+            if (element instanceof CompletionStage) {
+                // The content is set when the stage completes (see complete)
+                context.withAsyncResult(route, (CompletionStage<?>) element);
+                return;
             }
+            content = render(context, route, element, content);
+        }
 
-            if (result != null) {
-                content = result;
+        context.body().set(content);
+    }
 
-                if (content instanceof String) {
-                    String contentStr = (String) content;
+    /**
+     * Sets the content from the result of the stage returned by an asynchronous route.
+     */
+    static void complete(RouteContext context, Object element) throws Exception {
+        context.body().set(render(context, context.asyncRoute(), element, context.body().get()));
+    }
+
+    private static Object render(RouteContext context, RouteImpl route, Object element, Object content) throws Exception {
+        if (context.responseWrapper().isRedirected()) {
+            return content;
+        }
+
+        Object result = route.render(element);
+        if (result != null) {
+            content = result;
 
-                    if (!contentStr.equals("")) {
-                        context.responseWrapper().body(contentStr);
-                    }
+            if (content instanceof String) {
+                String contentStr = (String) content;
+
+                if (!contentStr.equals("")) {
+                    context.responseWrapper().body(contentStr);
                 }
             }
         }
-
-        context.body().set(content);
+        return content;
     }
 
 }
@@ -17,6 +17,7 @@
 //
 package spark.resource;
 
+import java.io.Closeable;
 import java.net.MalformedURLException;
 
 import jakarta.servlet.RequestDispatcher;
@@ -26,7 +27,7 @@ import jakarta.servlet.http.HttpServletRequest;
  * Abstract class providing functionality for finding resources based on an Http Servlet request.
  * Code snippets copied from Eclipse Jetty source. Modifications made by Per Wendel.
  */
-public abstract class AbstractResourceHandler {
+public abstract class AbstractResourceHandler implements Closeable {
 
     protected static final String SLASH = "/";
 
@@ -38,6 +39,16 @@ public abstract class AbstractResourceHandler {
      * @throws java.net.MalformedURLException thrown when malformed URL.
      */
     public AbstractFileResolvingResource getResource(HttpServletRequest request) throws MalformedURLException {
+        return getResource(getPathInContext(request));
+    }
+
+    /**
+     * Gets the path of the resource requested
+     *
+     * @param request the servlet request
+     * @return the path in the context (servlet path and path info)
+     */
+    public static String getPathInContext(HttpServletRequest request) {
         String servletPath;
         String pathInfo;
         boolean included = request.getAttribute(RequestDispatcher.INCLUDE_REQUEST_URI) != null;
@@ -55,8 +66,7 @@ public abstract class AbstractResourceHandler {
             pathInfo = request.getPathInfo();
         }
 
-        String pathInContext = addPaths(servletPath, pathInfo);
-        return getResource(pathInContext);
+        return addPaths(servletPath, pathInfo);
     }
 
     /**
@@ -68,6 +78,13 @@ public abstract class AbstractResourceHandler {
      */
     protected abstract AbstractFileResolvingResource getResource(String path) throws MalformedURLException;
 
+    /**
+     * Releases the resources of the handler (ie: the watcher of its folder)
+     */
+    @Override
+    public void close() {
+    }
+
     /**
      * Add two URI path segments.
      * Handles null and empty paths, path and query params (eg ?a=b or
@@ -34,6 +34,7 @@ public class ClassPathResourceHandler extends AbstractResourceHandler {
 
     private final String baseResource;
     private String welcomeFile;
+    private final ResourceIndex index;
 
     /**
      * Constructor
@@ -55,6 +56,7 @@ public class ClassPathResourceHandler extends AbstractResourceHandler {
 
         this.baseResource = baseResource;
         this.welcomeFile = welcomeFile;
+        this.index = ResourceIndex.forClassPath(baseResource, welcomeFile);
     }
 
     @Override
@@ -66,6 +68,11 @@ public class ClassPathResourceHandler extends AbstractResourceHandler {
         try {
             path = UriPath.canonical(path);
 
+            ResourceIndex index = this.index;
+            if (index != null && index.isActive()) {
+                return path != null ? index.get(path) : null;
+            }
+
             final String addedPath = addPaths(baseResource, path);
 
             ClassPathResource resource = new ClassPathResource(addedPath);
@@ -96,4 +103,11 @@ public class ClassPathResourceHandler extends AbstractResourceHandler {
         return null;
     }
 
+    @Override
+    public void close() {
+        if (index != null) {
+            index.close();
+        }
+    }
+
 }
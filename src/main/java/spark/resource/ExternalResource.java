@@ -87,6 +87,17 @@ public class ExternalResource extends AbstractFileResolvingResource {
         return file.getPath();
     }
 
+    /**
+     * This implementation creates an ExternalResource, applying the given path
+     * relative to the folder of the underlying file of this descriptor.
+     *
+     * @return the resource.
+     */
+    @Override
+    public Resource createRelative(String relativePath) {
+        return new ExternalResource(new File(file.getParentFile(), relativePath).getPath());
+    }
+
     /**
      * This implementation returns the name of the file that this external
      * resource refers to.
@@ -34,6 +34,7 @@ public class ExternalResourceHandler extends AbstractResourceHandler {
 
     private final String baseResource;
     private String welcomeFile;
+    private final ResourceIndex index;
 
     /**
      * Constructor
@@ -54,6 +55,7 @@ public class ExternalResourceHandler extends AbstractResourceHandler {
         Assert.notNull(baseResource);
         this.baseResource = baseResource;
         this.welcomeFile = welcomeFile;
+        this.index = ResourceIndex.forExternal(baseResource, welcomeFile);
     }
 
     @Override
@@ -65,6 +67,11 @@ public class ExternalResourceHandler extends AbstractResourceHandler {
         try {
             path = UriPath.canonical(path);
 
+            ResourceIndex index = this.index;
+            if (index != null && index.isActive()) {
+                return path != null ? index.get(path) : null;
+            }
+
             final String addedPath = addPaths(baseResource, path);
 
             ExternalResource resource = new ExternalResource(addedPath);
@@ -95,4 +102,11 @@ public class ExternalResourceHandler extends AbstractResourceHandler {
         return null;
     }
 
+    @Override
+    public void close() {
+        if (index != null) {
+            index.close();
+        }
+    }
+
 }
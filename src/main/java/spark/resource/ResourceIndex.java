@@ -0,0 +1,324 @@
+/*
+ * Copyright 2011- Per Wendel
+ *
+ *  Licensed under the Apache License, Version 2.0 (the "License");
+ *  you may not use this file except in compliance with the License.
+ *  You may obtain a copy of the License at
+ *
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package spark.resource;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.net.JarURLConnection;
+import java.net.URISyntaxException;
+import java.net.URL;
+import java.nio.file.ClosedWatchServiceException;
+import java.nio.file.FileSystemLoopException;
+import java.nio.file.FileSystems;
+import java.nio.file.FileVisitOption;
+import java.nio.file.FileVisitResult;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.SimpleFileVisitor;
+import java.nio.file.StandardWatchEventKinds;
+import java.nio.file.WatchKey;
+import java.nio.file.WatchService;
+import java.nio.file.attribute.BasicFileAttributes;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.EnumSet;
+import java.util.Enumeration;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Function;
+import java.util.jar.JarEntry;
+import java.util.jar.JarFile;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import spark.utils.ClassUtils;
+import spark.utils.ResourceUtils;
+
+/**
+ * An index of the files of a static files folder, by the request path serving them, so resolving a request does not
+ * touch the file system (or the jars): requests for other paths (ie: routes) are answered with a single lookup.
+ * <p>
+ * The folders are watched for changes, the index being rebuilt when files are created or deleted.
+ */
+final class ResourceIndex implements Closeable {
+
+    private static final Logger LOG = LoggerFactory.getLogger(ResourceIndex.class);
+
+    // Waits for more changes before rebuilding the index (ie: when a whole folder is copied)
+    private static final long REFRESH_DELAY_MILLIS = 50;
+
+    private final List<Path> folders;
+    private final List<URL> jars;
+    private final String welcomeFile;
+    private final boolean welcomeWithoutSlash;
+    private final Function<String, AbstractFileResolvingResource> resources;
+
+    private volatile Map<String, AbstractFileResolvingResource> index;
+    private volatile boolean active = true;
+    private volatile WatchService watcher;
+
+    private ResourceIndex(List<Path> folders,
+                          List<URL> jars,
+                          String welcomeFile,
+                          boolean welcomeWithoutSlash,
+                          Function<String, AbstractFileResolvingResource> resources) throws IOException {
+        this.folders = folders;
+        this.jars = jars;
+        this.welcomeFile = welcomeFile;
+        this.welcomeWithoutSlash = welcomeWithoutSlash;
+        this.resources = resources;
+        this.index = build();
+    }
+
+    /**
+     * Indexes a folder of the class path (in folders or jars)
+     *
+     * @param baseResource the folder in the class path
+     * @param welcomeFile  the file served for the folders, null if none
+     * @return the index, or null if the folder can't be indexed (then resources have to be looked up)
+     */
+    static ResourceIndex forClassPath(String baseResource, String welcomeFile) {
+        String folder = baseResource.startsWith("/") ? baseResource.substring(1) : baseResource;
+        try {
+            List<Path> folders = new ArrayList<>();
+            List<URL> jars = new ArrayList<>();
+            Enumeration<URL> urls = ClassUtils.getDefaultClassLoader().getResources(folder);
+            while (urls.hasMoreElements()) {
+                URL url = urls.nextElement();
+                if (ResourceUtils.isFileURL(url)) {
+                    folders.add(Paths.get(url.toURI()));
+                } else if (ResourceUtils.isJarURL(url)) {
+                    jars.add(url);
+                } else {
+                    return null;
+                }
+            }
+            if (folders.isEmpty() && jars.isEmpty()) {
+                return null;
+            }
+            ResourceIndex index = new ResourceIndex(folders, jars, welcomeFile, false,
+                                                    path -> new ClassPathResource(
+                                                            AbstractResourceHandler.addPaths(baseResource, path)));
+            index.watch();
+            return index;
+        } catch (IOException | URISyntaxException | RuntimeException e) {
+            LOG.warn("Static files in class path folder {} can't be indexed", baseResource, e);
+            return null;
+        }
+    }
+
+    /**
+     * Indexes an external folder
+     *
+     * @param baseResource the folder
+     * @param welcomeFile  the file served for the folders, null if none
+     * @return the index, or null if the folder can't be indexed (then resources have to be looked up)
+     */
+    static ResourceIndex forExternal(String baseResource, String welcomeFile) {
+        try {
+            ResourceIndex index = new ResourceIndex(Collections.singletonList(Paths.get(baseResource)),
+                                                    Collections.emptyList(), welcomeFile, true,
+                                                    path -> new ExternalResource(
+                                                            AbstractResourceHandler.addPaths(baseResource, path)));
+            index.watch();
+            return index;
+        } catch (IOException | RuntimeException e) {
+            LOG.warn("Static files in folder {} can't be indexed", baseResource, e);
+            return null;
+        }
+    }
+
+    /**
+     * @return false if the index is not maintained anymore (watching the folders failed)
+     */
+    boolean isActive() {
+        return active;
+    }
+
+    /**
+     * @param path the canonical path of the request
+     * @return the resource serving the path, null if there is none
+     */
+    AbstractFileResolvingResource get(String path) {
+        return index.get(path);
+    }
+
+    /**
+     * @return the number of paths indexed
+     */
+    int size() {
+        return index.size();
+    }
+
+    /**
+     * Rebuilds the index
+     *
+     * @throws IOException when a folder can't be read
+     */
+    void refresh() throws IOException {
+        index = build();
+    }
+
+    @Override
+    public void close() {
+        WatchService watcher = this.watcher;
+        if (watcher != null) {
+            this.watcher = null;
+            try {
+                watcher.close();
+            } catch (IOException e) {
+                LOG.debug("Failed to close the watcher of static files", e);
+            }
+        }
+    }
+
+    private Map<String, AbstractFileResolvingResource> build() throws IOException {
+        Map<String, AbstractFileResolvingResource> index = new HashMap<>();
+        // The first folder or jar has precedence, like for the class loader
+        for (Path folder : folders) {
+            walk(folder, false, file -> {
+                String separator = file.getFileSystem().getSeparator();
+                add(index, "/" + folder.relativize(file).toString().replace(separator, "/"));
+            });
+        }
+        for (URL jar : jars) {
+            JarURLConnection connection = (JarURLConnection) jar.openConnection();
+            connection.setUseCaches(false);
+            String prefix = connection.getEntryName() + "/";
+            try (JarFile jarFile = connection.getJarFile()) {
+                Enumeration<JarEntry> entries = jarFile.entries();
+                while (entries.hasMoreElements()) {
+                    JarEntry entry = entries.nextElement();
+                    if (!entry.isDirectory() && entry.getName().startsWith(prefix)) {
+                        add(index, "/" + entry.getName().substring(prefix.length()));
+                    }
+                }
+            }
+        }
+        return index;
+    }
+
+    private void add(Map<String, AbstractFileResolvingResource> index, String file) {
+        add(index, file, file);
+
+        // The folder, served with its welcome file
+        if (welcomeFile != null && file.endsWith("/" + welcomeFile)) {
+            String folder = file.substring(0, file.length() - welcomeFile.length());
+            add(index, folder, file);
+            if (welcomeWithoutSlash && folder.length() > 1) {
+                add(index, folder.substring(0, folder.length() - 1), file);
+            }
+        }
+    }
+
+    private void add(Map<String, AbstractFileResolvingResource> index, String path, String file) {
+        if (!index.containsKey(path)) {
+            try {
+                index.put(path, resources.apply(file));
+            } catch (IllegalArgumentException e) {
+                // Not a valid resource (ie: in META-INF)
+                LOG.debug("Static file {} not indexed: {}", file, e.getMessage());
+            }
+        }
+    }
+
+    private void watch() throws IOException {
+        if (folders.isEmpty()) {
+            return;
+        }
+        WatchService watcher = FileSystems.getDefault().newWatchService();
+        this.watcher = watcher;
+        register(watcher);
+
+        Thread thread = new Thread(() -> {
+            try {
+                while (true) {
+                    WatchKey key = watcher.take();
+                    key.pollEvents();
+                    key.reset();
+                    // Rebuilds once for a batch of changes
+                    while ((key = watcher.poll(REFRESH_DELAY_MILLIS, TimeUnit.MILLISECONDS)) != null) {
+                        key.pollEvents();
+                        key.reset();
+                    }
+                    register(watcher);
+                    refresh();
+                }
+            } catch (ClosedWatchServiceException | InterruptedException e) {
+                // Closed
+            } catch (IOException | RuntimeException e) {
+                LOG.error("Watching static files failed, they are not indexed anymore", e);
+                active = false;
+            }
+        }, "spark-static-files-watcher");
+        thread.setDaemon(true);
+        thread.start();
+    }
+
+    private void register(WatchService watcher) throws IOException {
+        for (Path folder : folders) {
+            walk(folder, true, directory -> directory.register(watcher,
+                                                               StandardWatchEventKinds.ENTRY_CREATE,
+                                                               StandardWatchEventKinds.ENTRY_DELETE,
+                                                               StandardWatchEventKinds.OVERFLOW));
+        }
+    }
+
+    /**
+     * Walks the files (or the directories) of a folder, following the symbolic links (like serving the files does),
+     * but not the ones looping back to a parent directory.
+     */
+    private static void walk(Path folder, boolean directories, PathConsumer consumer) throws IOException {
+        Files.walkFileTree(folder, EnumSet.of(FileVisitOption.FOLLOW_LINKS), Integer.MAX_VALUE,
+                           new SimpleFileVisitor<Path>() {
+                               @Override
+                               public FileVisitResult preVisitDirectory(Path directory, BasicFileAttributes attributes)
+                                       throws IOException {
+                                   if (directories) {
+                                       consumer.accept(directory);
+                                   }
+                                   return FileVisitResult.CONTINUE;
+                               }
+
+                               @Override
+                               public FileVisitResult visitFile(Path file, BasicFileAttributes attributes)
+                                       throws IOException {
+                                   if (!directories && attributes.isRegularFile()) {
+                                       consumer.accept(file);
+                                   }
+                                   return FileVisitResult.CONTINUE;
+                               }
+
+                               @Override
+                               public FileVisitResult visitFileFailed(Path file, IOException e) throws IOException {
+                                   if (e instanceof FileSystemLoopException) {
+                                       LOG.debug("Static files folder {} not indexed: {}", file, e.getMessage());
+                                       return FileVisitResult.CONTINUE;
+                                   }
+                                   throw e;
+                               }
+                           });
+    }
+
+    private interface PathConsumer {
+        void accept(Path path) throws IOException;
+    }
+}
@@ -0,0 +1,93 @@
+/*
+ * Copyright 2011- Per Wendel
+ *
+ *  Licensed under the Apache License, Version 2.0 (the "License");
+ *  you may not use this file except in compliance with the License.
+ *  You may obtain a copy of the License at
+ *
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package spark.route;
+
+import java.util.ArrayList;
+import java.util.EnumMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+import spark.utils.SparkUtils;
+
+/**
+ * The filters (before, after and afterafter) which may apply to the requests matched by a route.
+ * <p>
+ * A chain is computed once per filter type and route path, from the filters which can match a path also
+ * matched by the route (see {@link RouteEntry#mayMatchSamePath(RouteEntry)}), so a request only has to check
+ * the few filters of its chain. Catch-all filters are in every chain (kept in a separate array, which is the
+ * chain itself when no other filter applies).
+ * <p>
+ * Instances are built from a snapshot of the routes and are replaced when the routes change.
+ */
+final class FilterChains {
+
+    private static final HttpMethod[] FILTERS = {HttpMethod.before, HttpMethod.after, HttpMethod.afterafter};
+
+    private final Map<HttpMethod, RouteEntry[]> filters = new EnumMap<>(HttpMethod.class);
+    private final Map<HttpMethod, RouteEntry[]> catchAll = new EnumMap<>(HttpMethod.class);
+    private final Map<HttpMethod, Map<String, RouteEntry[]>> chains = new EnumMap<>(HttpMethod.class);
+
+    /**
+     * @param routes all the routes, in mapping order
+     */
+    FilterChains(List<RouteEntry> routes) {
+        for (HttpMethod method : FILTERS) {
+            List<RouteEntry> all = new ArrayList<>();
+            List<RouteEntry> matchingAll = new ArrayList<>();
+            for (RouteEntry entry : routes) {
+                if (entry.httpMethod == method) {
+                    all.add(entry);
+                    if (entry.path.equals(SparkUtils.ALL_PATHS)) {
+                        matchingAll.add(entry);
+                    }
+                }
+            }
+            filters.put(method, all.toArray(new RouteEntry[0]));
+            catchAll.put(method, matchingAll.toArray(new RouteEntry[0]));
+            chains.put(method, new ConcurrentHashMap<>());
+        }
+    }
+
+    /**
+     * @param filterMethod the filter type (before, after or afterafter)
+     * @param routePath    the path of the route matched by the request
+     * @return the filters which may apply to the request (to be confirmed with {@link RouteEntry#matches}),
+     * in mapping order
+     */
+    RouteEntry[] chain(HttpMethod filterMethod, String routePath) {
+        return chains.get(filterMethod).computeIfAbsent(routePath, path -> build(filterMethod, path));
+    }
+
+    private RouteEntry[] build(HttpMethod filterMethod, String routePath) {
+        RouteEntry route = new RouteEntry();
+        route.path = routePath;
+        route.compile();
+
+        List<RouteEntry> chain = new ArrayList<>();
+        boolean onlyCatchAll = true;
+        for (RouteEntry filter : filters.get(filterMethod)) {
+            if (filter.path.equals(SparkUtils.ALL_PATHS)) {
+                chain.add(filter);
+            } else if (filter.mayMatchSamePath(route)) {
+                chain.add(filter);
+                onlyCatchAll = false;
+            }
+        }
+        return onlyCatchAll ? catchAll.get(filterMethod) : chain.toArray(new RouteEntry[0]);
+    }
+}
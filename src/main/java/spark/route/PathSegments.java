@@ -0,0 +1,139 @@
+/*
+ * Copyright 2011- Per Wendel
+ *
+ *  Licensed under the Apache License, Version 2.0 (the "License");
+ *  you may not use this file except in compliance with the License.
+ *  You may obtain a copy of the License at
+ *
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package spark.route;
+
+import java.util.Arrays;
+
+import spark.utils.urldecoding.UrlDecode;
+
+/**
+ * A requested path split in segments (empty segments are ignored, as in
+ * {@link spark.utils.SparkUtils#convertRouteToList(String)}).
+ * The path is split only once; segments are kept as offsets and only turned into strings when needed,
+ * so the same instance can be used to match all routes and filters of a request (it is not thread-safe).
+ */
+public final class PathSegments {
+
+    private static final int[] NO_BOUNDS = new int[0];
+
+    private final String path;
+    // start and end of each segment
+    private final int[] bounds;
+    private final int size;
+    private String[] segments;
+
+    /**
+     * Splits a path
+     *
+     * @param path the requested path
+     * @return the path segments
+     */
+    public static PathSegments of(String path) {
+        return new PathSegments(path);
+    }
+
+    private PathSegments(String path) {
+        this.path = path;
+
+        int[] found = NO_BOUNDS;
+        int count = 0;
+        int length = path.length();
+        int start = 0;
+        while (start < length) {
+            int end = path.indexOf('/', start);
+            if (end < 0) {
+                end = length;
+            }
+            if (end > start) {
+                if (found.length == count * 2) {
+                    found = Arrays.copyOf(found, Math.max(8, found.length * 2));
+                }
+                found[count * 2] = start;
+                found[count * 2 + 1] = end;
+                count++;
+            }
+            start = end + 1;
+        }
+        this.bounds = found;
+        this.size = count;
+    }
+
+    /**
+     * @return the requested path
+     */
+    public String path() {
+        return path;
+    }
+
+    /**
+     * @return the number of segments
+     */
+    public int size() {
+        return size;
+    }
+
+    /**
+     * @param index the index of the segment
+     * @return the segment
+     */
+    public String get(int index) {
+        if (segments == null) {
+            segments = new String[size];
+        }
+        String segment = segments[index];
+        if (segment == null) {
+            segment = path.substring(bounds[index * 2], bounds[index * 2 + 1]);
+            segments[index] = segment;
+        }
+        return segment;
+    }
+
+    /**
+     * @param index the index of the segment
+     * @return the segment, URL decoded
+     */
+    public String decoded(int index) {
+        int start = bounds[index * 2];
+        return UrlDecode.path(path, start, bounds[index * 2 + 1] - start);
+    }
+
+    /**
+     * @param index the index of the segment (if out of bounds, the segment is considered empty)
+     * @param value the value to compare
+     * @return true if the segment is equal to the value
+     */
+    public boolean segmentEquals(int index, String value) {
+        if (index >= size) {
+            return value.isEmpty();
+        }
+        int start = bounds[index * 2];
+        int length = bounds[index * 2 + 1] - start;
+        return length == value.length() && path.regionMatches(start, value, 0, length);
+    }
+
+    /**
+     * @return true if the path ends with a slash
+     */
+    public boolean endsWithSlash() {
+        return path.endsWith("/");
+    }
+
+    @Override
+    public String toString() {
+        return path;
+    }
+}
@@ -0,0 +1,296 @@
+/*
+ * Copyright 2011- Per Wendel
+ *
+ *  Licensed under the Apache License, Version 2.0 (the "License");
+ *  you may not use this file except in compliance with the License.
+ *  You may obtain a copy of the License at
+ *
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package spark.route;
+
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+import spark.utils.StringUtils;
+
+/**
+ * Matches a path against all the regex routes (<code>~/</code>) of an http method in one pass.
+ * <p>
+ * Java regular expressions can't be merged into a single automaton reporting every expression that matched,
+ * so this works as a prefilter: a literal which must be present in any matching path is extracted from each
+ * expression (ie: "private" from <code>~/private</code>, ".htm" from <code>~/\.html?$</code>) and all of them
+ * are combined in an Aho-Corasick automaton. Scanning the path once gives the routes which can match; only
+ * those are then tested with their compiled pattern. Expressions without a usable literal are always tested.
+ * <p>
+ * Instances are immutable. Candidates are always returned in mapping order.
+ */
+final class RegexRouteSet {
+
+    private static final int MIN_LITERAL_LENGTH = 2;
+
+    private final RouteEntry[] entries;
+    private final int[] alwaysTested;
+
+    // Aho-Corasick automaton (over ASCII chars, case-insensitive)
+    private final int[] charClass = new int[128];
+    private final int classes;
+    private final int[] transitions;
+    private final int[][] outputs;
+
+    /**
+     * Builds a set from the given regex route entries
+     *
+     * @param entries the entries, in mapping order
+     */
+    RegexRouteSet(RouteEntry[] entries) {
+        this.entries = entries;
+
+        List<String> literals = new ArrayList<>(entries.length);
+        List<Integer> always = new ArrayList<>();
+        for (int i = 0; i < entries.length; i++) {
+            String literal = requiredLiteral(StringUtils.cleanRegex(entries[i].path));
+            if (literal == null) {
+                always.add(i);
+            }
+            literals.add(literal);
+        }
+        this.alwaysTested = always.stream().mapToInt(Integer::intValue).toArray();
+
+        // Alphabet: each char used in a literal has its own class, any other char is class 0
+        int nextClass = 1;
+        for (String literal : literals) {
+            if (literal != null) {
+                for (int c = 0; c < literal.length(); c++) {
+                    if (charClass[literal.charAt(c)] == 0) {
+                        charClass[literal.charAt(c)] = nextClass++;
+                    }
+                }
+            }
+        }
+        this.classes = nextClass;
+
+        // Trie (goto function)
+        List<int[]> gotos = new ArrayList<>();
+        List<int[]> outs = new ArrayList<>();
+        gotos.add(newState());
+        outs.add(new int[0]);
+        for (int i = 0; i < literals.size(); i++) {
+            String literal = literals.get(i);
+            if (literal == null) {
+                continue;
+            }
+            int state = 0;
+            for (int c = 0; c < literal.length(); c++) {
+                int cls = charClass[literal.charAt(c)];
+                if (gotos.get(state)[cls] < 0) {
+                    gotos.get(state)[cls] = gotos.size();
+                    gotos.add(newState());
+                    outs.add(new int[0]);
+                }
+                state = gotos.get(state)[cls];
+            }
+            outs.set(state, append(outs.get(state), i));
+        }
+
+        // Failure links, folded into a complete transition table (DFA)
+        int states = gotos.size();
+        this.transitions = new int[states * classes];
+        this.outputs = new int[states][];
+        int[] fail = new int[states];
+        ArrayDeque<Integer> queue = new ArrayDeque<>();
+        for (int cls = 0; cls < classes; cls++) {
+            int next = gotos.get(0)[cls];
+            if (next < 0) {
+                transitions[cls] = 0;
+            } else {
+                transitions[cls] = next;
+                fail[next] = 0;
+                queue.add(next);
+            }
+        }
+        outputs[0] = outs.get(0);
+        while (!queue.isEmpty()) {
+            int state = queue.poll();
+            // A route has a single literal, so outputs of the state and of its failure state are disjoint
+            outputs[state] = concat(outs.get(state), outputs[fail[state]]);
+            for (int cls = 0; cls < classes; cls++) {
+                int next = gotos.get(state)[cls];
+                if (next < 0) {
+                    transitions[state * classes + cls] = transitions[fail[state] * classes + cls];
+                } else {
+                    transitions[state * classes + cls] = next;
+                    fail[next] = transitions[fail[state] * classes + cls];
+                    queue.add(next);
+                }
+            }
+        }
+    }
+
+    /**
+     * @return the entries in this set
+     */
+    RouteEntry[] entries() {
+        return entries;
+    }
+
+    /**
+     * Adds the entries which may match the path (to be confirmed with {@link RouteEntry#matches}).
+     *
+     * @param path       the requested path
+     * @param candidates the list where the candidates are added, in mapping order
+     */
+    void collect(String path, List<RouteEntry> candidates) {
+        if (entries.length == 0) {
+            return;
+        }
+        boolean[] found = new boolean[entries.length];
+        for (int i : alwaysTested) {
+            found[i] = true;
+        }
+        int state = 0;
+        for (int i = 0; i < path.length(); i++) {
+            char c = path.charAt(i);
+            int cls = c < 128 ? charClass[toLowerCase(c)] : 0;
+            state = transitions[state * classes + cls];
+            for (int route : outputs[state]) {
+                found[route] = true;
+            }
+        }
+        for (int i = 0; i < entries.length; i++) {
+            if (found[i]) {
+                candidates.add(entries[i]);
+            }
+        }
+    }
+
+    /**
+     * Finds a literal (lower case) which must be present in any string matched by the expression.
+     * Only top level literals are considered, and the scan stops at the first construct which is not
+     * easy to reason about (groups, classes, escapes other than quoted symbols, etc.).
+     *
+     * @param regex the regular expression
+     * @return the longest literal found or null if none is found
+     */
+    static String requiredLiteral(String regex) {
+        if (hasTopLevelAlternation(regex)) {
+            return null;
+        }
+        String best = "";
+        StringBuilder run = new StringBuilder();
+        for (int i = 0; i < regex.length(); i++) {
+            char c = regex.charAt(i);
+            if (c == '?' || c == '*' || c == '{') {
+                // the previous char is optional
+                if (run.length() > 0) {
+                    run.setLength(run.length() - 1);
+                }
+                best = longest(best, run);
+                run.setLength(0);
+                if (c == '{') {
+                    int end = regex.indexOf('}', i);
+                    if (end < 0) {
+                        break;
+                    }
+                    i = end;
+                }
+            } else if (c == '\\' && i + 1 < regex.length() && isQuotable(regex.charAt(i + 1))) {
+                run.append(toLowerCase(regex.charAt(++i)));
+            } else if (c < 128 && !isMeta(c) && c != '\\') {
+                run.append(toLowerCase(c));
+            } else if (c == '+' || c == '.' || c == '^' || c == '$') {
+                best = longest(best, run);
+                run.setLength(0);
+            } else {
+                // groups, classes, escapes, etc. Stop here.
+                best = longest(best, run);
+                run.setLength(0);
+                break;
+            }
+        }
+        best = longest(best, run);
+        return best.length() >= MIN_LITERAL_LENGTH ? best : null;
+    }
+
+    private static boolean hasTopLevelAlternation(String regex) {
+        int depth = 0;
+        boolean inClass = false;
+        for (int i = 0; i < regex.length(); i++) {
+            char c = regex.charAt(i);
+            if (c == '\\') {
+                if (i + 1 < regex.length() && regex.charAt(i + 1) == 'Q') {
+                    // Quoted sections are not analyzed
+                    return true;
+                }
+                i++;
+            } else if (inClass) {
+                if (c == ']') {
+                    inClass = false;
+                }
+            } else if (c == '[') {
+                inClass = true;
+                // ']' just after '[' or '[^' is a literal
+                if (i + 1 < regex.length() && regex.charAt(i + 1) == '^') {
+                    i++;
+                }
+                if (i + 1 < regex.length() && regex.charAt(i + 1) == ']') {
+                    i++;
+                }
+            } else if (c == '(') {
+                depth++;
+            } else if (c == ')') {
+                depth--;
+            } else if (c == '|' && depth == 0) {
+                return true;
+            }
+        }
+        // Unbalanced expressions (nested classes, etc.) are not analyzed
+        return depth != 0 || inClass;
+    }
+
+    private static boolean isMeta(char c) {
+        return "\\^$.|?*+()[]{}".indexOf(c) >= 0;
+    }
+
+    private static boolean isQuotable(char c) {
+        return c < 128 && !Character.isLetterOrDigit(c);
+    }
+
+    private static char toLowerCase(char c) {
+        return c >= 'A' && c <= 'Z' ? (char) (c + ('a' - 'A')) : c;
+    }
+
+    private static String longest(String best, StringBuilder run) {
+        return run.length() > best.length() ? run.toString() : best;
+    }
+
+    private int[] newState() {
+        int[] state = new int[classes];
+        Arrays.fill(state, -1);
+        return state;
+    }
+
+    private static int[] append(int[] values, int value) {
+        int[] copy = Arrays.copyOf(values, values.length + 1);
+        copy[values.length] = value;
+        return copy;
+    }
+
+    private static int[] concat(int[] first, int[] second) {
+        if (second.length == 0) {
+            return first;
+        }
+        int[] copy = Arrays.copyOf(first, first.length + second.length);
+        System.arraycopy(second, 0, copy, first.length, second.length);
+        return copy;
+    }
+}
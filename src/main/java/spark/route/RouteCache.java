@@ -0,0 +1,145 @@
+/*
+ * Copyright 2011- Per Wendel
+ *
+ *  Licensed under the Apache License, Version 2.0 (the "License");
+ *  you may not use this file except in compliance with the License.
+ *  You may obtain a copy of the License at
+ *
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package spark.route;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.Objects;
+
+import spark.routematch.RouteMatch;
+
+/**
+ * Bounded cache of resolved routes, keyed by http method, path and accept type.
+ * Requests which are not mapped are cached too.
+ * <p>
+ * The least recently used entries are evicted first. The cache is split in segments, each one with its own
+ * lock, so concurrent requests don't all wait for the same one.
+ * Instances are never cleared: when the routes change, a new cache replaces the previous one, so a route
+ * resolved against the previous routes can't be cached in the new one.
+ */
+final class RouteCache {
+
+    // Cached value for requests which are not mapped
+    private static final RouteMatch NOT_MAPPED = new RouteMatch(null, null, null, null);
+
+    private static final int SEGMENTS = 16;
+
+    private final Segment[] segments;
+
+    /**
+     * @param maxEntries the maximum number of entries in the cache
+     */
+    RouteCache(int maxEntries) {
+        int segmentCount = Math.min(SEGMENTS, maxEntries);
+        int perSegment = (maxEntries + segmentCount - 1) / segmentCount;
+        segments = new Segment[segmentCount];
+        for (int i = 0; i < segmentCount; i++) {
+            segments[i] = new Segment(perSegment);
+        }
+    }
+
+    /**
+     * @param key the key
+     * @return the cached match ({@link #isNotMapped(RouteMatch)} for requests which are not mapped)
+     * or null if the key is not in the cache
+     */
+    RouteMatch get(Key key) {
+        Segment segment = segmentFor(key);
+        synchronized (segment) {
+            return segment.get(key);
+        }
+    }
+
+    /**
+     * @param key   the key
+     * @param match the resolved route or null if the request is not mapped
+     */
+    void put(Key key, RouteMatch match) {
+        Segment segment = segmentFor(key);
+        synchronized (segment) {
+            segment.put(key, match != null ? match : NOT_MAPPED);
+        }
+    }
+
+    /**
+     * @param match a cached match
+     * @return true if the match is the cached value for requests which are not mapped
+     */
+    static boolean isNotMapped(RouteMatch match) {
+        return match == NOT_MAPPED;
+    }
+
+    private Segment segmentFor(Key key) {
+        int hash = key.hash ^ (key.hash >>> 16);
+        return segments[(hash & 0x7fffffff) % segments.length];
+    }
+
+    private static final class Segment extends LinkedHashMap<Key, RouteMatch> {
+
+        private static final long serialVersionUID = 1L;
+
+        private final int maxEntries;
+
+        private Segment(int maxEntries) {
+            super(16, 0.75f, true);
+            this.maxEntries = maxEntries;
+        }
+
+        @Override
+        protected boolean removeEldestEntry(Map.Entry<Key, RouteMatch> eldest) {
+            return size() > maxEntries;
+        }
+    }
+
+    /**
+     * Http method, path and accept type of a request
+     */
+    static final class Key {
+
+        private final HttpMethod httpMethod;
+        private final String path;
+        private final String acceptType;
+        private final int hash;
+
+        Key(HttpMethod httpMethod, String path, String acceptType) {
+            this.httpMethod = httpMethod;
+            this.path = path;
+            this.acceptType = acceptType;
+            this.hash = 31 * (31 * httpMethod.hashCode() + path.hashCode()) + Objects.hashCode(acceptType);
+        }
+
+        @Override
+        public int hashCode() {
+            return hash;
+        }
+
+        @Override
+        public boolean equals(Object o) {
+            if (this == o) {
+                return true;
+            }
+            if (!(o instanceof Key)) {
+                return false;
+            }
+            Key other = (Key) o;
+            return hash == other.hash
+                    && httpMethod == other.httpMethod
+                    && path.equals(other.path)
+                    && Objects.equals(acceptType, other.acceptType);
+        }
+    }
+}
@@ -16,14 +16,20 @@
  */
 package spark.route;
 
+import java.io.UnsupportedEncodingException;
+import java.net.URLDecoder;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
 import java.util.List;
-import java.util.regex.Pattern;
+import java.util.Map;
 
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
+import spark.routematch.RoutePattern;
+import spark.utils.MimeParse;
 import spark.utils.SparkUtils;
-import spark.utils.StringUtils;
 
 /**
  * Class that holds information about routes
@@ -38,6 +44,19 @@ class RouteEntry {
     String path;
     String acceptedType;
     Object target;
+    // Position in which the route was mapped (used to keep "first mapped wins" when using the index)
+    long order;
+    // Compiled expression for regex routes (set when the route is mapped)
+    RoutePattern regex;
+    // Parsed accepted type (set when the route is mapped)
+    private MimeParse.MediaRange acceptedRange;
+    // Segments of the path (used to capture params and splat, set when the route is mapped)
+    private String[] segments;
+    // Segments used for matching (the optional slash "/?" is removed)
+    private String[] matchSegments;
+    // Names of the params by segment (null if the segment is not a param, the whole array is null if no params)
+    private String[] paramNames;
+    private boolean hasSplat;
 
     RouteEntry() {
     }
@@ -47,9 +66,114 @@ class RouteEntry {
         this.path = entry.path;
         this.acceptedType = entry.acceptedType;
         this.target = entry.target;
+        this.order = entry.order;
+        this.regex = entry.regex;
+        this.acceptedRange = entry.acceptedRange;
+        this.segments = entry.segments;
+        this.matchSegments = entry.matchSegments;
+        this.paramNames = entry.paramNames;
+        this.hasSplat = entry.hasSplat;
+    }
+
+    /**
+     * Compiles the route path, so it is not done on every request.
+     * Must be called once the path (and accepted type) is set, before the route is matched.
+     */
+    void compile() {
+        if (RoutePattern.isRegex(path)) {
+            regex = RoutePattern.compile(path);
+        }
+        if (acceptedType != null) {
+            acceptedRange = MimeParse.mediaRange(acceptedType);
+        }
+        List<String> pathList = SparkUtils.convertRouteToList(path);
+        segments = pathList.toArray(new String[0]);
+        // Remove optional "/?" when using params
+        if (pathList.indexOf("?") == pathList.size() - 1) {
+            pathList.remove("?");
+        }
+        matchSegments = pathList.toArray(new String[0]);
+
+        String[] names = null;
+        boolean splat = false;
+        for (int i = 0; i < segments.length; i++) {
+            if (SparkUtils.isParam(segments[i])) {
+                if (names == null) {
+                    names = new String[segments.length];
+                }
+                names[i] = segments[i].substring(1).toLowerCase();
+            } else if (SparkUtils.isSplat(segments[i])) {
+                splat = true;
+            }
+        }
+        paramNames = names;
+        hasSplat = splat;
+    }
+
+    /**
+     * @return the segments used for matching (the optional slash "/?" is removed)
+     */
+    String[] matchSegments() {
+        return matchSegments;
+    }
+
+    /**
+     * @param acceptType the accept header
+     * @return true if the accepted type of the route is accepted
+     */
+    boolean accepts(String acceptType) {
+        MimeParse.MediaRange range = acceptedRange;
+        if (range == null || !range.mimeType().equals(acceptedType)) {
+            // Not mapped through Routes (or changed afterwards)
+            range = MimeParse.mediaRange(acceptedType);
+            acceptedRange = range;
+        }
+        return MimeParse.accepts(range, acceptType);
+    }
+
+    /**
+     * Checks if a path can be matched by both this route and the other one (the http method is not checked).
+     * The check is conservative: it can return true for routes which never match the same path
+     * (ie: with regular expressions), but never false for routes which do.
+     *
+     * @param other the other route
+     * @return false if no path can be matched by both routes
+     */
+    boolean mayMatchSamePath(RouteEntry other) {
+        if (regex != null || other.regex != null) {
+            return true;
+        }
+        String[] these = matchSegments();
+        String[] others = other.matchSegments();
+        int theseFixed = fixedSegments(these);
+        int othersFixed = fixedSegments(others);
+        // A path matched by a route has all the segments before its first wildcard or optional segment
+        for (int i = 0; i < Math.min(theseFixed, othersFixed); i++) {
+            if (!SparkUtils.isParam(these[i]) && !SparkUtils.isParam(others[i]) && !these[i].equals(others[i])) {
+                return false;
+            }
+        }
+        if (theseFixed == these.length && othersFixed == others.length) {
+            // Without wildcards or optional segments, the number of segments must be the same
+            return these.length == others.length;
+        }
+        return true;
+    }
+
+    private static int fixedSegments(String[] segments) {
+        for (int i = 0; i < segments.length; i++) {
+            if (segments[i].indexOf('*') >= 0 || segments[i].endsWith("?")) {
+                return i;
+            }
+        }
+        return segments.length;
     }
 
     boolean matches(HttpMethod httpMethod, String path) {
+        return matches(httpMethod, PathSegments.of(path));
+    }
+
+    boolean matches(HttpMethod httpMethod, PathSegments path) {
         if ((httpMethod == HttpMethod.before || httpMethod == HttpMethod.after || httpMethod == HttpMethod.afterafter)
                 && (this.httpMethod == httpMethod)
                 && this.path.equals(SparkUtils.ALL_PATHS)) {
@@ -64,17 +188,68 @@ class RouteEntry {
         return match;
     }
 
+    /**
+     * Captures the params of a path matched by this route
+     *
+     * @param request the requested path
+     * @return the params (keys in lower case, without ':')
+     */
+    Map<String, String> params(PathSegments request) {
+        if (paramNames == null) {
+            return Collections.emptyMap();
+        }
+        Map<String, String> params = new HashMap<>();
+        for (int i = 0; (i < request.size()) && (i < segments.length); i++) {
+            if (paramNames[i] != null) {
+                params.put(paramNames[i], request.decoded(i));
+            }
+        }
+        return Collections.unmodifiableMap(params);
+    }
+
+    /**
+     * Captures the splat (wildcard) params of a path matched by this route
+     *
+     * @param request the requested path
+     * @return the splat params
+     */
+    List<String> splat(PathSegments request) {
+        if (!hasSplat) {
+            return Collections.emptyList();
+        }
+        int nbrOfRequestParts = request.size();
+        int nbrOfMatchedParts = segments.length;
+        boolean sameLength = (nbrOfRequestParts == nbrOfMatchedParts);
+
+        List<String> splat = new ArrayList<>();
+        for (int i = 0; (i < nbrOfRequestParts) && (i < nbrOfMatchedParts); i++) {
+            if (SparkUtils.isSplat(segments[i])) {
+                StringBuilder splatParam = new StringBuilder(request.get(i));
+                if (!sameLength && (i == (nbrOfMatchedParts - 1))) {
+                    for (int j = i + 1; j < nbrOfRequestParts; j++) {
+                        splatParam.append("/");
+                        splatParam.append(request.get(j));
+                    }
+                }
+                try {
+                    splat.add(URLDecoder.decode(splatParam.toString(), "UTF-8"));
+                } catch (UnsupportedEncodingException ignore) {
+                }
+            }
+        }
+        return Collections.unmodifiableList(splat);
+    }
+
     //CS304 Issue link: https://github.com/perwendel/spark/issues/1151
-    private boolean matchPath(String input) { // NOSONAR
+    private boolean matchPath(PathSegments request) { // NOSONAR
+        String input = request.path();
         if (!this.path.endsWith("*") && this.path.equals(input)) {
             // Paths are the same
             return true;
         }
         // Regex expressions should start with '~/'  (end '/' is optional)
-        if(this.path.startsWith("~/")) {
-            String routePath = StringUtils.cleanRegex(this.path);
-            Pattern pattern = Pattern.compile(routePath, Pattern.CASE_INSENSITIVE);
-            return pattern.matcher(input).find();
+        if (regex != null) {
+            return regex.matches(input);
         }
         // Match slashes (return false if they don't match except when it is optional)
         if (!this.path.endsWith("*")
@@ -87,20 +262,13 @@ class RouteEntry {
         }
 
         // check params
-        List<String> thisPathList = SparkUtils.convertRouteToList(this.path);
-        List<String> pathList = SparkUtils.convertRouteToList(input);
-        // Remove optional "/?" when using params
-        if(thisPathList.indexOf("?") == thisPathList.size() - 1) {
-            thisPathList.remove("?");
-        }
-
-        int thisPathSize = thisPathList.size();
-        int pathSize = pathList.size();
+        String[] thisPathList = matchSegments;
+        int thisPathSize = thisPathList.length;
+        int pathSize = request.size();
 
         if (thisPathSize == pathSize) {
             for (int i = 0; i < thisPathSize; i++) {
-                String thisPathPart = thisPathList.get(i);
-                String pathPart = pathList.get(i);
+                String thisPathPart = thisPathList[i];
 
                 if ((i == thisPathSize - 1) && (thisPathPart.equals("*") && this.path.endsWith("*"))) {
                     // wildcard match
@@ -108,7 +276,7 @@ class RouteEntry {
                 }
 
                 if ((!thisPathPart.startsWith(":"))
-                        && !thisPathPart.equals(pathPart)
+                        && !request.segmentEquals(i, thisPathPart)
                         && !thisPathPart.equals("*")) {
                     return false;
                 }
@@ -119,23 +287,21 @@ class RouteEntry {
             // Number of "path parts" not the same
             // check wild card:
             if (this.path.endsWith("*")) {
+                int wildcardPathSize = pathSize;
                 if (pathSize == (thisPathSize - 1) && (input.endsWith("/"))) {
-                    // Hack for making wildcards work with trailing slash
-                    pathList.add("");
-                    pathList.add("");
-                    pathSize += 2;
+                    // Hack for making wildcards work with trailing slash (as if two empty parts were there)
+                    wildcardPathSize += 2;
                 }
 
-                if (thisPathSize < pathSize) {
+                if (thisPathSize < wildcardPathSize) {
                     for (int i = 0; i < thisPathSize; i++) {
-                        String thisPathPart = thisPathList.get(i);
-                        String pathPart = pathList.get(i);
+                        String thisPathPart = thisPathList[i];
                         if (thisPathPart.equals("*") && (i == thisPathSize - 1) && this.path.endsWith("*")) {
                             // wildcard match
                             return true;
                         }
                         if (!thisPathPart.startsWith(":")
-                                && !thisPathPart.equals(pathPart)
+                                && !request.segmentEquals(i, thisPathPart)
                                 && !thisPathPart.equals("*")) {
                             return false;
                         }
@@ -147,12 +313,12 @@ class RouteEntry {
             }
             if (thisPathSize > pathSize) {
                 for (int i = pathSize - 1; i > -1; i--) {
-                    if(!thisPathList.get(i).equals(pathList.get(i))){
+                    if (!request.segmentEquals(i, thisPathList[i])) {
                         return false;
                     }
                 }
                 for (int i = pathSize; i < thisPathSize; i++) {
-                    if (!thisPathList.get(i).endsWith("?")) {
+                    if (!thisPathList[i].endsWith("?")) {
                         return false;
                     }
                 }
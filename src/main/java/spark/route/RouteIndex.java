@@ -0,0 +1,234 @@
+/*
+ * Copyright 2011- Per Wendel
+ *
+ *  Licensed under the Apache License, Version 2.0 (the "License");
+ *  you may not use this file except in compliance with the License.
+ *  You may obtain a copy of the License at
+ *
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package spark.route;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.EnumMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+import spark.routematch.RoutePattern;
+import spark.utils.SparkUtils;
+
+/**
+ * Compiled index of the route entries, used to avoid testing every registered route on each request.
+ * <p>
+ * Routes are stored per {@link HttpMethod} in a trie keyed by path segment, with separate branches for
+ * literals, <code>:param</code> and <code>*</code> (splat). Walking the trie with the requested path gives
+ * a small set of candidates in O(path depth), which are then confirmed with {@link RouteEntry#matches}, so
+ * the optional slash (<code>/?</code>), optional params and trailing slash rules are exactly the same as
+ * when scanning the whole list. Candidates are returned in the order they were mapped (first mapped wins).
+ * <p>
+ * Regex routes (<code>~/</code>) can't be placed in the trie: they are prefiltered with a {@link RegexRouteSet}.
+ * Catch-all filters are always candidates.
+ * <p>
+ * Lookups are lock free. Insertions must be serialized by the caller (see {@link Routes}).
+ */
+final class RouteIndex {
+
+    private static final Comparator<RouteEntry> MAPPING_ORDER = Comparator.comparingLong(entry -> entry.order);
+    private static final RouteEntry[] NONE = new RouteEntry[0];
+
+    private final Map<HttpMethod, MethodIndex> methods = new EnumMap<>(HttpMethod.class);
+
+    /**
+     * Builds an index containing all the given entries
+     *
+     * @param entries the route entries (in mapping order)
+     * @return the index
+     */
+    static RouteIndex build(Iterable<RouteEntry> entries) {
+        RouteIndex index = new RouteIndex();
+        for (RouteEntry entry : entries) {
+            index.add(entry);
+        }
+        return index;
+    }
+
+    private RouteIndex() {
+        for (HttpMethod method : HttpMethod.values()) {
+            methods.put(method, new MethodIndex());
+        }
+    }
+
+    /**
+     * Adds an entry to the index. Not thread-safe: calls must be serialized.
+     *
+     * @param entry the route entry
+     */
+    void add(RouteEntry entry) {
+        MethodIndex index = methods.get(entry.httpMethod);
+        String path = entry.path;
+
+        if (path.equals(SparkUtils.ALL_PATHS)) {
+            index.catchAll = append(index.catchAll, entry);
+        } else if (RoutePattern.isRegex(path)) {
+            index.regex = append(index.regex, entry);
+        } else {
+            index.exact.merge(path, new RouteEntry[] {entry}, RouteIndex::concat);
+            index.root.insert(entry, entry.matchSegments());
+        }
+    }
+
+    /**
+     * Finds the entries matching the requested path
+     *
+     * @param httpMethod the http method
+     * @param path       the requested path
+     * @return the matching entries, in mapping order
+     */
+    List<RouteEntry> find(HttpMethod httpMethod, PathSegments path) {
+        List<RouteEntry> candidates = new ArrayList<>();
+        MethodIndex index = methods.get(httpMethod);
+
+        Collections.addAll(candidates, index.catchAll);
+        index.regexSet().collect(path.path(), candidates);
+        RouteEntry[] exact = index.exact.get(path.path());
+        if (exact != null) {
+            Collections.addAll(candidates, exact);
+        }
+        index.root.collect(path, 0, candidates);
+
+        candidates.sort(MAPPING_ORDER);
+
+        List<RouteEntry> matchSet = new ArrayList<>(candidates.size());
+        RouteEntry previous = null;
+        for (RouteEntry candidate : candidates) {
+            if (candidate != previous && candidate.matches(httpMethod, path)) {
+                matchSet.add(candidate);
+            }
+            previous = candidate;
+        }
+        return matchSet;
+    }
+
+    private static RouteEntry[] append(RouteEntry[] entries, RouteEntry entry) {
+        RouteEntry[] copy = Arrays.copyOf(entries, entries.length + 1);
+        copy[entries.length] = entry;
+        return copy;
+    }
+
+    private static RouteEntry[] concat(RouteEntry[] first, RouteEntry[] second) {
+        RouteEntry[] copy = Arrays.copyOf(first, first.length + second.length);
+        System.arraycopy(second, 0, copy, first.length, second.length);
+        return copy;
+    }
+
+    /**
+     * Routes of a single http method
+     */
+    private static final class MethodIndex {
+        private final Node root = new Node();
+        private final Map<String, RouteEntry[]> exact = new ConcurrentHashMap<>();
+        private volatile RouteEntry[] regex = NONE;
+        private volatile RouteEntry[] catchAll = NONE;
+        private volatile RegexRouteSet regexSet;
+
+        /**
+         * @return the matcher for the regex routes (built on first use after regex routes are added)
+         */
+        RegexRouteSet regexSet() {
+            RouteEntry[] entries = regex;
+            RegexRouteSet set = regexSet;
+            if (set == null || set.entries() != entries) {
+                set = new RegexRouteSet(entries);
+                regexSet = set;
+            }
+            return set;
+        }
+    }
+
+    /**
+     * A trie node: a position in the route path, after a number of segments
+     */
+    private static final class Node {
+        private final Map<String, Node> literals = new ConcurrentHashMap<>();
+        private volatile Node param;
+        private volatile Node splat;
+
+        // Routes which can end at this node (remaining segments, if any, are optional)
+        private volatile RouteEntry[] complete = NONE;
+        // Routes ending at this node with a wildcard, which may consume the rest of the requested path
+        private volatile RouteEntry[] prefix = NONE;
+
+        void insert(RouteEntry entry, String[] segments) {
+            Node[] nodes = new Node[segments.length + 1];
+            Node node = this;
+            nodes[0] = node;
+            for (int i = 0; i < segments.length; i++) {
+                node = node.child(segments[i]);
+                nodes[i + 1] = node;
+            }
+            if (entry.path.endsWith("*")) {
+                node.prefix = append(node.prefix, entry);
+            }
+            // A route like "/users/:id?" can end either at "/users/:id?" or at "/users"
+            for (int i = segments.length; i >= 0; i--) {
+                if (i < segments.length && !segments[i].endsWith("?")) {
+                    break;
+                }
+                nodes[i].complete = append(nodes[i].complete, entry);
+            }
+        }
+
+        void collect(PathSegments path, int depth, List<RouteEntry> candidates) {
+            Collections.addAll(candidates, prefix);
+            if (depth == path.size()) {
+                Collections.addAll(candidates, complete);
+                // Wildcards also match a trailing slash (ie: "/users/*" matches "/users/")
+                if (param != null) {
+                    Collections.addAll(candidates, param.prefix);
+                }
+                if (splat != null) {
+                    Collections.addAll(candidates, splat.prefix);
+                }
+                return;
+            }
+            String segment = path.get(depth);
+            Node literal = literals.get(segment);
+            if (literal != null) {
+                literal.collect(path, depth + 1, candidates);
+            }
+            if (param != null) {
+                param.collect(path, depth + 1, candidates);
+            }
+            if (splat != null) {
+                splat.collect(path, depth + 1, candidates);
+            }
+        }
+
+        private Node child(String segment) {
+            if (SparkUtils.isParam(segment)) {
+                if (param == null) {
+                    param = new Node();
+                }
+                return param;
+            }
+            if (SparkUtils.isSplat(segment)) {
+                if (splat == null) {
+                    splat = new Node();
+                }
+                return splat;
+            }
+            return literals.computeIfAbsent(segment, key -> new Node());
+        }
+    }
+}
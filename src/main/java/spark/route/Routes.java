@@ -21,7 +21,10 @@ import java.util.Collections;
 import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
-import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.Objects;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
 
 import spark.FilterImpl;
 import spark.RouteImpl;
@@ -40,7 +43,29 @@ public class Routes {
     private static final org.slf4j.Logger LOG = org.slf4j.LoggerFactory.getLogger(Routes.class);
     private static final char SINGLE_QUOTE = '\'';
 
-    private final CopyOnWriteArrayList<RouteEntry> routes;
+    // Guarded by this. Readers use the published snapshot or the index.
+    private final List<RouteEntry> routes;
+    // Read-only copy of the routes, built lazily (null when it needs to be rebuilt)
+    private volatile List<RouteEntry> snapshot;
+    // Compiled index of the routes, built lazily (null when it needs to be rebuilt)
+    private volatile RouteIndex index;
+    // First route mapped with each path, built lazily (null when it needs to be rebuilt)
+    private volatile Map<String, RouteEntry> firstByPath;
+    private long mappingOrder = 0;
+
+    // Filters applying to the paths of each route, built lazily (null when they need to be rebuilt)
+    private volatile FilterChains filterChains;
+
+    // Cache of resolved routes (null when disabled), replaced each time the routes change
+    private volatile RouteCache cache;
+    private int cacheMaxEntries = 0;
+    private final LongAdder cacheHits = new LongAdder();
+    private final LongAdder cacheMisses = new LongAdder();
+
+    // Routes added during a batch, published when the batch ends (null when not batching)
+    private List<RouteEntry> batch;
+    private int batchDepth;
+    private long batchStart;
 
     public static Routes create() {
         return new Routes();
@@ -50,7 +75,50 @@ public class Routes {
      * Constructor
      */
     protected Routes() {
-        routes = new CopyOnWriteArrayList<>();
+        routes = new ArrayList<>();
+    }
+
+    /**
+     * Starts a batch: the routes added until {@link #endBatch()} is called are not visible until the batch
+     * ends, then they are all published at once and the index is built only once.
+     * Batches can be nested, the routes are published when the outermost batch ends.
+     */
+    public synchronized void startBatch() {
+        if (batchDepth++ == 0) {
+            batch = new ArrayList<>();
+            batchStart = System.nanoTime();
+        }
+    }
+
+    /**
+     * Ends a batch started with {@link #startBatch()} and publishes its routes
+     *
+     * @throws IllegalStateException if no batch was started
+     */
+    public synchronized void endBatch() {
+        if (batchDepth == 0) {
+            throw new IllegalStateException("No batch was started");
+        }
+        if (--batchDepth > 0) {
+            return;
+        }
+        List<RouteEntry> added = batch;
+        batch = null;
+
+        routes.addAll(added);
+        RouteIndex built = RouteIndex.build(routes);
+        for (RouteEntry entry : added) {
+            logIfConflicting(entry, built);
+        }
+        // Replaced at once, so readers see either none or all of the routes of the batch
+        snapshot = null;
+        firstByPath = null;
+        index = built;
+        invalidateCaches();
+
+        LOG.info("Registered {} routes in {} ms",
+                 added.size(),
+                 TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - batchStart));
     }
 
     /**
@@ -73,6 +141,36 @@ public class Routes {
         add(httpMethod, filter.getPath() , filter.getAcceptType(), filter);
     }
 
+    /**
+     * Enables the cache of resolved routes: the route found for a http method, path and accept type
+     * (or the fact that none was found) is kept until the routes change.
+     * Useful when most of the requests are for a limited set of paths.
+     *
+     * @param maxEntries the maximum number of cached routes (the least recently used are evicted),
+     *                   0 to disable the cache
+     */
+    public synchronized void cache(int maxEntries) {
+        if (maxEntries < 0) {
+            throw new IllegalArgumentException("maxEntries cannot be negative");
+        }
+        cacheMaxEntries = maxEntries;
+        invalidateCaches();
+    }
+
+    /**
+     * @return the number of routes found in the cache
+     */
+    public long cacheHits() {
+        return cacheHits.sum();
+    }
+
+    /**
+     * @return the number of routes not found in the cache (always 0 when it is disabled)
+     */
+    public long cacheMisses() {
+        return cacheMisses.sum();
+    }
+
     /**
      * finds target for a requested route
      *
@@ -82,9 +180,44 @@ public class Routes {
      * @return the target
      */
     public RouteMatch find(HttpMethod httpMethod, String path, String acceptType) {
+        return find(httpMethod, path, null, acceptType);
+    }
+
+    /**
+     * finds target for a requested route
+     *
+     * @param httpMethod the http method
+     * @param path       the path (already split)
+     * @param acceptType the accept type
+     * @return the target
+     */
+    public RouteMatch find(HttpMethod httpMethod, PathSegments path, String acceptType) {
+        return find(httpMethod, path.path(), path, acceptType);
+    }
+
+    // The path is split only if the route is not cached
+    private RouteMatch find(HttpMethod httpMethod, String path, PathSegments segments, String acceptType) {
+        RouteCache current = cache;
+        if (current == null) {
+            return resolve(httpMethod, segments != null ? segments : PathSegments.of(path), acceptType);
+        }
+        RouteCache.Key key = new RouteCache.Key(httpMethod, path, acceptType);
+        RouteMatch match = current.get(key);
+        if (match != null) {
+            cacheHits.increment();
+            return RouteCache.isNotMapped(match) ? null : match;
+        }
+        cacheMisses.increment();
+        match = resolve(httpMethod, segments != null ? segments : PathSegments.of(path), acceptType);
+        // If the routes changed in the meantime, this cache has been replaced and is not used anymore
+        current.put(key, match);
+        return match;
+    }
+
+    private RouteMatch resolve(HttpMethod httpMethod, PathSegments path, String acceptType) {
         List<RouteEntry> routeEntries = this.findTargetsForRequestedRoute(httpMethod, path);
         RouteEntry entry = findTargetWithGivenAcceptType(routeEntries, acceptType);
-        return entry != null ? new RouteMatch(entry.target, entry.path, path, acceptType, httpMethod) : null;
+        return entry != null ? createMatch(entry, path, acceptType, httpMethod) : null;
     }
 
     /**
@@ -96,31 +229,81 @@ public class Routes {
      * @return the targets
      */
     public List<RouteMatch> findMultiple(HttpMethod httpMethod, String path, String acceptType) {
+        return findMultiple(httpMethod, PathSegments.of(path), acceptType);
+    }
+
+    /**
+     * Finds multiple targets for a requested route.
+     *
+     * @param httpMethod the http method
+     * @param path       the route path (already split)
+     * @param acceptType the accept type
+     * @return the targets
+     */
+    public List<RouteMatch> findMultiple(HttpMethod httpMethod, PathSegments path, String acceptType) {
         List<RouteMatch> matchSet = new ArrayList<>();
         List<RouteEntry> routeEntries = findTargetsForRequestedRoute(httpMethod, path);
 
         for (RouteEntry routeEntry : routeEntries) {
             if (acceptType != null) {
-                String bestMatch = MimeParse.bestMatch(Collections.singletonList(routeEntry.acceptedType), acceptType);
-
-                if (routeWithGivenAcceptType(bestMatch)) {
-                    matchSet.add(new RouteMatch(routeEntry.target, routeEntry.path, path, acceptType, httpMethod));
+                if (routeEntry.accepts(acceptType)) {
+                    matchSet.add(createMatch(routeEntry, path, acceptType, httpMethod));
                 }
             } else {
-                matchSet.add(new RouteMatch(routeEntry.target, routeEntry.path, path, acceptType, httpMethod));
+                matchSet.add(createMatch(routeEntry, path, acceptType, httpMethod));
             }
         }
 
         return matchSet;
     }
 
+    /**
+     * Gets the accept type of the first route (or filter) mapped with exactly the given path,
+     * without going through all the routes.
+     *
+     * @param path the path
+     * @return the accept type or null if no route is mapped with this path
+     */
+    public String firstAcceptType(String path) {
+        RouteEntry entry = firstByPath().get(path);
+        return entry != null ? entry.acceptedType : null;
+    }
+
+    /**
+     * Finds the filters for a request, once its route is known: only the filters which can match the paths
+     * of this route are checked (the same filters are found as with {@link #findMultiple}).
+     *
+     * @param filterMethod the filter type (before, after or afterafter)
+     * @param route        the route matched by the request, if null all the filters are checked
+     * @param path         the requested path (already split)
+     * @param acceptType   the accept type
+     * @return the filters
+     */
+    public List<RouteMatch> findFilters(HttpMethod filterMethod, RouteMatch route, PathSegments path, String acceptType) {
+        if (route == null) {
+            return findMultiple(filterMethod, path, acceptType);
+        }
+        RouteEntry[] chain = filterChains().chain(filterMethod, route.getMatchUri());
+        List<RouteMatch> matchSet = null;
+        for (RouteEntry filter : chain) {
+            if (filter.matches(filterMethod, path) && (acceptType == null || filter.accepts(acceptType))) {
+                if (matchSet == null) {
+                    matchSet = new ArrayList<>(chain.length);
+                }
+                matchSet.add(createMatch(filter, path, acceptType, filterMethod));
+            }
+        }
+        // Most requests have no filter of some type
+        return matchSet != null ? matchSet : Collections.emptyList();
+    }
+
     /**
      * @return the targets
      */
     public List<RouteMatch> findAll() {
         List<RouteMatch> matchSet = new ArrayList<>();
 
-        for (RouteEntry routeEntry : routes) {
+        for (RouteEntry routeEntry : snapshot()) {
             matchSet.add(new RouteMatch(routeEntry.target, routeEntry.path, "ALL_ROUTES", routeEntry.acceptedType, routeEntry.httpMethod));
         }
 
@@ -130,8 +313,15 @@ public class Routes {
     /**
      * ¨Clear all routes
      */
-    public void clear() {
+    public synchronized void clear() {
         routes.clear();
+        if (batch != null) {
+            batch.clear();
+        }
+        snapshot = null;
+        firstByPath = null;
+        index = null;
+        invalidateCaches();
     }
 
     /**
@@ -182,7 +372,7 @@ public class Routes {
     // PRIVATE METHODS
     //////////////////////////////////////////////////
 
-    private void add(HttpMethod method, String url, String acceptedType, Object target) {
+    private synchronized void add(HttpMethod method, String url, String acceptedType, Object target) {
         // Aliases for "/"
         if(url.equals("")) { url = "/"; }
         else if(url.equals("/?")) { url = "/"; }
@@ -192,14 +382,44 @@ public class Routes {
         entry.path = url;
         entry.target = target;
         entry.acceptedType = acceptedType;
+        entry.order = mappingOrder++;
+        entry.compile();
         LOG.debug("Adds route: " + entry);
-        if(find(method, url, acceptedType) != null) {
-            // While it is not really an issue, it is better to report it as it might be a mistake,
-            // for example: `/:dir` and `/user` will match the same path: `/user`.
-            LOG.info("Another route already exists with (Method: {}, Path: {}, Accepted Type: {})", method.toString(), url, acceptedType);
+        if (batch != null) {
+            // Published (and checked for conflicts) when the batch ends
+            batch.add(entry);
+            return;
         }
+        RouteIndex current = index();
+        logIfConflicting(entry, current);
         // Adds to end of list
         routes.add(entry);
+        snapshot = null;
+        current.add(entry);
+        Map<String, RouteEntry> first = firstByPath;
+        if (first != null) {
+            first.putIfAbsent(entry.path, entry);
+        }
+        invalidateCaches();
+    }
+
+    // Must be done once the routes are changed
+    private void invalidateCaches() {
+        filterChains = null;
+        cache = cacheMaxEntries > 0 ? new RouteCache(cacheMaxEntries) : null;
+    }
+
+    // While it is not really an issue, it is better to report it as it might be a mistake,
+    // for example: `/:dir` and `/user` will match the same path: `/user`.
+    // Only the candidates given by the index are checked, so it doesn't cost a full find for each added route.
+    private void logIfConflicting(RouteEntry entry, RouteIndex current) {
+        for (RouteEntry other : current.find(entry.httpMethod, PathSegments.of(entry.path))) {
+            if (other.order < entry.order && (entry.acceptedType == null || other.accepts(entry.acceptedType))) {
+                LOG.info("Another route already exists with (Method: {}, Path: {}, Accepted Type: {})",
+                         entry.httpMethod.toString(), entry.path, entry.acceptedType);
+                return;
+            }
+        }
     }
 
     //can be cached? I don't think so.
@@ -215,23 +435,116 @@ public class Routes {
         return acceptedTypes;
     }
 
+    private static boolean haveSameAcceptedType(List<RouteEntry> routes, String acceptedType) {
+        for (RouteEntry routeEntry : routes) {
+            if (!Objects.equals(routeEntry.acceptedType, acceptedType)) {
+                return false;
+            }
+        }
+        return true;
+    }
+
     private boolean routeWithGivenAcceptType(String bestMatch) {
         return !MimeParse.NO_MIME_TYPE.equals(bestMatch);
     }
 
-    private List<RouteEntry> findTargetsForRequestedRoute(HttpMethod httpMethod, String path) {
-        List<RouteEntry> matchSet = new ArrayList<>();
-        for (RouteEntry entry : routes) {
-            if (entry.matches(httpMethod, path)) {
-                matchSet.add(entry);
+    private List<RouteEntry> findTargetsForRequestedRoute(HttpMethod httpMethod, PathSegments path) {
+        return index().find(httpMethod, path);
+    }
+
+    // Params and splat are captured here, so the request doesn't need to parse the path again
+    private static RouteMatch createMatch(RouteEntry entry, PathSegments path, String acceptType, HttpMethod httpMethod) {
+        if (entry.regex != null) {
+            return new RouteMatch(entry.target, entry.path, path.path(), acceptType, httpMethod, entry.regex);
+        }
+        return new RouteMatch(entry.target,
+                              entry.path,
+                              path.path(),
+                              acceptType,
+                              httpMethod,
+                              null,
+                              entry.params(path),
+                              entry.splat(path));
+    }
+
+    /**
+     * @return the published routes (a read-only copy built on first use after routes are changed)
+     */
+    private List<RouteEntry> snapshot() {
+        List<RouteEntry> current = snapshot;
+        if (current == null) {
+            synchronized (this) {
+                current = snapshot;
+                if (current == null) {
+                    current = Collections.unmodifiableList(new ArrayList<>(routes));
+                    snapshot = current;
+                }
             }
         }
-        return matchSet;
+        return current;
+    }
+
+    /**
+     * @return the filter chains (built on first use after the routes are changed)
+     */
+    private FilterChains filterChains() {
+        FilterChains current = filterChains;
+        if (current == null) {
+            synchronized (this) {
+                current = filterChains;
+                if (current == null) {
+                    current = new FilterChains(routes);
+                    filterChains = current;
+                }
+            }
+        }
+        return current;
+    }
+
+    /**
+     * @return the first route mapped with each path (built on first use after routes are removed)
+     */
+    private Map<String, RouteEntry> firstByPath() {
+        Map<String, RouteEntry> current = firstByPath;
+        if (current == null) {
+            synchronized (this) {
+                current = firstByPath;
+                if (current == null) {
+                    current = new ConcurrentHashMap<>();
+                    for (RouteEntry entry : routes) {
+                        current.putIfAbsent(entry.path, entry);
+                    }
+                    firstByPath = current;
+                }
+            }
+        }
+        return current;
+    }
+
+    /**
+     * @return the compiled index of the routes (it is built on first use after routes are removed)
+     */
+    private RouteIndex index() {
+        RouteIndex current = index;
+        if (current == null) {
+            synchronized (this) {
+                current = index;
+                if (current == null) {
+                    current = RouteIndex.build(routes);
+                    index = current;
+                }
+            }
+        }
+        return current;
     }
 
-    // TODO: I believe this feature has impacted performance. Optimization?
     private RouteEntry findTargetWithGivenAcceptType(List<RouteEntry> routeMatches, String acceptType) {
         if (acceptType != null && routeMatches.size() > 0) {
+            RouteEntry first = routeMatches.get(0);
+            if (haveSameAcceptedType(routeMatches, first.acceptedType)) {
+                // Usual case, no need to gather the accepted types
+                return first.accepts(acceptType) ? first : null;
+            }
             Map<String, RouteEntry> acceptedMimeTypes = getAcceptedMimeTypes(routeMatches);
             String bestMatch = MimeParse.bestMatch(acceptedMimeTypes.keySet(), acceptType);
 
@@ -249,7 +562,7 @@ public class Routes {
         return null;
     }
 
-    private boolean removeRoute(HttpMethod httpMethod, String path) {
+    private synchronized boolean removeRoute(HttpMethod httpMethod, String path) {
         List<RouteEntry> forRemoval = new ArrayList<>();
 
         for (RouteEntry routeEntry : routes) {
@@ -267,7 +580,14 @@ public class Routes {
             }
         }
 
-        return routes.removeAll(forRemoval);
+        boolean removed = routes.removeAll(forRemoval);
+        if (removed) {
+            snapshot = null;
+            firstByPath = null;
+            index = null;
+            invalidateCaches();
+        }
+        return removed;
     }
 
     /**
@@ -16,6 +16,9 @@
  */
 package spark.routematch;
 
+import java.util.List;
+import java.util.Map;
+
 import spark.route.HttpMethod;
 
 /**
@@ -28,18 +31,44 @@ public class RouteMatch {
     private final String requestURI;
     private final String acceptType;
     private final HttpMethod httpMethod;
+    private final RoutePattern routePattern;
+    private final Map<String, String> params;
+    private final List<String> splat;
 
     public RouteMatch(Object target, String matchUri, String requestUri, String acceptType) {
         this(target, matchUri, requestUri, acceptType, null);
      }
 
     public RouteMatch(Object target, String matchUri, String requestUri, String acceptType, HttpMethod httpMethod) {
+        this(target, matchUri, requestUri, acceptType, httpMethod, null);
+    }
+
+    public RouteMatch(Object target,
+                      String matchUri,
+                      String requestUri,
+                      String acceptType,
+                      HttpMethod httpMethod,
+                      RoutePattern routePattern) {
+        this(target, matchUri, requestUri, acceptType, httpMethod, routePattern, null, null);
+    }
+
+    public RouteMatch(Object target,
+                      String matchUri,
+                      String requestUri,
+                      String acceptType,
+                      HttpMethod httpMethod,
+                      RoutePattern routePattern,
+                      Map<String, String> params,
+                      List<String> splat) {
         super();
         this.target = target;
         this.matchUri = matchUri;
         this.requestURI = requestUri;
         this.acceptType = acceptType;
         this.httpMethod = httpMethod;
+        this.routePattern = routePattern;
+        this.params = params;
+        this.splat = splat;
     }
 
     /**
@@ -79,5 +108,26 @@ public class RouteMatch {
         return requestURI;
     }
 
+    /**
+     * @return the compiled expression of a regex route (null if not available)
+     */
+    public RoutePattern getRoutePattern() {
+        return routePattern;
+    }
+
+    /**
+     * @return the params captured while matching (null if they were not captured)
+     */
+    public Map<String, String> getParams() {
+        return params;
+    }
+
+    /**
+     * @return the splat params captured while matching (null if they were not captured)
+     */
+    public List<String> getSplat() {
+        return splat;
+    }
+
 
 }
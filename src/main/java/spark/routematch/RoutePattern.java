@@ -0,0 +1,107 @@
+/*
+ * Copyright 2011- Per Wendel
+ *
+ *  Licensed under the Apache License, Version 2.0 (the "License");
+ *  you may not use this file except in compliance with the License.
+ *  You may obtain a copy of the License at
+ *
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package spark.routematch;
+
+import java.util.Collections;
+import java.util.Set;
+import java.util.TreeSet;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+import spark.utils.StringUtils;
+
+/**
+ * Compiled regular expression of a regex route (paths starting with '~/').
+ * It is compiled once when the route is mapped and reused for matching and for extracting the params.
+ */
+public final class RoutePattern {
+
+    private static final String REGEX_PREFIX = "~/";
+    private static final Pattern NAMED_GROUP = Pattern.compile("\\(\\?<([a-zA-Z][a-zA-Z0-9]*)>");
+
+    private final Pattern pattern;
+    private final Set<String> namedGroups;
+    private final boolean hasGroups;
+
+    /**
+     * Compiles a regex route path
+     *
+     * @param path the route path (starting with '~/')
+     * @return the compiled pattern
+     */
+    public static RoutePattern compile(String path) {
+        return new RoutePattern(StringUtils.cleanRegex(path));
+    }
+
+    /**
+     * @param path the route path
+     * @return true if the path is a regex route path
+     */
+    public static boolean isRegex(String path) {
+        return path.startsWith(REGEX_PREFIX);
+    }
+
+    private RoutePattern(String regex) {
+        this.pattern = Pattern.compile(regex, Pattern.CASE_INSENSITIVE);
+        this.namedGroups = Collections.unmodifiableSet(getNamedGroups(regex));
+        this.hasGroups = regex.contains("(") && regex.contains(")");
+    }
+
+    /**
+     * @return the compiled pattern
+     */
+    public Pattern pattern() {
+        return pattern;
+    }
+
+    /**
+     * @return the names of the named groups in the expression
+     */
+    public Set<String> namedGroups() {
+        return namedGroups;
+    }
+
+    /**
+     * @return true if the expression contains groups
+     */
+    public boolean hasGroups() {
+        return hasGroups;
+    }
+
+    /**
+     * @param path the requested path
+     * @return true if the expression is found in the path
+     */
+    public boolean matches(String path) {
+        return pattern.matcher(path).find();
+    }
+
+    // Java doesn't expose Pattern.namedGroups(), so we have to extract them:
+    private static Set<String> getNamedGroups(String regex) {
+        Set<String> groups = new TreeSet<>();
+        Matcher m = NAMED_GROUP.matcher(regex);
+        while (m.find()) {
+            groups.add(m.group(1));
+        }
+        return groups;
+    }
+
+    @Override
+    public String toString() {
+        return pattern.pattern();
+    }
+}
@@ -0,0 +1,148 @@
+/*
+ * Copyright 2011- Per Wendel
+ *
+ *  Licensed under the Apache License, Version 2.0 (the "License");
+ *  you may not use this file except in compliance with the License.
+ *  You may obtain a copy of the License at
+ *
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package spark.serialization;
+
+import java.util.Iterator;
+import java.util.Objects;
+import java.util.stream.Stream;
+
+/**
+ * A result which is written lazily, element by element, with a delimiter between the elements
+ * (and an optional prefix and suffix). Returning a {@link Stream} or an {@link Iterator} from a route is the same
+ * as returning it wrapped with the default settings, which write one element per line (NDJSON). An
+ * {@link Iterable} is only streamed when wrapped, otherwise it is written with its toString(). For example,
+ * a JSON array:
+ * <pre>
+ * get("/export", (request, response) -> {
+ * ....response.type("application/json");
+ * ....return DelimitedStream.of(repository.streamAll().map(Json::write)).prefix("[").delimiter(",").suffix("]");
+ * });
+ * </pre>
+ * An element is written as UTF-8 text (its toString()), unless it is a byte array. The output is flushed
+ * (ie: a chunk is sent) every time {@link #flushEvery(int)} bytes have been written, so the memory used
+ * does not depend on the size of the result.
+ * <p>
+ * The stream (or the iterator or iterable when it is {@link AutoCloseable}) is closed once written, or when
+ * writing fails because the client disconnected.
+ */
+public final class DelimitedStream {
+
+    static final int DEFAULT_FLUSH_BYTES = 16 * 1024;
+
+    private final Iterator<?> iterator;
+    private final AutoCloseable closeable;
+
+    private String prefix = "";
+    private String delimiter = "\n";
+    private String suffix = "\n";
+    private int flushEvery = DEFAULT_FLUSH_BYTES;
+
+    private DelimitedStream(Iterator<?> iterator, Object source) {
+        this.iterator = iterator;
+        this.closeable = source instanceof AutoCloseable ? (AutoCloseable) source : null;
+    }
+
+    /**
+     * @param stream the elements
+     * @return the stream, written one element per line
+     */
+    public static DelimitedStream of(Stream<?> stream) {
+        Objects.requireNonNull(stream, "stream");
+        return new DelimitedStream(stream.iterator(), stream);
+    }
+
+    /**
+     * @param iterator the elements
+     * @return the iterator, written one element per line
+     */
+    public static DelimitedStream of(Iterator<?> iterator) {
+        Objects.requireNonNull(iterator, "iterator");
+        return new DelimitedStream(iterator, iterator);
+    }
+
+    /**
+     * @param iterable the elements
+     * @return the iterable, written one element per line
+     */
+    public static DelimitedStream of(Iterable<?> iterable) {
+        Objects.requireNonNull(iterable, "iterable");
+        return new DelimitedStream(iterable.iterator(), iterable);
+    }
+
+    /**
+     * @param prefix written before the first element (default: none)
+     * @return itself for easy chaining
+     */
+    public DelimitedStream prefix(String prefix) {
+        this.prefix = Objects.requireNonNull(prefix, "prefix");
+        return this;
+    }
+
+    /**
+     * @param delimiter written between the elements (default: a new line)
+     * @return itself for easy chaining
+     */
+    public DelimitedStream delimiter(String delimiter) {
+        this.delimiter = Objects.requireNonNull(delimiter, "delimiter");
+        return this;
+    }
+
+    /**
+     * @param suffix written after the last element (default: a new line)
+     * @return itself for easy chaining
+     */
+    public DelimitedStream suffix(String suffix) {
+        this.suffix = Objects.requireNonNull(suffix, "suffix");
+        return this;
+    }
+
+    /**
+     * @param bytes the number of bytes written before the output is flushed
+     * @return itself for easy chaining
+     */
+    public DelimitedStream flushEvery(int bytes) {
+        if (bytes <= 0) {
+            throw new IllegalArgumentException("bytes must be greater than 0");
+        }
+        this.flushEvery = bytes;
+        return this;
+    }
+
+    Iterator<?> iterator() {
+        return iterator;
+    }
+
+    AutoCloseable closeable() {
+        return closeable;
+    }
+
+    String prefix() {
+        return prefix;
+    }
+
+    String delimiter() {
+        return delimiter;
+    }
+
+    String suffix() {
+        return suffix;
+    }
+
+    int flushEvery() {
+        return flushEvery;
+    }
+}
@@ -0,0 +1,85 @@
+/*
+ * Copyright 2011- Per Wendel
+ *
+ *  Licensed under the Apache License, Version 2.0 (the "License");
+ *  you may not use this file except in compliance with the License.
+ *  You may obtain a copy of the License at
+ *
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package spark.serialization;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.Channels;
+import java.nio.channels.FileChannel;
+import java.nio.channels.WritableByteChannel;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+
+import org.eclipse.jetty.ee10.servlet.HttpOutput;
+
+import spark.utils.Unmapper;
+
+/**
+ * File serializer: writes a {@link Path}, {@link File} or {@link FileChannel} (from its position) without copying
+ * it through the heap.
+ * <p>
+ * On the embedded Jetty server the file is memory mapped by segments and the mapped buffers are written straight to
+ * the connection (each segment is unmapped once written successfully). Otherwise it is written with {@link FileChannel#transferTo(long, long, WritableByteChannel)}.
+ */
+class FileSerializer extends Serializer {
+
+    /**
+     * The size of the segments of the file mapped at once, so large files do not use too much address space
+     */
+    static final long SEGMENT_SIZE = 16 * 1024 * 1024;
+
+    @Override
+    public boolean canProcess(Object element) {
+        return element instanceof Path || element instanceof File || element instanceof FileChannel;
+    }
+
+    @Override
+    public void process(OutputStream outputStream, Object element) throws IOException {
+        try (FileChannel channel = open(element)) {
+            long position = channel.position();
+            long end = channel.size();
+            if (outputStream instanceof HttpOutput && !((HttpOutput) outputStream).isAsync()) {
+                HttpOutput httpOutput = (HttpOutput) outputStream;
+                while (position < end) {
+                    long length = Math.min(SEGMENT_SIZE, end - position);
+                    MappedByteBuffer segment = channel.map(FileChannel.MapMode.READ_ONLY, position, length);
+                    httpOutput.write(segment);
+                    // Only once written: after a failed write, the connection may still hold the segment,
+                    // which is then unmapped when garbage collected
+                    Unmapper.unmap(segment);
+                    position += length;
+                }
+            } else {
+                WritableByteChannel target = Channels.newChannel(outputStream);
+                while (position < end) {
+                    position += channel.transferTo(position, end - position, target);
+                }
+            }
+        }
+    }
+
+    private static FileChannel open(Object element) throws IOException {
+        if (element instanceof FileChannel) {
+            return (FileChannel) element;
+        }
+        Path path = element instanceof File ? ((File) element).toPath() : (Path) element;
+        return FileChannel.open(path, StandardOpenOption.READ);
+    }
+
+}
@@ -33,11 +33,17 @@ public final class SerializerChain {
 
         DefaultSerializer defaultSerializer = new DefaultSerializer();
 
+        StreamSerializer streamSerializer = new StreamSerializer();
+        streamSerializer.setNext(defaultSerializer);
+
         InputStreamSerializer inputStreamSerializer = new InputStreamSerializer();
-        inputStreamSerializer.setNext(defaultSerializer);
+        inputStreamSerializer.setNext(streamSerializer);
+
+        FileSerializer fileSerializer = new FileSerializer();
+        fileSerializer.setNext(inputStreamSerializer);
 
         BytesSerializer bytesSerializer = new BytesSerializer();
-        bytesSerializer.setNext(inputStreamSerializer);
+        bytesSerializer.setNext(fileSerializer);
 
         this.root = bytesSerializer;
     }
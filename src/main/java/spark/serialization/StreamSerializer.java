@@ -0,0 +1,103 @@
+/*
+ * Copyright 2011- Per Wendel
+ *
+ *  Licensed under the Apache License, Version 2.0 (the "License");
+ *  you may not use this file except in compliance with the License.
+ *  You may obtain a copy of the License at
+ *
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package spark.serialization;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.Iterator;
+import java.util.stream.Stream;
+
+/**
+ * Serializer writing {@link DelimitedStream}, {@link Stream} and {@link Iterator} elements lazily, one element at
+ * a time. Iterables are left to the next serializers (ie: collections or JSON arrays are written with their
+ * toString()), unless they are wrapped with {@link DelimitedStream#of(Iterable)}.
+ */
+class StreamSerializer extends Serializer {
+
+    private static final org.slf4j.Logger LOG = org.slf4j.LoggerFactory.getLogger(StreamSerializer.class);
+
+    @Override
+    public boolean canProcess(Object element) {
+        return element instanceof DelimitedStream
+                || element instanceof Stream
+                || element instanceof Iterator;
+    }
+
+    @Override
+    public void process(OutputStream outputStream, Object element) throws IOException {
+        DelimitedStream stream = delimited(element);
+        try {
+            write(outputStream, stream);
+        } finally {
+            close(stream);
+        }
+    }
+
+    private static void write(OutputStream outputStream, DelimitedStream stream) throws IOException {
+        byte[] delimiter = stream.delimiter().getBytes(StandardCharsets.UTF_8);
+        int unflushed = write(outputStream, stream.prefix().getBytes(StandardCharsets.UTF_8));
+
+        Iterator<?> iterator = stream.iterator();
+        boolean first = true;
+        while (iterator.hasNext()) {
+            if (!first) {
+                unflushed += write(outputStream, delimiter);
+            }
+            first = false;
+
+            unflushed += write(outputStream, bytes(iterator.next()));
+            if (unflushed >= stream.flushEvery()) {
+                outputStream.flush();
+                unflushed = 0;
+            }
+        }
+        write(outputStream, stream.suffix().getBytes(StandardCharsets.UTF_8));
+    }
+
+    private static int write(OutputStream outputStream, byte[] bytes) throws IOException {
+        outputStream.write(bytes);
+        return bytes.length;
+    }
+
+    private static byte[] bytes(Object element) {
+        if (element instanceof byte[]) {
+            return (byte[]) element;
+        }
+        return String.valueOf(element).getBytes(StandardCharsets.UTF_8);
+    }
+
+    private static void close(DelimitedStream stream) {
+        if (stream.closeable() != null) {
+            try {
+                stream.closeable().close();
+            } catch (Exception e) {
+                LOG.warn("Failed to close the streamed result", e);
+            }
+        }
+    }
+
+    private static DelimitedStream delimited(Object element) {
+        if (element instanceof DelimitedStream) {
+            return (DelimitedStream) element;
+        } else if (element instanceof Stream) {
+            return DelimitedStream.of((Stream<?>) element);
+        }
+        return DelimitedStream.of((Iterator<?>) element);
+    }
+
+}
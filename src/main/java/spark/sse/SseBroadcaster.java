@@ -0,0 +1,85 @@
+/*
+ * Copyright 2011- Per Wendel
+ *
+ *  Licensed under the Apache License, Version 2.0 (the "License");
+ *  you may not use this file except in compliance with the License.
+ *  You may obtain a copy of the License at
+ *
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package spark.sse;
+
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Sends events to a group of subscribers, for example:
+ * <pre>
+ * SseBroadcaster dashboards = new SseBroadcaster();
+ * sse("/dashboard/events", (request, emitter) -> dashboards.add(emitter));
+ * ...
+ * dashboards.broadcast(SseEvent.of(json).event("update"));
+ * </pre>
+ * The emitters are removed when they are closed. An event is formatted once for all the subscribers.
+ */
+public final class SseBroadcaster {
+
+    private final Set<SseEmitter> emitters = ConcurrentHashMap.newKeySet();
+
+    /**
+     * Adds a subscriber, until it is closed
+     *
+     * @param emitter the emitter of the subscriber
+     */
+    public void add(SseEmitter emitter) {
+        if (emitters.add(emitter)) {
+            emitter.onClose(() -> emitters.remove(emitter));
+        }
+    }
+
+    /**
+     * @param data the data of the event
+     * @return the number of subscribers the event was sent to
+     */
+    public int broadcast(String data) {
+        return broadcast(SseEvent.of(data));
+    }
+
+    /**
+     * @param event the event
+     * @return the number of subscribers the event was sent to
+     */
+    public int broadcast(SseEvent event) {
+        byte[] bytes = event.toBytes();
+        int sent = 0;
+        for (SseEmitter emitter : emitters) {
+            if (emitter.send(bytes)) {
+                sent++;
+            }
+        }
+        return sent;
+    }
+
+    /**
+     * @return the number of subscribers
+     */
+    public int size() {
+        return emitters.size();
+    }
+
+    /**
+     * Closes all the subscribers
+     */
+    public void close() {
+        for (SseEmitter emitter : emitters) {
+            emitter.close();
+        }
+    }
+}
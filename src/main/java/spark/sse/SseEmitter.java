@@ -0,0 +1,259 @@
+/*
+ * Copyright 2011- Per Wendel
+ *
+ *  Licensed under the Apache License, Version 2.0 (the "License");
+ *  you may not use this file except in compliance with the License.
+ *  You may obtain a copy of the License at
+ *
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package spark.sse;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayDeque;
+import java.util.List;
+import java.util.Queue;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+
+import jakarta.servlet.ServletOutputStream;
+import jakarta.servlet.WriteListener;
+import spark.Request;
+
+/**
+ * Sends server-sent events to a client. The events can be sent from any thread: they are queued and
+ * written with non-blocking I/O, so an idle stream holds no thread and a slow client never blocks the sender.
+ * A client which does not read its events (more than {@value #MAX_QUEUED_BYTES} bytes queued) is disconnected.
+ */
+public final class SseEmitter {
+
+    private static final org.slf4j.Logger LOG = org.slf4j.LoggerFactory.getLogger(SseEmitter.class);
+
+    static final int MAX_QUEUED_BYTES = 1024 * 1024;
+
+    private static final byte[] HEARTBEAT = ":\n\n".getBytes(StandardCharsets.UTF_8);
+
+    private final Request request;
+    private final CompletableFuture<Object> closed = new CompletableFuture<>();
+    private final List<Runnable> closeListeners = new CopyOnWriteArrayList<>();
+
+    // Guarded by this
+    private final Queue<byte[]> pending = new ArrayDeque<>();
+    private int queuedBytes;
+    private ServletOutputStream output;
+    private boolean unflushed = true;
+    private boolean closing;
+    private boolean done;
+    private Future<?> heartbeat;
+
+    private volatile long lastWrite = System.nanoTime();
+
+    SseEmitter(Request request) {
+        this.request = request;
+        // The stream is also closed when the request fails or the client disconnects
+        closed.whenComplete((result, failure) -> finish());
+    }
+
+    /**
+     * @return the request which opened the event stream
+     */
+    public Request request() {
+        return request;
+    }
+
+    /**
+     * Sends an event with only data
+     *
+     * @param data the data of the event
+     * @return false if the emitter is closed
+     */
+    public boolean send(String data) {
+        return send(SseEvent.of(data));
+    }
+
+    /**
+     * Sends an event
+     *
+     * @param event the event
+     * @return false if the emitter is closed
+     */
+    public boolean send(SseEvent event) {
+        return send(event.toBytes());
+    }
+
+    /**
+     * Sends a comment, which is ignored by the client (but keeps the connection alive)
+     *
+     * @param comment the comment
+     * @return false if the emitter is closed
+     */
+    public boolean comment(String comment) {
+        return send((":" + comment.replace("\n", "\n:") + "\n\n").getBytes(StandardCharsets.UTF_8));
+    }
+
+    /**
+     * Closes the event stream, once the events already sent have been written
+     */
+    public void close() {
+        boolean finished;
+        synchronized (this) {
+            if (closing || done) {
+                return;
+            }
+            closing = true;
+            finished = drain();
+        }
+        if (finished) {
+            finish();
+        }
+    }
+
+    /**
+     * @return true until the emitter is closed
+     */
+    public synchronized boolean isOpen() {
+        return !closing && !done;
+    }
+
+    /**
+     * @param listener invoked when the emitter is closed (immediately if it is already closed)
+     */
+    public void onClose(Runnable listener) {
+        closeListeners.add(listener);
+        if (closed.isDone() && closeListeners.remove(listener)) {
+            listener.run();
+        }
+    }
+
+    boolean send(byte[] event) {
+        boolean finished;
+        synchronized (this) {
+            if (closing || done) {
+                return false;
+            }
+            if (queuedBytes + event.length > MAX_QUEUED_BYTES) {
+                LOG.debug("Disconnecting slow client of [{}]", request.uri());
+                finished = true;
+            } else {
+                pending.add(event);
+                queuedBytes += event.length;
+                lastWrite = System.nanoTime();
+                finished = drain();
+            }
+        }
+        if (finished) {
+            finish();
+            return false;
+        }
+        return true;
+    }
+
+    /**
+     * Starts writing the events to the response (the request must be in asynchronous mode).
+     *
+     * @param output          the output stream of the response
+     * @param heartbeatMillis the time without events after which a heartbeat is sent, 0 for none
+     */
+    synchronized void attach(ServletOutputStream output, long heartbeatMillis) {
+        this.output = output;
+        if (heartbeatMillis > 0 && !done) {
+            heartbeat = SseHeartbeat.schedule(() -> heartbeat(heartbeatMillis), heartbeatMillis);
+        }
+        output.setWriteListener(new WriteListener() {
+            @Override
+            public void onWritePossible() {
+                boolean finished;
+                synchronized (SseEmitter.this) {
+                    finished = drain();
+                }
+                if (finished) {
+                    finish();
+                }
+            }
+
+            @Override
+            public void onError(Throwable failure) {
+                LOG.debug("Event stream of [{}] failed", request.uri(), failure);
+                finish();
+            }
+        });
+    }
+
+    /**
+     * @return completed when the emitter is closed
+     */
+    CompletableFuture<Object> closed() {
+        return closed;
+    }
+
+    private void heartbeat(long heartbeatMillis) {
+        if (System.nanoTime() - lastWrite >= TimeUnit.MILLISECONDS.toNanos(heartbeatMillis)) {
+            send(HEARTBEAT);
+        }
+    }
+
+    /**
+     * Writes the pending events while the output is ready, must be called holding the lock.
+     *
+     * @return true if the emitter is done (all written after close, or the client disconnected)
+     */
+    private boolean drain() {
+        if (output == null || done) {
+            return false;
+        }
+        try {
+            while (output.isReady()) {
+                byte[] event = pending.poll();
+                if (event != null) {
+                    output.write(event);
+                    queuedBytes -= event.length;
+                    unflushed = true;
+                } else if (unflushed) {
+                    unflushed = false;
+                    output.flush();
+                } else {
+                    return closing;
+                }
+            }
+            return false;
+        } catch (IOException | IllegalStateException e) {
+            LOG.debug("Failed to write the event stream of [{}]", request.uri(), e);
+            return true;
+        }
+    }
+
+    private void finish() {
+        synchronized (this) {
+            if (done) {
+                return;
+            }
+            done = true;
+            pending.clear();
+            queuedBytes = 0;
+            if (heartbeat != null) {
+                heartbeat.cancel(false);
+            }
+        }
+        // Completes the request (running the after filters) if it is not already
+        closed.complete("");
+        for (Runnable listener : closeListeners) {
+            if (closeListeners.remove(listener)) {
+                try {
+                    listener.run();
+                } catch (Exception e) {
+                    LOG.warn("Close listener of the event stream of [{}] failed", request.uri(), e);
+                }
+            }
+        }
+    }
+}
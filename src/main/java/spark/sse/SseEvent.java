@@ -0,0 +1,114 @@
+/*
+ * Copyright 2011- Per Wendel
+ *
+ *  Licensed under the Apache License, Version 2.0 (the "License");
+ *  you may not use this file except in compliance with the License.
+ *  You may obtain a copy of the License at
+ *
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package spark.sse;
+
+import java.nio.charset.StandardCharsets;
+import java.util.Objects;
+
+/**
+ * A server-sent event, for example:
+ * <pre>
+ * emitter.send(SseEvent.of("{\"price\":12.5}").event("price").id("42"));
+ * </pre>
+ */
+public final class SseEvent {
+
+    private final String data;
+    private String event;
+    private String id;
+    private long retry = -1;
+
+    private SseEvent(String data) {
+        this.data = data;
+    }
+
+    /**
+     * @param data the data of the event (it may contain new lines)
+     * @return the event
+     */
+    public static SseEvent of(String data) {
+        return new SseEvent(Objects.requireNonNull(data, "data"));
+    }
+
+    /**
+     * @param event the type of the event (the listeners of the client it is dispatched to)
+     * @return itself for easy chaining
+     */
+    public SseEvent event(String event) {
+        this.event = singleLine(event, "event");
+        return this;
+    }
+
+    /**
+     * @param id the id of the event, sent back by the client (as Last-Event-ID) when it reconnects
+     * @return itself for easy chaining
+     */
+    public SseEvent id(String id) {
+        this.id = singleLine(id, "id");
+        return this;
+    }
+
+    /**
+     * @param retry the time in milliseconds the client should wait before reconnecting
+     * @return itself for easy chaining
+     */
+    public SseEvent retry(long retry) {
+        if (retry < 0) {
+            throw new IllegalArgumentException("retry must not be negative");
+        }
+        this.retry = retry;
+        return this;
+    }
+
+    /**
+     * @return the event in the text/event-stream format
+     */
+    @Override
+    public String toString() {
+        StringBuilder builder = new StringBuilder(data.length() + 16);
+        if (id != null) {
+            builder.append("id: ").append(id).append('\n');
+        }
+        if (event != null) {
+            builder.append("event: ").append(event).append('\n');
+        }
+        if (retry >= 0) {
+            builder.append("retry: ").append(retry).append('\n');
+        }
+        // Any line break ends a data line in the event stream
+        String data = this.data.indexOf('\r') >= 0 ? this.data.replace("\r\n", "\n").replace('\r', '\n') : this.data;
+        int start = 0;
+        int end;
+        while ((end = data.indexOf('\n', start)) >= 0) {
+            builder.append("data: ").append(data, start, end).append('\n');
+            start = end + 1;
+        }
+        return builder.append("data: ").append(data, start, data.length()).append("\n\n").toString();
+    }
+
+    byte[] toBytes() {
+        return toString().getBytes(StandardCharsets.UTF_8);
+    }
+
+    private static String singleLine(String value, String name) {
+        Objects.requireNonNull(value, name);
+        if (value.indexOf('\n') >= 0 || value.indexOf('\r') >= 0) {
+            throw new IllegalArgumentException(name + " must not contain new lines");
+        }
+        return value;
+    }
+}
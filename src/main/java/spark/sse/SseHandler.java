@@ -0,0 +1,37 @@
+/*
+ * Copyright 2011- Per Wendel
+ *
+ *  Licensed under the Apache License, Version 2.0 (the "License");
+ *  you may not use this file except in compliance with the License.
+ *  You may obtain a copy of the License at
+ *
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package spark.sse;
+
+import spark.Request;
+
+/**
+ * Handles the opening of a server-sent events stream (see {@link spark.Service#sse(String, SseHandler)}).
+ */
+@FunctionalInterface
+public interface SseHandler {
+
+    /**
+     * Invoked when a client opens the event stream. The events can be sent from any thread, until the
+     * emitter is closed (by the handler or because the client disconnected).
+     *
+     * @param request The request object providing information about the HTTP request
+     * @param emitter The emitter sending the events to the client
+     * @throws java.lang.Exception when handle fails
+     */
+    void handle(Request request, SseEmitter emitter) throws Exception;
+
+}
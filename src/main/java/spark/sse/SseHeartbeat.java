@@ -0,0 +1,45 @@
+/*
+ * Copyright 2011- Per Wendel
+ *
+ *  Licensed under the Apache License, Version 2.0 (the "License");
+ *  you may not use this file except in compliance with the License.
+ *  You may obtain a copy of the License at
+ *
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package spark.sse;
+
+import java.util.concurrent.Future;
+import java.util.concurrent.ScheduledThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * The scheduler sending the heartbeats of all the event streams, on a single daemon thread.
+ */
+final class SseHeartbeat {
+
+    private static final ScheduledThreadPoolExecutor SCHEDULER = new ScheduledThreadPoolExecutor(1, task -> {
+        Thread thread = new Thread(task, "spark-sse-heartbeat");
+        thread.setDaemon(true);
+        return thread;
+    });
+
+    static {
+        // Streams are closed all the time, their tasks should not pile up until their next run
+        SCHEDULER.setRemoveOnCancelPolicy(true);
+    }
+
+    private SseHeartbeat() {
+    }
+
+    static Future<?> schedule(Runnable heartbeat, long periodMillis) {
+        return SCHEDULER.scheduleAtFixedRate(heartbeat, periodMillis, periodMillis, TimeUnit.MILLISECONDS);
+    }
+}
@@ -0,0 +1,80 @@
+/*
+ * Copyright 2011- Per Wendel
+ *
+ *  Licensed under the Apache License, Version 2.0 (the "License");
+ *  you may not use this file except in compliance with the License.
+ *  You may obtain a copy of the License at
+ *
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package spark.sse;
+
+import jakarta.servlet.AsyncContext;
+import jakarta.servlet.http.HttpServletRequest;
+import spark.Request;
+import spark.Response;
+import spark.RouteImpl;
+
+/**
+ * The route of a server-sent events stream. It opens the stream with the handler, switches the request to
+ * asynchronous mode (without timeout) and returns a stage completed when the stream is closed: the after
+ * filters are run at that time.
+ */
+public final class SseRouteImpl extends RouteImpl {
+
+    /**
+     * The default time without events after which a heartbeat is sent. It is lower than the idle timeout
+     * of the connections in the embedded server (30 seconds).
+     */
+    public static final long DEFAULT_HEARTBEAT_MILLIS = 15_000;
+
+    private final SseHandler handler;
+    private final long heartbeatMillis;
+
+    private SseRouteImpl(String path, SseHandler handler, long heartbeatMillis) {
+        super(path, DEFAULT_ACCEPT_TYPE, handler);
+        this.handler = handler;
+        this.heartbeatMillis = heartbeatMillis;
+        // The streams stay open until closed, the timeout of an asyncTimeout group does not apply
+        withAsyncTimeout(0);
+    }
+
+    /**
+     * @param path            the path
+     * @param handler         the handler invoked when a stream is opened
+     * @param heartbeatMillis the time without events after which a heartbeat is sent, 0 for none
+     * @return the route
+     */
+    public static SseRouteImpl create(String path, SseHandler handler, long heartbeatMillis) {
+        if (heartbeatMillis < 0) {
+            throw new IllegalArgumentException("heartbeatMillis must not be negative");
+        }
+        return new SseRouteImpl(path, handler, heartbeatMillis);
+    }
+
+    @Override
+    public Object handle(Request request, Response response) throws Exception {
+        HttpServletRequest raw = request.raw();
+        if (!raw.isAsyncSupported()) {
+            throw new IllegalStateException("Server-sent events require asynchronous requests to be supported");
+        }
+
+        response.type("text/event-stream");
+        response.header("Cache-Control", "no-cache");
+
+        SseEmitter emitter = new SseEmitter(request);
+        handler.handle(request, emitter);
+
+        AsyncContext asyncContext = raw.startAsync();
+        asyncContext.setTimeout(0);
+        emitter.attach(response.raw().getOutputStream(), heartbeatMillis);
+        return emitter.closed();
+    }
+}
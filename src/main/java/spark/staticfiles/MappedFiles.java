@@ -0,0 +1,237 @@
+/*
+ * Copyright 2011- Per Wendel
+ *
+ *  Licensed under the Apache License, Version 2.0 (the "License");
+ *  you may not use this file except in compliance with the License.
+ *  You may obtain a copy of the License at
+ *
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package spark.staticfiles;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.nio.file.attribute.BasicFileAttributes;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.eclipse.jetty.ee10.servlet.HttpOutput;
+
+import spark.resource.AbstractFileResolvingResource;
+import spark.resource.ExternalResource;
+import spark.utils.Assert;
+import spark.utils.BufferPool;
+import spark.utils.Unmapper;
+
+/**
+ * The memory mapped large external static files: the mapped buffers are written to the response, without copying the
+ * files through the heap, and shared by the concurrent downloads of a file.
+ * <p>
+ * The mappings are reference counted: a mapping is released when the file changes or is evicted (the least recently
+ * used files are evicted to stay under the maximum mapped bytes), once the responses using it are written.
+ */
+final class MappedFiles {
+
+    /**
+     * The size of the mapped segments of a file (a buffer can't map more than 2GB)
+     */
+    static final long SEGMENT_SIZE = 1024 * 1024 * 1024;
+
+    private final long minFileBytes;
+    private final long maxMappedBytes;
+
+    // Access ordered, for the LRU eviction
+    private final LinkedHashMap<Path, MappedFile> files = new LinkedHashMap<>(16, 0.75f, true);
+    private long mappedBytes;
+
+    /**
+     * @param minFileBytes   the minimum size of the files to map
+     * @param maxMappedBytes the maximum total size of the mapped files
+     */
+    MappedFiles(long minFileBytes, long maxMappedBytes) {
+        Assert.isTrue(minFileBytes > 0, "'minFileBytes' must be positive");
+        Assert.isTrue(maxMappedBytes >= minFileBytes, "'maxMappedBytes' must be at least 'minFileBytes'");
+        this.minFileBytes = minFileBytes;
+        this.maxMappedBytes = maxMappedBytes;
+    }
+
+    /**
+     * Gets the mapping of a file, mapping it if needed. The mapping must be released once the response is written,
+     * but not if writing it failed (the buffers may still be used, the mapping is then left to the garbage collector).
+     *
+     * @param resource the resource
+     * @return the mapping, or null if the resource is not an external file, or is too small or too large to map
+     * @throws IOException when the file can't be mapped
+     */
+    MappedFile acquire(AbstractFileResolvingResource resource) throws IOException {
+        if (!(resource instanceof ExternalResource)) {
+            return null;
+        }
+        Path path = resource.getFile().toPath();
+        BasicFileAttributes attributes = Files.readAttributes(path, BasicFileAttributes.class);
+        long size = attributes.size();
+        long lastModified = attributes.lastModifiedTime().toMillis();
+        if (!attributes.isRegularFile() || size < minFileBytes || size > maxMappedBytes) {
+            return null;
+        }
+
+        synchronized (this) {
+            MappedFile mapped = files.get(path);
+            if (mapped != null && mapped.size == size && mapped.lastModified == lastModified) {
+                mapped.retain();
+                return mapped;
+            }
+        }
+
+        MappedFile mapped = MappedFile.map(path, size, lastModified);
+        synchronized (this) {
+            MappedFile previous = files.put(path, mapped);
+            if (previous != null) {
+                // Changed, or mapped concurrently
+                mappedBytes -= previous.size;
+                previous.release();
+            }
+            mappedBytes += size;
+
+            Iterator<MappedFile> eldest = files.values().iterator();
+            while (mappedBytes > maxMappedBytes && eldest.hasNext()) {
+                MappedFile evicted = eldest.next();
+                if (evicted != mapped) {
+                    eldest.remove();
+                    mappedBytes -= evicted.size;
+                    evicted.release();
+                }
+            }
+            mapped.retain();
+        }
+        return mapped;
+    }
+
+    /**
+     * @return the total size of the mapped files
+     */
+    synchronized long mappedBytes() {
+        return mappedBytes;
+    }
+
+    /**
+     * @return the number of mapped files
+     */
+    synchronized int size() {
+        return files.size();
+    }
+
+    /**
+     * Releases all the mappings (the ones in use are released once their responses are written)
+     */
+    synchronized void clear() {
+        files.values().forEach(MappedFile::release);
+        files.clear();
+        mappedBytes = 0;
+    }
+
+    /**
+     * A memory mapped file
+     */
+    static final class MappedFile {
+
+        private final long size;
+        private final long lastModified;
+        private final MappedByteBuffer[] segments;
+        // One for the cache, one for each response being written
+        private final AtomicInteger references = new AtomicInteger(1);
+
+        private MappedFile(long size, long lastModified, MappedByteBuffer[] segments) {
+            this.size = size;
+            this.lastModified = lastModified;
+            this.segments = segments;
+        }
+
+        private static MappedFile map(Path path, long size, long lastModified) throws IOException {
+            try (FileChannel channel = FileChannel.open(path, StandardOpenOption.READ)) {
+                MappedByteBuffer[] segments = new MappedByteBuffer[(int) ((size + SEGMENT_SIZE - 1) / SEGMENT_SIZE)];
+                for (int i = 0; i < segments.length; i++) {
+                    long position = i * SEGMENT_SIZE;
+                    segments[i] = channel.map(FileChannel.MapMode.READ_ONLY, position,
+                                              Math.min(SEGMENT_SIZE, size - position));
+                }
+                return new MappedFile(size, lastModified, segments);
+            }
+        }
+
+        /**
+         * @return the size of the file
+         */
+        long size() {
+            return size;
+        }
+
+        /**
+         * Writes a range of the file
+         *
+         * @param outputStream the output stream
+         * @param start        the first byte
+         * @param length       the number of bytes
+         * @throws IOException when writing fails
+         */
+        void write(OutputStream outputStream, long start, long length) throws IOException {
+            long position = start;
+            long end = start + length;
+            while (position < end) {
+                ByteBuffer slice = segments[(int) (position / SEGMENT_SIZE)].duplicate();
+                int offset = (int) (position % SEGMENT_SIZE);
+                slice.position(offset);
+                slice.limit((int) Math.min(slice.capacity(), offset + end - position));
+                position += slice.remaining();
+                write(outputStream, slice);
+            }
+        }
+
+        private static void write(OutputStream outputStream, ByteBuffer buffer) throws IOException {
+            if (outputStream instanceof HttpOutput) {
+                // Written from the mapped memory to the connection
+                ((HttpOutput) outputStream).write(buffer);
+                return;
+            }
+            byte[] chunk = BufferPool.acquire();
+            try {
+                while (buffer.hasRemaining()) {
+                    int count = Math.min(chunk.length, buffer.remaining());
+                    buffer.get(chunk, 0, count);
+                    outputStream.write(chunk, 0, count);
+                }
+            } finally {
+                BufferPool.release(chunk);
+            }
+        }
+
+        private void retain() {
+            references.incrementAndGet();
+        }
+
+        /**
+         * Releases a reference to the mapping, unmapping the file when it is not used anymore
+         */
+        void release() {
+            if (references.decrementAndGet() == 0) {
+                for (MappedByteBuffer segment : segments) {
+                    Unmapper.unmap(segment);
+                }
+            }
+        }
+    }
+}
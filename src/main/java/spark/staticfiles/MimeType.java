@@ -149,6 +149,14 @@ public class MimeType {
         return getMimeType(filename);
     }
 
+    /**
+     * @param filename the name of a file
+     * @return the MIME type mapped to the extension of the file, application/octet-stream if there is none
+     */
+    public static String fromFileName(String filename) {
+        return getMimeType(filename);
+    }
+
     protected static String getMimeType(String filename) {
         String fileExtension = filename.replaceAll("^.*\\.(.*)$", "$1");
         return mappings.getOrDefault(fileExtension, "application/octet-stream");
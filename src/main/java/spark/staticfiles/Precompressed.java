@@ -0,0 +1,141 @@
+/*
+ * Copyright 2011- Per Wendel
+ *
+ *  Licensed under the Apache License, Version 2.0 (the "License");
+ *  you may not use this file except in compliance with the License.
+ *  You may obtain a copy of the License at
+ *
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package spark.staticfiles;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Enumeration;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import jakarta.servlet.http.HttpServletRequest;
+import spark.resource.AbstractFileResolvingResource;
+import spark.resource.Resource;
+
+/**
+ * A precompressed sibling of a static file (ie: "app.js.br" for "app.js"), served instead of the file when the client
+ * accepts its encoding, so the file is not compressed again on each request.
+ */
+final class Precompressed {
+
+    static final String ACCEPT_ENCODING = "Accept-Encoding";
+
+    /**
+     * The supported encodings, in the order they are preferred (when the client has no preference)
+     */
+    private static final String[] ENCODINGS = {"br", "zstd", "gzip"};
+    private static final String[] EXTENSIONS = {".br", ".zst", ".gz"};
+
+    private final String encoding;
+    private final AbstractFileResolvingResource resource;
+
+    private Precompressed(String encoding, AbstractFileResolvingResource resource) {
+        this.encoding = encoding;
+        this.resource = resource;
+    }
+
+    /**
+     * @return the content encoding (ie: "br")
+     */
+    String encoding() {
+        return encoding;
+    }
+
+    /**
+     * @return the precompressed file
+     */
+    AbstractFileResolvingResource resource() {
+        return resource;
+    }
+
+    /**
+     * @param request the request
+     * @return the supported encodings accepted by the client (Accept-Encoding), most preferred first
+     */
+    static List<String> accepted(HttpServletRequest request) {
+        Enumeration<String> headers = request.getHeaders(ACCEPT_ENCODING);
+        if (headers == null || !headers.hasMoreElements()) {
+            return Collections.emptyList();
+        }
+
+        Map<String, Float> qualities = new HashMap<>();
+        while (headers.hasMoreElements()) {
+            for (String coding : headers.nextElement().split(",")) {
+                String[] parameters = coding.split(";");
+                float quality = 1f;
+                for (int i = 1; i < parameters.length; i++) {
+                    String parameter = parameters[i].trim();
+                    if (parameter.startsWith("q=")) {
+                        try {
+                            quality = Float.parseFloat(parameter.substring(2));
+                        } catch (NumberFormatException e) {
+                            quality = 0f;
+                        }
+                    }
+                }
+                qualities.put(parameters[0].trim().toLowerCase(), quality);
+            }
+        }
+
+        Float any = qualities.get("*");
+        List<String> accepted = new ArrayList<>(ENCODINGS.length);
+        for (String encoding : ENCODINGS) {
+            Float quality = qualities.getOrDefault(encoding, any);
+            if (quality != null && quality > 0) {
+                accepted.add(encoding);
+            }
+        }
+        // Stable: the preferred order of the encodings is kept for equal qualities
+        accepted.sort((first, second) -> Float.compare(qualities.getOrDefault(second, any),
+                                                       qualities.getOrDefault(first, any)));
+        return accepted;
+    }
+
+    /**
+     * @param resource  a static file
+     * @param encodings the encodings accepted, most preferred first
+     * @return the precompressed sibling of the file in the most preferred encoding, null if there is none
+     */
+    static Precompressed find(AbstractFileResolvingResource resource, List<String> encodings) {
+        if (encodings.isEmpty() || resource.getFilename() == null) {
+            return null;
+        }
+        for (String encoding : encodings) {
+            String extension = EXTENSIONS[indexOf(encoding)];
+            try {
+                Resource sibling = resource.createRelative(resource.getFilename() + extension);
+                if (sibling instanceof AbstractFileResolvingResource && sibling.exists() && sibling.isReadable()) {
+                    return new Precompressed(encoding, (AbstractFileResolvingResource) sibling);
+                }
+            } catch (IOException e) {
+                // No sibling
+            }
+        }
+        return null;
+    }
+
+    private static int indexOf(String encoding) {
+        for (int i = 0; i < ENCODINGS.length; i++) {
+            if (ENCODINGS[i].equals(encoding)) {
+                return i;
+            }
+        }
+        throw new IllegalArgumentException(encoding);
+    }
+}
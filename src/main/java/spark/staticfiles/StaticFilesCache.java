@@ -0,0 +1,249 @@
+/*
+ * Copyright 2011- Per Wendel
+ *
+ *  Licensed under the Apache License, Version 2.0 (the "License");
+ *  you may not use this file except in compliance with the License.
+ *  You may obtain a copy of the License at
+ *
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package spark.staticfiles;
+
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicLong;
+
+import spark.resource.AbstractFileResolvingResource;
+import spark.resource.InputStreamResource;
+import spark.utils.Assert;
+import spark.utils.IOUtils;
+
+/**
+ * An in-memory cache of static files: the content of the small files is kept with their metadata (MIME type,
+ * validators), so serving them does not touch the file system or the jars.
+ * <p>
+ * The cache is bounded by its total size, the least recently used files being evicted, and by the size of each
+ * file (larger files are not cached). Cached external files are not checked for changes, the cache has to be
+ * invalidated when they change.
+ */
+public final class StaticFilesCache {
+
+    // Separates the path from the encodings accepted in the keys
+    private static final char VARIANT_SEPARATOR = '\0';
+
+    private final long maxBytes;
+    private final long maxFileBytes;
+
+    // Access ordered, for the LRU eviction
+    private final LinkedHashMap<String, Entry> entries = new LinkedHashMap<>(16, 0.75f, true);
+    private long bytes;
+
+    private final AtomicLong hits = new AtomicLong();
+    private final AtomicLong misses = new AtomicLong();
+    private final AtomicLong evictions = new AtomicLong();
+
+    /**
+     * @param maxBytes     the maximum total size of the cached files
+     * @param maxFileBytes the maximum size of a cached file
+     */
+    StaticFilesCache(long maxBytes, long maxFileBytes) {
+        Assert.isTrue(maxBytes > 0, "'maxBytes' must be positive");
+        Assert.isTrue(maxFileBytes > 0, "'maxFileBytes' must be positive");
+        this.maxBytes = maxBytes;
+        this.maxFileBytes = Math.min(maxFileBytes, maxBytes);
+    }
+
+    /**
+     * @param path      the path of the request
+     * @param encodings the encodings accepted for precompressed files, most preferred first
+     * @return the key of the file cached for the request (the precompressed files accepted are part of it)
+     */
+    static String key(String path, List<String> encodings) {
+        return encodings.isEmpty() ? path : path + VARIANT_SEPARATOR + String.join(",", encodings);
+    }
+
+    /**
+     * @param key the key of the request (see {@link #key(String, List)})
+     * @return the cached file, null if not cached
+     */
+    Entry get(String key) {
+        Entry entry;
+        synchronized (this) {
+            entry = entries.get(key);
+        }
+        if (entry != null) {
+            hits.incrementAndGet();
+        }
+        return entry;
+    }
+
+    /**
+     * Caches a resource, if it is small enough
+     *
+     * @param key      the key of the request
+     * @param resource the resource found for the path
+     * @return the cached resource, or null if it is too large to be cached
+     * @throws IOException when the resource can't be read
+     */
+    Entry load(String key, AbstractFileResolvingResource resource) throws IOException {
+        return load(key, resource, MimeType.fromResource(resource), null);
+    }
+
+    /**
+     * Caches a resource, if it is small enough
+     *
+     * @param key             the key of the request
+     * @param resource        the resource found for the path
+     * @param contentType     the content type of the resource
+     * @param contentEncoding the content encoding of a precompressed resource, null if the resource is not encoded
+     * @return the cached resource, or null if it is too large to be cached
+     * @throws IOException when the resource can't be read
+     */
+    Entry load(String key, AbstractFileResolvingResource resource, String contentType, String contentEncoding)
+            throws IOException {
+        misses.incrementAndGet();
+
+        long length = resource.contentLength();
+        if (length < 0 || length > maxFileBytes) {
+            return null;
+        }
+        byte[] content;
+        try (InputStream input = resource.getInputStream()) {
+            content = IOUtils.toByteArray(input, length);
+        }
+        if (content.length > maxFileBytes) {
+            return null;
+        }
+        Entry entry = new Entry(content, contentType, contentEncoding, Validators.of(resource));
+
+        synchronized (this) {
+            Entry previous = entries.put(key, entry);
+            bytes += content.length - (previous != null ? previous.content.length : 0);
+
+            Iterator<Entry> eldest = entries.values().iterator();
+            while (bytes > maxBytes && eldest.hasNext()) {
+                bytes -= eldest.next().content.length;
+                eldest.remove();
+                evictions.incrementAndGet();
+            }
+        }
+        return entry;
+    }
+
+    /**
+     * Removes all the cached files (ie: when external files changed)
+     */
+    public synchronized void invalidate() {
+        entries.clear();
+        bytes = 0;
+    }
+
+    /**
+     * Removes a cached file (ie: when an external file changed)
+     *
+     * @param path the path requested for the file (ie: "/css/style.css")
+     */
+    public synchronized void invalidate(String path) {
+        String variants = path + VARIANT_SEPARATOR;
+        Iterator<Map.Entry<String, Entry>> iterator = entries.entrySet().iterator();
+        while (iterator.hasNext()) {
+            Map.Entry<String, Entry> entry = iterator.next();
+            if (entry.getKey().equals(path) || entry.getKey().startsWith(variants)) {
+                bytes -= entry.getValue().content.length;
+                iterator.remove();
+            }
+        }
+    }
+
+    /**
+     * @return the number of requests served from the cache
+     */
+    public long hits() {
+        return hits.get();
+    }
+
+    /**
+     * @return the number of requests for static files which were not cached
+     */
+    public long misses() {
+        return misses.get();
+    }
+
+    /**
+     * @return the number of files evicted to keep the cache under its maximum size
+     */
+    public long evictions() {
+        return evictions.get();
+    }
+
+    /**
+     * @return the number of cached files
+     */
+    public synchronized int size() {
+        return entries.size();
+    }
+
+    /**
+     * @return the total size of the cached files
+     */
+    public synchronized long bytes() {
+        return bytes;
+    }
+
+    @Override
+    public String toString() {
+        return "StaticFilesCache{size=" + size() + ", bytes=" + bytes() + ", hits=" + hits() + ", misses=" + misses()
+                + ", evictions=" + evictions() + "}";
+    }
+
+    /**
+     * A cached file
+     */
+    static final class Entry implements InputStreamResource {
+
+        private final byte[] content;
+        private final String contentType;
+        private final String contentEncoding;
+        private final Validators validators;
+
+        private Entry(byte[] content, String contentType, String contentEncoding, Validators validators) {
+            this.content = content;
+            this.contentType = contentType;
+            this.contentEncoding = contentEncoding;
+            this.validators = validators;
+        }
+
+        @Override
+        public InputStream getInputStream() {
+            return new ByteArrayInputStream(content);
+        }
+
+        long length() {
+            return content.length;
+        }
+
+        String contentType() {
+            return contentType;
+        }
+
+        String contentEncoding() {
+            return contentEncoding;
+        }
+
+        Validators validators() {
+            return validators;
+        }
+    }
+}
@@ -19,11 +19,14 @@ package spark.staticfiles;
 import java.io.IOException;
 import java.io.InputStream;
 import java.io.OutputStream;
+import java.nio.charset.StandardCharsets;
 import java.util.ArrayList;
+import java.util.Collections;
 import java.util.Date;
 import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
+import java.util.concurrent.ThreadLocalRandom;
 
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
@@ -35,17 +38,29 @@ import spark.resource.AbstractResourceHandler;
 import spark.resource.ClassPathResourceHandler;
 import spark.resource.ExternalResource;
 import spark.resource.ExternalResourceHandler;
+import spark.resource.InputStreamResource;
 import spark.utils.Assert;
 import spark.utils.CompressUtil;
 import spark.utils.IOUtils;
 
 /**
  * Holds the static file configuration.
- * TODO: ETAG ?
+ * <p>
+ * Static files are served with validators (ETag and Last-Modified), answering conditional requests with 304 (Not
+ * Modified), and support Range requests (206 Partial Content).
+ * <p>
+ * The large external files can be memory mapped (see {@link #setMemoryMapped(long, long)}): they are then written
+ * from the mapped memory, without dynamic compression.
  */
 public class StaticFilesConfiguration {
     private final Logger LOG = LoggerFactory.getLogger(StaticFilesConfiguration.class);
 
+    private static final String ACCEPT_RANGES = "Accept-Ranges";
+    private static final String CONTENT_ENCODING = "Content-Encoding";
+    private static final String CONTENT_RANGE = "Content-Range";
+    private static final String RANGE = "Range";
+    private static final String VARY = "Vary";
+
     private List<AbstractResourceHandler> staticResourceHandlers = null;
 
     private boolean staticResourcesSet = false;
@@ -55,6 +70,10 @@ public class StaticFilesConfiguration {
 
     private final Map<String, String> customHeaders = new HashMap<>();
 
+    private volatile StaticFilesCache cache;
+    private volatile boolean precompressed;
+    private volatile MappedFiles mappedFiles;
+
     /**
      * Attempt consuming using either static resource handlers or jar resource handlers
      *
@@ -85,22 +104,56 @@ public class StaticFilesConfiguration {
                                                     HttpServletResponse httpResponse) throws IOException {
         if (staticResourceHandlers != null) {
 
+            StaticFilesCache cache = this.cache;
+            String method = httpRequest.getMethod();
+            boolean getOrHead = isGetOrHead(method);
+            List<String> encodings = precompressed && getOrHead
+                    ? Precompressed.accepted(httpRequest) : Collections.emptyList();
+            String key = null;
+            if (cache != null && getOrHead) {
+                key = StaticFilesCache.key(AbstractResourceHandler.getPathInContext(httpRequest), encodings);
+                StaticFilesCache.Entry cached = cache.get(key);
+                if (cached != null) {
+                    serve(httpRequest, httpResponse, cached);
+                    return true;
+                }
+            }
+
             for (AbstractResourceHandler staticResourceHandler : staticResourceHandlers) {
 
                 AbstractFileResolvingResource resource = staticResourceHandler.getResource(httpRequest);
 
                 if (resource != null && resource.isReadable()) {
 
-                    if (MimeType.shouldGuess()) {
-                        httpResponse.setHeader(MimeType.CONTENT_TYPE, MimeType.fromResource(resource));
+                    String contentType = MimeType.fromResource(resource);
+                    String contentEncoding = null;
+                    Precompressed sibling = Precompressed.find(resource, encodings);
+                    if (sibling != null) {
+                        resource = sibling.resource();
+                        contentEncoding = sibling.encoding();
                     }
-                    customHeaders.forEach(httpResponse::setHeader); //add all user-defined headers to response
 
-                    try (InputStream inputStream = resource.getInputStream();
-                         OutputStream wrappedOutputStream = CompressUtil.checkAndWrap(httpRequest, httpResponse)) {
-                        IOUtils.copy(inputStream, wrappedOutputStream);
+                    StaticFilesCache.Entry cached = key != null
+                            ? cache.load(key, resource, contentType, contentEncoding) : null;
+                    if (cached != null) {
+                        serve(httpRequest, httpResponse, cached);
+                        return true;
                     }
 
+                    setHeaders(httpResponse, contentType, contentEncoding);
+                    Validators validators = getOrHead ? Validators.of(resource) : null;
+                    MappedFiles mappedFiles = this.mappedFiles;
+                    MappedFiles.MappedFile mapped = mappedFiles != null && getOrHead
+                            ? mappedFiles.acquire(resource) : null;
+                    if (mapped == null) {
+                        serve(httpRequest, httpResponse, resource, resource.contentLength(), validators,
+                              contentEncoding == null, null);
+                        return true;
+                    }
+                    serve(httpRequest, httpResponse, resource, mapped.size(), validators, false, mapped);
+                    // Only once written: after a failed write, the connection may still hold a slice of the
+                    // mapping, which is then never unmapped but left to the garbage collector
+                    mapped.release();
                     return true;
                 }
             }
@@ -109,18 +162,172 @@ public class StaticFilesConfiguration {
         return false;
     }
 
+    private void serve(HttpServletRequest httpRequest,
+                       HttpServletResponse httpResponse,
+                       StaticFilesCache.Entry cached) throws IOException {
+        setHeaders(httpResponse, cached.contentType(), cached.contentEncoding());
+        serve(httpRequest, httpResponse, cached, cached.length(), cached.validators(),
+              cached.contentEncoding() == null, null);
+    }
+
+    private void setHeaders(HttpServletResponse httpResponse, String contentType, String contentEncoding) {
+        if (MimeType.shouldGuess()) {
+            httpResponse.setHeader(MimeType.CONTENT_TYPE, contentType);
+        }
+        if (precompressed) {
+            httpResponse.setHeader(VARY, Precompressed.ACCEPT_ENCODING);
+        }
+        if (contentEncoding != null) {
+            // Also keeps the response from being compressed again
+            httpResponse.setHeader(CONTENT_ENCODING, contentEncoding);
+        }
+        customHeaders.forEach(httpResponse::setHeader); //add all user-defined headers to response
+    }
+
+    /**
+     * Serves a resource, answering conditional and Range requests
+     *
+     * @param validators the validators of the resource, null if the method is neither GET nor HEAD
+     * @param compress   false if the resource is already compressed
+     * @param mapped     the mapping of the resource, null if it is not memory mapped
+     */
+    private void serve(HttpServletRequest httpRequest,
+                       HttpServletResponse httpResponse,
+                       InputStreamResource resource,
+                       long length,
+                       Validators validators,
+                       boolean compress,
+                       MappedFiles.MappedFile mapped) throws IOException {
+        if (validators != null) {
+            validators.setHeaders(httpResponse);
+            httpResponse.setHeader(ACCEPT_RANGES, "bytes");
+
+            if (validators.notModified(httpRequest)) {
+                httpResponse.setStatus(HttpServletResponse.SC_NOT_MODIFIED);
+                return;
+            }
+
+            String range = httpRequest.getHeader(RANGE);
+            if ("GET".equals(httpRequest.getMethod()) && range != null && length >= 0
+                    && validators.rangeApplies(httpRequest)) {
+                List<ByteRange> ranges = ByteRange.parse(range, length);
+                if (ranges != null) {
+                    serveRanges(httpResponse, resource, mapped, length, ranges);
+                    return;
+                }
+            }
+        }
+
+        if (!compress) {
+            if (length >= 0) {
+                httpResponse.setContentLengthLong(length);
+            }
+            if (mapped != null) {
+                mapped.write(httpResponse.getOutputStream(), 0, length);
+                return;
+            }
+            try (InputStream inputStream = resource.getInputStream()) {
+                IOUtils.copy(inputStream, httpResponse.getOutputStream());
+            }
+            return;
+        }
+
+        try (InputStream inputStream = resource.getInputStream();
+             OutputStream wrappedOutputStream = CompressUtil.checkAndWrap(httpRequest, httpResponse)) {
+            String encoding = httpResponse.getHeader(CONTENT_ENCODING);
+            if (validators != null && encoding != null && !encoding.isEmpty()) {
+                validators.setEncodedETag(httpResponse, encoding);
+            }
+            IOUtils.copy(inputStream, wrappedOutputStream);
+        }
+    }
+
+    private static boolean isGetOrHead(String method) {
+        return "GET".equals(method) || "HEAD".equals(method);
+    }
+
+    /**
+     * Serves ranges of a resource, uncompressed since the ranges are of the resource itself.
+     */
+    private static void serveRanges(HttpServletResponse httpResponse,
+                                    InputStreamResource resource,
+                                    MappedFiles.MappedFile mapped,
+                                    long length,
+                                    List<ByteRange> ranges) throws IOException {
+        if (ranges.isEmpty()) {
+            httpResponse.setStatus(HttpServletResponse.SC_REQUESTED_RANGE_NOT_SATISFIABLE);
+            httpResponse.setHeader(CONTENT_RANGE, "bytes */" + length);
+            return;
+        }
+
+        httpResponse.setStatus(HttpServletResponse.SC_PARTIAL_CONTENT);
+        if (ranges.size() == 1) {
+            ByteRange range = ranges.get(0);
+            httpResponse.setHeader(CONTENT_RANGE, range.contentRange(length));
+            httpResponse.setContentLengthLong(range.length());
+            copyRange(resource, mapped, httpResponse.getOutputStream(), range);
+            return;
+        }
+
+        String boundary = Long.toHexString(ThreadLocalRandom.current().nextLong());
+        String contentType = httpResponse.getContentType();
+        List<byte[]> partHeaders = new ArrayList<>(ranges.size());
+        long contentLength = 0;
+        for (ByteRange range : ranges) {
+            String partHeader = (partHeaders.isEmpty() ? "" : "\r\n") + "--" + boundary + "\r\n"
+                    + (contentType != null ? MimeType.CONTENT_TYPE + ": " + contentType + "\r\n" : "")
+                    + CONTENT_RANGE + ": " + range.contentRange(length) + "\r\n\r\n";
+            byte[] bytes = partHeader.getBytes(StandardCharsets.US_ASCII);
+            partHeaders.add(bytes);
+            contentLength += bytes.length + range.length();
+        }
+        byte[] end = ("\r\n--" + boundary + "--\r\n").getBytes(StandardCharsets.US_ASCII);
+        contentLength += end.length;
+
+        httpResponse.setContentType("multipart/byteranges; boundary=" + boundary);
+        httpResponse.setContentLengthLong(contentLength);
+        OutputStream outputStream = httpResponse.getOutputStream();
+        for (int i = 0; i < ranges.size(); i++) {
+            ByteRange range = ranges.get(i);
+            outputStream.write(partHeaders.get(i));
+            copyRange(resource, mapped, outputStream, range);
+        }
+        outputStream.write(end);
+    }
+
+    private static void copyRange(InputStreamResource resource,
+                                  MappedFiles.MappedFile mapped,
+                                  OutputStream outputStream,
+                                  ByteRange range) throws IOException {
+        if (mapped != null) {
+            mapped.write(outputStream, range.start(), range.length());
+            return;
+        }
+        try (InputStream inputStream = resource.getInputStream()) {
+            IOUtils.copyLarge(inputStream, outputStream, range.start(), range.length());
+        }
+    }
+
     /**
      * Clears all static file configuration
      */
     public void clear() {
 
         if (staticResourceHandlers != null) {
+            staticResourceHandlers.forEach(AbstractResourceHandler::close);
             staticResourceHandlers.clear();
             staticResourceHandlers = null;
         }
 
         staticResourcesSet = false;
         externalStaticResourcesSet = false;
+
+        if (cache != null) {
+            cache.invalidate();
+        }
+        if (mappedFiles != null) {
+            mappedFiles.clear();
+        }
     }
     
     public boolean isStaticResourcesSet() {
@@ -183,6 +390,51 @@ public class StaticFilesConfiguration {
         customHeaders.put("Expires", new Date(System.currentTimeMillis() + (expireTimeSeconds * 1000)).toString());
     }
 
+    /**
+     * Enables the in-memory cache of static files
+     *
+     * @param maxBytes     the maximum total size of the cached files
+     * @param maxFileBytes the maximum size of a cached file
+     */
+    public void setCache(long maxBytes, long maxFileBytes) {
+        cache = new StaticFilesCache(maxBytes, maxFileBytes);
+    }
+
+    /**
+     * Enables the memory mapping of the large external static files. The mappings are shared by the concurrent
+     * requests, and released when the files change or are evicted (the least recently used first).
+     *
+     * @param minFileBytes   the minimum size of a mapped file
+     * @param maxMappedBytes the maximum total size of the mapped files
+     */
+    public void setMemoryMapped(long minFileBytes, long maxMappedBytes) {
+        MappedFiles previous = mappedFiles;
+        mappedFiles = new MappedFiles(minFileBytes, maxMappedBytes);
+        if (previous != null) {
+            previous.clear();
+        }
+    }
+
+    /**
+     * Sets whether the precompressed siblings of the files ("file.js.br", "file.js.zst", "file.js.gz") are served
+     * to the clients accepting their encoding
+     *
+     * @param precompressed true to serve the precompressed files
+     */
+    public void setPrecompressed(boolean precompressed) {
+        this.precompressed = precompressed;
+        if (cache != null) {
+            cache.invalidate();
+        }
+    }
+
+    /**
+     * @return the in-memory cache of static files, null if not enabled
+     */
+    public StaticFilesCache getCache() {
+        return cache;
+    }
+
     public void putCustomHeaders(Map<String, String> headers) {
         customHeaders.putAll(headers);
     }
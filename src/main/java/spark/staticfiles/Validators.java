@@ -0,0 +1,231 @@
+/*
+ * Copyright 2011- Per Wendel
+ *
+ *  Licensed under the Apache License, Version 2.0 (the "License");
+ *  you may not use this file except in compliance with the License.
+ *  You may obtain a copy of the License at
+ *
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package spark.staticfiles;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+import jakarta.servlet.http.HttpServletRequest;
+import jakarta.servlet.http.HttpServletResponse;
+import spark.resource.AbstractFileResolvingResource;
+import spark.resource.ClassPathResource;
+
+/**
+ * The validators (ETag and Last-Modified) of a static resource, and the conditional requests checks using them.
+ * <p>
+ * The ETag of a file is made of its size and modification time. The ETag of a class path resource is a hash of its
+ * content (a jar only gives the modification time of the whole jar), computed once.
+ */
+final class Validators {
+
+    static final String ETAG = "ETag";
+    static final String LAST_MODIFIED = "Last-Modified";
+
+    private static final String IF_NONE_MATCH = "If-None-Match";
+    private static final String IF_MODIFIED_SINCE = "If-Modified-Since";
+    private static final String IF_RANGE = "If-Range";
+
+    // By URL: only the hash of the latest version of a resource is kept, so changing resources do not add entries
+    private static final Map<String, ContentHash> CONTENT_HASHES = new ConcurrentHashMap<>();
+
+    private final String etag;
+    private final long lastModified;
+
+    private Validators(String etag, long lastModified) {
+        this.etag = etag;
+        this.lastModified = lastModified;
+    }
+
+    /**
+     * @param resource the resource
+     * @return its validators
+     * @throws IOException when the resource can't be read
+     */
+    static Validators of(AbstractFileResolvingResource resource) throws IOException {
+        long length = resource.contentLength();
+        long lastModified = lastModified(resource);
+
+        String etag;
+        if (resource instanceof ClassPathResource) {
+            String url = resource.getURL().toString();
+            ContentHash hash = CONTENT_HASHES.get(url);
+            if (hash == null || hash.length != length || hash.lastModified != lastModified) {
+                hash = new ContentHash(length, lastModified, contentHash(resource));
+                CONTENT_HASHES.put(url, hash);
+            }
+            etag = hash.etag;
+        } else {
+            etag = "\"" + Long.toHexString(length) + "-" + Long.toHexString(lastModified) + "\"";
+        }
+        return new Validators(etag, lastModified);
+    }
+
+    /**
+     * @return the number of class path resources whose content hash is kept
+     */
+    static int contentHashes() {
+        return CONTENT_HASHES.size();
+    }
+
+    private static long lastModified(AbstractFileResolvingResource resource) {
+        try {
+            return resource.lastModified();
+        } catch (IOException e) {
+            return -1;
+        }
+    }
+
+    private static String contentHash(AbstractFileResolvingResource resource) throws IOException {
+        MessageDigest digest;
+        try {
+            digest = MessageDigest.getInstance("SHA-256");
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException(e);
+        }
+        try (InputStream input = resource.getInputStream()) {
+            byte[] buffer = new byte[8192];
+            int count;
+            while ((count = input.read(buffer)) != -1) {
+                digest.update(buffer, 0, count);
+            }
+        }
+        StringBuilder etag = new StringBuilder("\"");
+        byte[] hash = digest.digest();
+        for (int i = 0; i < 16; i++) {
+            etag.append(Character.forDigit((hash[i] >> 4) & 0xF, 16)).append(Character.forDigit(hash[i] & 0xF, 16));
+        }
+        return etag.append('"').toString();
+    }
+
+    /**
+     * @return the ETag (quoted)
+     */
+    String etag() {
+        return etag;
+    }
+
+    /**
+     * @return the last modification time, -1 if unknown
+     */
+    long lastModified() {
+        return lastModified;
+    }
+
+    /**
+     * Sets the ETag and Last-Modified headers
+     *
+     * @param response the response
+     */
+    void setHeaders(HttpServletResponse response) {
+        response.setHeader(ETAG, etag);
+        if (lastModified > 0) {
+            response.setDateHeader(LAST_MODIFIED, lastModified);
+        }
+    }
+
+    /**
+     * Sets the ETag of the response when its content is encoded (ie: compressed), since it is then another
+     * representation of the resource.
+     *
+     * @param response the response
+     * @param encoding the content encoding
+     */
+    void setEncodedETag(HttpServletResponse response, String encoding) {
+        response.setHeader(ETAG, etag.substring(0, etag.length() - 1) + "--" + encoding + "\"");
+    }
+
+    /**
+     * @param request the request
+     * @return true if the client has the current version of the resource (If-None-Match, or If-Modified-Since when
+     * there is no If-None-Match)
+     */
+    boolean notModified(HttpServletRequest request) {
+        String ifNoneMatch = request.getHeader(IF_NONE_MATCH);
+        if (ifNoneMatch != null) {
+            for (String tag : ifNoneMatch.split(",")) {
+                tag = tag.trim();
+                if (tag.equals("*") || weakMatch(tag)) {
+                    return true;
+                }
+            }
+            return false;
+        }
+
+        long ifModifiedSince = dateHeader(request, IF_MODIFIED_SINCE);
+        // Dates have a precision of one second
+        return ifModifiedSince > 0 && lastModified > 0 && lastModified / 1000 <= ifModifiedSince / 1000;
+    }
+
+    /**
+     * @param request the request
+     * @return true if a Range of the request applies to the current version of the resource (the request has no
+     * If-Range, or it matches the resource)
+     */
+    boolean rangeApplies(HttpServletRequest request) {
+        String ifRange = request.getHeader(IF_RANGE);
+        if (ifRange == null) {
+            return true;
+        }
+        ifRange = ifRange.trim();
+        if (ifRange.startsWith("\"")) {
+            // Strong comparison
+            return ifRange.equals(etag);
+        }
+        long date = dateHeader(request, IF_RANGE);
+        return date > 0 && lastModified > 0 && lastModified / 1000 == date / 1000;
+    }
+
+    private boolean weakMatch(String tag) {
+        if (tag.startsWith("W/")) {
+            tag = tag.substring(2);
+        }
+        // The ETag of an encoded representation
+        int encoding = tag.indexOf("--");
+        if (encoding > 0 && tag.endsWith("\"")) {
+            tag = tag.substring(0, encoding) + "\"";
+        }
+        return tag.equals(etag);
+    }
+
+    private static long dateHeader(HttpServletRequest request, String name) {
+        try {
+            return request.getDateHeader(name);
+        } catch (IllegalArgumentException e) {
+            return -1;
+        }
+    }
+
+    /**
+     * The content hash of a version (length and modification time) of a class path resource
+     */
+    private static final class ContentHash {
+
+        private final long length;
+        private final long lastModified;
+        private final String etag;
+
+        private ContentHash(long length, long lastModified, String etag) {
+            this.length = length;
+            this.lastModified = lastModified;
+            this.etag = etag;
+        }
+    }
+}
@@ -17,6 +17,7 @@
 package spark.utils;
 
 import java.io.ByteArrayOutputStream;
+import java.io.EOFException;
 import java.io.IOException;
 import java.io.InputStream;
 import java.io.InputStreamReader;
@@ -25,6 +26,9 @@ import java.io.PrintWriter;
 import java.io.Reader;
 import java.io.StringWriter;
 import java.io.Writer;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
 
 /**
  * General IO stream manipulation utilities.
@@ -89,6 +93,11 @@ public final class IOUtils {
      */
     private static final int DEFAULT_BUFFER_SIZE = 1024 * 4;
 
+    /**
+     * The maximum size of an array (some VMs reserve header words in an array).
+     */
+    private static final int MAX_ARRAY_SIZE = Integer.MAX_VALUE - 8;
+
     private IOUtils() {
     }
 
@@ -128,12 +137,94 @@ public final class IOUtils {
      *             if an I/O error occurs
      */
     public static byte[] toByteArray(InputStream input) throws IOException {
-        ByteArrayOutputStream os = new ByteArrayOutputStream();
-        byte[] buf = new byte[1024];
-        for (int n = input.read(buf); n != -1; n = input.read(buf)) {
-            os.write(buf, 0, n);
+        return readChunks(input);
+    }
+
+    /**
+     * Get the contents of an <code>InputStream</code> as a ByteArray, when its length is known
+     * (ie: the Content-Length of a request body).
+     * <p>
+     * A small content (up to {@link BufferPool#BUFFER_SIZE}) is read straight into an array of the expected length,
+     * so it is not copied. A larger one, or one of unknown length (negative), is read in pooled chunks copied once
+     * into the result: the length is declared by the client, so nothing is allocated for the bytes which have not
+     * arrived yet. The length is only a hint: a shorter or longer content is still read entirely.
+     *
+     * @param input          the <code>InputStream</code> to read from
+     * @param expectedLength the expected length of the content, negative if unknown
+     * @return the byte array
+     * @throws NullPointerException if the input is null
+     * @throws IOException          if an I/O error occurs
+     */
+    public static byte[] toByteArray(InputStream input, long expectedLength) throws IOException {
+        if (expectedLength < 0 || expectedLength > BufferPool.BUFFER_SIZE) {
+            return readChunks(input);
+        }
+
+        byte[] bytes = new byte[(int) expectedLength];
+        int count = 0;
+        int n;
+        while (count < bytes.length && (n = input.read(bytes, count, bytes.length - count)) != -1) {
+            count += n;
+        }
+        if (count < bytes.length) {
+            return Arrays.copyOf(bytes, count);
+        }
+
+        int next = input.read();
+        if (next == -1) {
+            return bytes;
+        }
+        // Longer than expected
+        byte[] rest = readChunks(input);
+        if ((long) bytes.length + 1 + rest.length > MAX_ARRAY_SIZE) {
+            throw new IOException("Content too large to fit in an array");
+        }
+        byte[] result = Arrays.copyOf(bytes, bytes.length + 1 + rest.length);
+        result[bytes.length] = (byte) next;
+        System.arraycopy(rest, 0, result, bytes.length + 1, rest.length);
+        return result;
+    }
+
+    /**
+     * Reads the content in buffers of the {@link BufferPool}, then copies them once into an array of the exact size
+     * (a growing <code>ByteArrayOutputStream</code> copies the content each time it grows, and once more at the end).
+     */
+    private static byte[] readChunks(InputStream input) throws IOException {
+        List<byte[]> chunks = new ArrayList<>();
+        try {
+            long total = 0;
+            byte[] chunk = null;
+            int chunkLength = 0;
+            int n;
+            do {
+                if (chunk == null || chunkLength == chunk.length) {
+                    chunk = BufferPool.acquire();
+                    chunks.add(chunk);
+                    chunkLength = 0;
+                }
+                n = input.read(chunk, chunkLength, chunk.length - chunkLength);
+                if (n > 0) {
+                    chunkLength += n;
+                    total += n;
+                    if (total > MAX_ARRAY_SIZE) {
+                        throw new IOException("Content too large to fit in an array");
+                    }
+                }
+            } while (n != -1);
+
+            byte[] result = new byte[(int) total];
+            int position = 0;
+            for (byte[] full : chunks) {
+                int length = Math.min(full.length, result.length - position);
+                System.arraycopy(full, 0, result, position, length);
+                position += length;
+            }
+            return result;
+        } finally {
+            for (byte[] chunk : chunks) {
+                BufferPool.release(chunk);
+            }
         }
-        return os.toByteArray();
     }
 
     /**
@@ -190,6 +281,42 @@ public final class IOUtils {
         return count;
     }
 
+    /**
+     * Copies some or all bytes from a large (over 2GB) <code>InputStream</code> to an
+     * <code>OutputStream</code>, optionally skipping input bytes.
+     * <p>
+     * This method uses a buffer of the {@link BufferPool}, so there is no need to use a
+     * <code>BufferedInputStream</code>.
+     *
+     * @param input       the <code>InputStream</code> to read from
+     * @param output      the <code>OutputStream</code> to write to
+     * @param inputOffset number of bytes to skip from input before copying
+     * @param length      number of bytes to copy
+     * @return the number of bytes copied
+     * @throws NullPointerException if the input or output is null
+     * @throws IOException          if an I/O error occurs, or the input ends before the bytes to copy
+     * @since Commons IO 2.2
+     */
+    public static long copyLarge(final InputStream input, final OutputStream output, final long inputOffset,
+                                 final long length) throws IOException {
+        input.skipNBytes(inputOffset);
+        byte[] buffer = BufferPool.acquire();
+        try {
+            long remaining = length;
+            while (remaining > 0) {
+                int n = input.read(buffer, 0, (int) Math.min(buffer.length, remaining));
+                if (n == -1) {
+                    throw new EOFException("Unexpected end of the input: " + remaining + " bytes missing");
+                }
+                output.write(buffer, 0, n);
+                remaining -= n;
+            }
+        } finally {
+            BufferPool.release(buffer);
+        }
+        return length;
+    }
+
     /**
      * Copy bytes from an <code>InputStream</code> to chars on a
      * <code>Writer</code> using the default character encoding of the platform.
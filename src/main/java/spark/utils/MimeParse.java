@@ -1,14 +1,20 @@
 package spark.utils;
 
+import java.util.ArrayList;
 import java.util.Collection;
 import java.util.Collections;
 import java.util.HashMap;
+import java.util.Iterator;
 import java.util.LinkedList;
 import java.util.List;
 import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
 
 /**
  * MIME-Type Parser
+ * <p>
+ * The results of the negotiations are cached: clients send only a few distinct Accept headers, so most
+ * negotiations end up being a lookup.
  */
 public class MimeParse {
 
@@ -17,6 +23,95 @@ public class MimeParse {
      */
     public static final String NO_MIME_TYPE = "";
 
+    // When this number of negotiations is reached, the cache is cleared (ie: if clients send random headers)
+    private static final int MAX_CACHED_NEGOTIATIONS = 1024;
+
+    private static final Map<Negotiation, String> NEGOTIATIONS = new ConcurrentHashMap<>();
+
+    /**
+     * A media range parsed once (ie: the accept type of a route when it is mapped),
+     * to be negotiated against Accept headers.
+     */
+    public static final class MediaRange {
+
+        private final String mimeType;
+        private final List<String> asList;
+        private final ParseResults parsed;
+
+        private MediaRange(String mimeType) {
+            this.mimeType = mimeType;
+            this.asList = Collections.singletonList(mimeType);
+            this.parsed = parseMediaRange(mimeType);
+        }
+
+        /**
+         * @return the mime type
+         */
+        public String mimeType() {
+            return mimeType;
+        }
+
+        @Override
+        public String toString() {
+            return mimeType;
+        }
+    }
+
+    /**
+     * Cache key: the header and the supported types, in iteration order (which matters when they are as good)
+     */
+    private static final class Negotiation {
+
+        private final String header;
+        private final Collection<String> supported;
+        private final int hash;
+
+        private Negotiation(String header, Collection<String> supported) {
+            this.header = header;
+            this.supported = supported;
+            int h = header.hashCode();
+            for (String type : supported) {
+                h = 31 * h + type.hashCode();
+            }
+            this.hash = h;
+        }
+
+        // The supported types of the caller may be changed afterwards
+        private Negotiation copy() {
+            return new Negotiation(header, Collections.unmodifiableList(new ArrayList<>(supported)));
+        }
+
+        @Override
+        public int hashCode() {
+            return hash;
+        }
+
+        @Override
+        public boolean equals(Object o) {
+            if (this == o) {
+                return true;
+            }
+            if (!(o instanceof Negotiation)) {
+                return false;
+            }
+            Negotiation other = (Negotiation) o;
+            return hash == other.hash && header.equals(other.header) && sameSequence(supported, other.supported);
+        }
+
+        private static boolean sameSequence(Collection<String> first, Collection<String> second) {
+            if (first.size() != second.size()) {
+                return false;
+            }
+            Iterator<String> others = second.iterator();
+            for (String type : first) {
+                if (!type.equals(others.next())) {
+                    return false;
+                }
+            }
+            return true;
+        }
+    }
+
     /**
      * Parse results container
      */
@@ -135,10 +230,9 @@ public class MimeParse {
      * @param mimeType Mime Type
      * @param parsedRanges Parsed ranges
      */
-    private static FitnessAndQuality fitnessAndQualityParsed(String mimeType, Collection<ParseResults> parsedRanges) {
+    private static FitnessAndQuality fitnessAndQualityParsed(ParseResults target, Collection<ParseResults> parsedRanges) {
         int bestFitness = -1;
         float bestFitQ = 0;
-        ParseResults target = parseMediaRange(mimeType);
 
         for (ParseResults range : parsedRanges) {
             if ((target.type.equals(range.type) || range.type.equals("*") || target.type.equals("*"))
@@ -163,6 +257,16 @@ public class MimeParse {
         return new FitnessAndQuality(bestFitness, bestFitQ);
     }
 
+    /**
+     * Parses a media range, to be negotiated with {@link #accepts(MediaRange, String)}
+     *
+     * @param mimeType the mime type
+     * @return the parsed media range
+     */
+    public static MediaRange mediaRange(String mimeType) {
+        return new MediaRange(mimeType);
+    }
+
     /**
      * Finds best match
      *
@@ -171,14 +275,51 @@ public class MimeParse {
      * @return the best match
      */
     public static String bestMatch(Collection<String> supported, String header) {
+        Negotiation negotiation = new Negotiation(header, supported);
+        String bestMatch = NEGOTIATIONS.get(negotiation);
+        if (bestMatch == null) {
+            List<ParseResults> targets = new ArrayList<>(supported.size());
+            for (String s : supported) {
+                targets.add(parseMediaRange(s));
+            }
+            bestMatch = negotiate(supported, targets, header);
+            cache(negotiation.copy(), bestMatch);
+        }
+        return bestMatch;
+    }
+
+    /**
+     * Checks if a (parsed) supported type is accepted by the header
+     *
+     * @param supported the supported type
+     * @param header    the header
+     * @return true if the type is accepted, ie: its best match is not {@link #NO_MIME_TYPE}
+     */
+    public static boolean accepts(MediaRange supported, String header) {
+        // The most common headers are accepted without negotiating (nor allocating a cache key)
+        if ("*/*".equals(header) || (header.equals(supported.mimeType) && header.indexOf(';') < 0)) {
+            return true;
+        }
+        Negotiation negotiation = new Negotiation(header, supported.asList);
+        String bestMatch = NEGOTIATIONS.get(negotiation);
+        if (bestMatch == null) {
+            bestMatch = negotiate(supported.asList, Collections.singletonList(supported.parsed), header);
+            // The key only holds immutable values
+            cache(negotiation, bestMatch);
+        }
+        return !NO_MIME_TYPE.equals(bestMatch);
+    }
+
+    private static String negotiate(Collection<String> supported, List<ParseResults> targets, String header) {
         List<ParseResults> parseResults = new LinkedList<>();
         List<FitnessAndQuality> weightedMatches = new LinkedList<>();
         for (String r : header.split(",")) {
             parseResults.add(parseMediaRange(r));
         }
 
+        Iterator<ParseResults> target = targets.iterator();
         for (String s : supported) {
-            FitnessAndQuality fitnessAndQuality = fitnessAndQualityParsed(s, parseResults);
+            FitnessAndQuality fitnessAndQuality = fitnessAndQualityParsed(target.next(), parseResults);
             fitnessAndQuality.mimeType = s;
             weightedMatches.add(fitnessAndQuality);
         }
@@ -188,6 +329,13 @@ public class MimeParse {
         return Float.compare(lastOne.quality, 0) != 0 ? lastOne.mimeType : NO_MIME_TYPE;
     }
 
+    private static void cache(Negotiation negotiation, String bestMatch) {
+        if (NEGOTIATIONS.size() >= MAX_CACHED_NEGOTIATIONS) {
+            NEGOTIATIONS.clear();
+        }
+        NEGOTIATIONS.put(negotiation, bestMatch);
+    }
+
     private static boolean isBlank(String s) {
         return s == null || "".equals(s.trim());
     }
@@ -0,0 +1,159 @@
+package spark;
+
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Queue;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.Executor;
+import java.util.concurrent.TimeUnit;
+
+import org.junit.AfterClass;
+import org.junit.BeforeClass;
+import org.junit.Test;
+
+import spark.route.HttpMethod;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+public class AsyncRoutesTest {
+
+    private static final int MAX_THREADS = 16;
+    private static final int CONCURRENT_REQUESTS = 4 * MAX_THREADS;
+
+    private static final Executor DELAYED = CompletableFuture.delayedExecutor(50, TimeUnit.MILLISECONDS);
+    private static final Queue<CompletableFuture<String>> PENDING = new ConcurrentLinkedQueue<>();
+    private static final Queue<String> AFTER_AFTER = new ConcurrentLinkedQueue<>();
+    private static final Queue<Boolean> CANCELLED = new ConcurrentLinkedQueue<>();
+
+    private static Service service;
+    private static HttpClient client;
+
+    @BeforeClass
+    public static void setup() {
+        service = Service.ignite().port(0).threadPool(MAX_THREADS);
+
+        service.get("/hello", (request, response) ->
+                CompletableFuture.supplyAsync(() -> "Hello " + request.queryParams("name"), DELAYED));
+        service.get("/json", (request, response) ->
+                CompletableFuture.supplyAsync(() -> "json", DELAYED), model -> "{\"value\":\"" + model + "\"}");
+        service.get("/failed", (request, response) -> CompletableFuture.supplyAsync(() -> {
+            throw new IllegalStateException("backend down");
+        }, DELAYED));
+        service.get("/halted", (request, response) -> CompletableFuture.supplyAsync(() -> {
+            service.halt(418, "teapot");
+            return null;
+        }, DELAYED));
+        service.get("/pending", (request, response) -> {
+            CompletableFuture<String> result = new CompletableFuture<>();
+            PENDING.add(result);
+            return result;
+        });
+        service.asyncTimeout(100, () -> service.get("/slow", (request, response) -> new CompletableFuture<String>()));
+        service.addRoute(HttpMethod.get, RouteImpl.create("/slow/route", (request, response) -> {
+            CompletableFuture<String> result = new CompletableFuture<>();
+            result.whenComplete((value, failure) -> CANCELLED.add(result.isCancelled()));
+            return result;
+        }).withAsyncTimeout(100));
+
+        service.after("/hello", (request, response) -> response.header("X-After", "done"));
+        service.afterAfter((request, response) -> AFTER_AFTER.add(request.uri()));
+        service.exception(IllegalStateException.class, (exception, request, response) -> {
+            response.status(502);
+            response.body(exception.getMessage());
+        });
+        service.awaitInitialization();
+
+        client = HttpClient.newHttpClient();
+    }
+
+    @AfterClass
+    public static void tearDown() {
+        service.stop();
+        service.awaitStop();
+    }
+
+    @Test
+    public void testAsyncRoute_FiltersRunWhenStageCompletes() throws Exception {
+        HttpResponse<String> response = get("/hello?name=async");
+
+        assertEquals(200, response.statusCode());
+        assertEquals("Hello async", response.body());
+        assertEquals("done", response.headers().firstValue("X-After").orElse(null));
+        assertTrue(AFTER_AFTER.contains("/hello"));
+    }
+
+    @Test
+    public void testAsyncRoute_ResultIsRendered() throws Exception {
+        assertEquals("{\"value\":\"json\"}", get("/json").body());
+    }
+
+    @Test
+    public void testAsyncRoute_FailureIsMapped() throws Exception {
+        HttpResponse<String> response = get("/failed");
+
+        assertEquals(502, response.statusCode());
+        assertEquals("backend down", response.body());
+    }
+
+    @Test
+    public void testAsyncRoute_Halt() throws Exception {
+        HttpResponse<String> response = get("/halted");
+
+        assertEquals(418, response.statusCode());
+        assertEquals("teapot", response.body());
+    }
+
+    @Test
+    public void testAsyncRoute_Timeout() throws Exception {
+        assertEquals(503, get("/slow").statusCode());
+        assertEquals(503, get("/slow/route").statusCode());
+        // The stage is cancelled, so the work behind it can stop
+        assertEquals(Boolean.TRUE, CANCELLED.poll());
+        assertTrue(AFTER_AFTER.contains("/slow"));
+        assertTrue(AFTER_AFTER.contains("/slow/route"));
+    }
+
+    @Test
+    public void testAsyncRoute_DefaultTimeout() {
+        RouteImpl route = RouteImpl.create("/default", (request, response) -> new CompletableFuture<String>());
+
+        assertEquals(RouteImpl.DEFAULT_ASYNC_TIMEOUT, route.getAsyncTimeout());
+        assertEquals(0, route.withAsyncTimeout(0).getAsyncTimeout());
+    }
+
+    @Test
+    public void testAsyncRoutes_ContainerThreadsReleased() throws Exception {
+        URI uri = URI.create("http://localhost:" + service.port() + "/pending");
+
+        List<CompletableFuture<HttpResponse<String>>> responses = new ArrayList<>();
+        for (int i = 0; i < CONCURRENT_REQUESTS; i++) {
+            responses.add(client.sendAsync(HttpRequest.newBuilder(uri).build(), HttpResponse.BodyHandlers.ofString()));
+        }
+
+        // All the requests are pending at once, more than the threads of the pool could hold
+        long deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(10);
+        while (PENDING.size() < CONCURRENT_REQUESTS && System.nanoTime() < deadline) {
+            Thread.sleep(10);
+        }
+        assertEquals(CONCURRENT_REQUESTS, PENDING.size());
+
+        CompletableFuture<String> result;
+        while ((result = PENDING.poll()) != null) {
+            result.complete("done");
+        }
+        for (CompletableFuture<HttpResponse<String>> response : responses) {
+            assertEquals("done", response.get(10, TimeUnit.SECONDS).body());
+        }
+    }
+
+    private static HttpResponse<String> get(String path) throws Exception {
+        URI uri = URI.create("http://localhost:" + service.port() + path);
+        return client.send(HttpRequest.newBuilder(uri).build(), HttpResponse.BodyHandlers.ofString());
+    }
+}
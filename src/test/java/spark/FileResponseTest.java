@@ -0,0 +1,115 @@
+package spark;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.security.MessageDigest;
+import java.util.Random;
+
+import org.junit.AfterClass;
+import org.junit.BeforeClass;
+import org.junit.Test;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+
+public class FileResponseTest {
+
+    // Several segments of the mapped file
+    private static final int LARGE_SIZE = 40 * 1024 * 1024 + 123;
+
+    private static Path large;
+    private static Path json;
+    private static Service service;
+    private static HttpClient client;
+
+    @BeforeClass
+    public static void setup() throws IOException {
+        large = Files.createTempFile("spark-large-", ".bin");
+        byte[] content = new byte[LARGE_SIZE];
+        new Random(42).nextBytes(content);
+        Files.write(large, content);
+        json = Files.createTempFile("spark-data-", ".json");
+        Files.write(json, "{\"value\":1}".getBytes(StandardCharsets.UTF_8));
+
+        service = Service.ignite().port(0);
+        service.get("/large", (request, response) -> large);
+        service.get("/json", (request, response) -> json.toFile());
+        service.get("/typed", (request, response) -> {
+            response.type("text/plain");
+            return json;
+        });
+        service.get("/channel", (request, response) -> FileChannel.open(json).position(9));
+        service.awaitInitialization();
+
+        client = HttpClient.newHttpClient();
+    }
+
+    @AfterClass
+    public static void tearDown() throws IOException {
+        service.stop();
+        service.awaitStop();
+        Files.deleteIfExists(large);
+        Files.deleteIfExists(json);
+    }
+
+    @Test
+    public void testPath_LargeFile() throws Exception {
+        HttpResponse<InputStream> response = client.send(request("/large"), HttpResponse.BodyHandlers.ofInputStream());
+
+        assertEquals(200, response.statusCode());
+        assertEquals(String.valueOf(LARGE_SIZE), response.headers().firstValue("Content-Length").orElse(null));
+        assertEquals("application/octet-stream", response.headers().firstValue("Content-Type").orElse(null));
+        try (InputStream body = response.body()) {
+            assertArrayEquals(sha256(Files.newInputStream(large)), sha256(body));
+        }
+    }
+
+    @Test
+    public void testFile_ContentTypeGuessed() throws Exception {
+        HttpResponse<String> response = client.send(request("/json"), HttpResponse.BodyHandlers.ofString());
+
+        assertEquals("{\"value\":1}", response.body());
+        assertEquals("11", response.headers().firstValue("Content-Length").orElse(null));
+        assertEquals("application/json", response.headers().firstValue("Content-Type").orElse(null));
+    }
+
+    @Test
+    public void testPath_ContentTypeSetByRoute() throws Exception {
+        HttpResponse<String> response = client.send(request("/typed"), HttpResponse.BodyHandlers.ofString());
+
+        assertEquals("{\"value\":1}", response.body());
+        assertEquals("text/plain", response.headers().firstValue("Content-Type").orElse(null));
+    }
+
+    @Test
+    public void testFileChannel() throws Exception {
+        HttpResponse<String> response = client.send(request("/channel"), HttpResponse.BodyHandlers.ofString());
+
+        assertEquals("1}", response.body());
+        assertEquals("2", response.headers().firstValue("Content-Length").orElse(null));
+    }
+
+    private static HttpRequest request(String path) {
+        return HttpRequest.newBuilder(URI.create("http://localhost:" + service.port() + path)).build();
+    }
+
+    private static byte[] sha256(InputStream input) throws Exception {
+        MessageDigest digest = MessageDigest.getInstance("SHA-256");
+        try (InputStream in = input) {
+            byte[] buffer = new byte[64 * 1024];
+            int count;
+            while ((count = in.read(buffer)) >= 0) {
+                digest.update(buffer, 0, count);
+            }
+        }
+        return digest.digest();
+    }
+}
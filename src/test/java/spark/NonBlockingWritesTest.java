@@ -0,0 +1,172 @@
+package spark;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.net.InetSocketAddress;
+import java.net.Socket;
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+import org.junit.AfterClass;
+import org.junit.BeforeClass;
+import org.junit.Test;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+/**
+ * Slow clients (which don't read their response) must not hold the threads of the pool.
+ */
+public class NonBlockingWritesTest {
+
+    private static final int MAX_THREADS = 16;
+    private static final int SLOW_CLIENTS = 2 * MAX_THREADS;
+    // Larger than what the socket buffers can hold
+    private static final int BODY_SIZE = 16 * 1024 * 1024;
+
+    private static final byte[] BYTES = new byte[BODY_SIZE];
+    private static final List<String> PATHS = Arrays.asList("/bytes", "/stream", "/file", "/direct");
+
+    private static Service service;
+    private static Path file;
+
+    @BeforeClass
+    public static void setup() throws IOException {
+        Arrays.fill(BYTES, (byte) 'x');
+        file = Files.createTempFile("spark-non-blocking-", ".bin");
+        Files.write(file, BYTES);
+        ByteBuffer direct = ByteBuffer.allocateDirect(BODY_SIZE).put(BYTES).flip();
+
+        service = Service.ignite().port(0).threadPool(MAX_THREADS).nonBlockingWrites();
+        service.get("/bytes", (request, response) -> BYTES);
+        service.get("/stream", (request, response) -> new GeneratedInputStream(BODY_SIZE));
+        service.get("/file", (request, response) -> file);
+        service.get("/direct", (request, response) -> direct.duplicate());
+        service.get("/hello", (request, response) -> "Hello");
+        service.awaitInitialization();
+    }
+
+    @AfterClass
+    public static void tearDown() throws IOException {
+        service.stop();
+        service.awaitStop();
+        Files.deleteIfExists(file);
+    }
+
+    @Test
+    public void testSlowClients_DoNotHoldThreads() throws Exception {
+        List<Socket> slowClients = new ArrayList<>();
+        try {
+            for (int i = 0; i < SLOW_CLIENTS; i++) {
+                slowClients.add(request(PATHS.get(i % PATHS.size())));
+            }
+            // Let the server fill the socket buffers
+            Thread.sleep(500);
+
+            assertTrue("Slow clients should not hold threads: " + service.activeThreadCount(),
+                       service.activeThreadCount() < MAX_THREADS);
+
+            HttpClient client = HttpClient.newBuilder().connectTimeout(Duration.ofSeconds(5)).build();
+            HttpResponse<String> response = client.send(
+                    HttpRequest.newBuilder(URI.create("http://localhost:" + service.port() + "/hello"))
+                            .timeout(Duration.ofSeconds(5)).build(),
+                    HttpResponse.BodyHandlers.ofString());
+            assertEquals("Hello", response.body());
+
+            // The slow clients eventually get their whole body
+            for (Socket socket : slowClients) {
+                long read = readBody(socket.getInputStream());
+                assertTrue("Incomplete body: " + read, read >= BODY_SIZE);
+            }
+        } finally {
+            for (Socket socket : slowClients) {
+                socket.close();
+            }
+        }
+    }
+
+    @Test
+    public void testBodies_WrittenEntirely() throws Exception {
+        HttpClient client = HttpClient.newHttpClient();
+        for (String path : PATHS) {
+            HttpResponse<byte[]> response = client.send(
+                    HttpRequest.newBuilder(URI.create("http://localhost:" + service.port() + path)).build(),
+                    HttpResponse.BodyHandlers.ofByteArray());
+            assertEquals(200, response.statusCode());
+            assertTrue(Arrays.equals(BYTES, response.body()));
+        }
+    }
+
+    private static Socket request(String path) throws IOException {
+        Socket socket = new Socket();
+        socket.setReceiveBufferSize(4096);
+        socket.connect(new InetSocketAddress("localhost", service.port()));
+        socket.setSoTimeout(30_000);
+        OutputStream output = socket.getOutputStream();
+        output.write(("GET " + path + " HTTP/1.1\r\nHost: localhost\r\nConnection: close\r\n\r\n")
+                             .getBytes(StandardCharsets.US_ASCII));
+        output.flush();
+        return socket;
+    }
+
+    /**
+     * @return the number of bytes after the headers (the body, with the chunks framing if it is chunked)
+     */
+    private static long readBody(InputStream input) throws IOException {
+        StringBuilder headers = new StringBuilder();
+        while (headers.indexOf("\r\n\r\n") < 0) {
+            int b = input.read();
+            assertTrue("Unexpected end of the headers", b >= 0);
+            headers.append((char) b);
+        }
+        assertTrue(headers.toString(), headers.toString().startsWith("HTTP/1.1 200"));
+
+        byte[] buffer = new byte[64 * 1024];
+        long read = 0;
+        int count;
+        while ((count = input.read(buffer)) >= 0) {
+            read += count;
+        }
+        return read;
+    }
+
+    private static class GeneratedInputStream extends InputStream {
+
+        private long remaining;
+
+        GeneratedInputStream(long size) {
+            this.remaining = size;
+        }
+
+        @Override
+        public int read() {
+            if (remaining <= 0) {
+                return -1;
+            }
+            remaining--;
+            return 'x';
+        }
+
+        @Override
+        public int read(byte[] b, int off, int len) {
+            if (remaining <= 0) {
+                return -1;
+            }
+            int count = (int) Math.min(len, remaining);
+            Arrays.fill(b, off, off + count, (byte) 'x');
+            remaining -= count;
+            return count;
+        }
+    }
+}
@@ -0,0 +1,130 @@
+package spark;
+
+import java.io.ByteArrayInputStream;
+import java.io.InputStream;
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.util.Optional;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.junit.AfterClass;
+import org.junit.BeforeClass;
+import org.junit.Test;
+
+import spark.route.HttpMethod;
+
+import static org.junit.Assert.assertEquals;
+
+public class RequestBodyTest {
+
+    private static final int MAX_BODY_SIZE = 1024;
+
+    private static Service service;
+    private static HttpClient client;
+
+    private static final AtomicInteger filterCalls = new AtomicInteger();
+
+    @BeforeClass
+    public static void setup() {
+        service = Service.ignite().port(0);
+
+        service.post("/stream", (request, response) -> {
+            long size = 0;
+            try (InputStream body = request.bodyStream()) {
+                byte[] buffer = new byte[8192];
+                int count;
+                while ((count = body.read(buffer)) >= 0) {
+                    size += count;
+                }
+            }
+            return size;
+        });
+        service.post("/cached", (request, response) -> request.body().length() + "/" + request.bodyStream().available());
+        service.maxBodySize(MAX_BODY_SIZE, () -> {
+            service.post("/limited", (request, response) -> request.body().length());
+            service.post("/limited/stream", (request, response) -> request.bodyStream().readAllBytes().length);
+        });
+        service.addRoute(HttpMethod.post, RouteImpl.create("/never-read", (request, response) -> "not read")
+                .withMaxBodySize(MAX_BODY_SIZE));
+        service.before("/filtered", (request, response) -> {
+            filterCalls.incrementAndGet();
+            request.body();
+        });
+        service.addRoute(HttpMethod.post, RouteImpl.create("/filtered", (request, response) -> request.body().length())
+                .withMaxBodySize(MAX_BODY_SIZE));
+        service.post("/halted", (request, response) -> {
+            throw Spark.halt(413, "halted");
+        });
+        service.awaitInitialization();
+
+        client = HttpClient.newHttpClient();
+    }
+
+    @AfterClass
+    public static void tearDown() {
+        service.stop();
+        service.awaitStop();
+    }
+
+    @Test
+    public void testBodyStream() throws Exception {
+        assertEquals("10485760", post("/stream", new byte[10 * 1024 * 1024], false).body());
+    }
+
+    @Test
+    public void testBodyStream_AfterBody() throws Exception {
+        assertEquals("100/100", post("/cached", new byte[100], false).body());
+    }
+
+    @Test
+    public void testMaxBodySize() throws Exception {
+        for (String path : new String[] {"/limited", "/limited/stream"}) {
+            assertEquals(path, "1024", post(path, new byte[MAX_BODY_SIZE], false).body());
+            assertEquals(path, 413, post(path, new byte[MAX_BODY_SIZE + 1], false).statusCode());
+            // Unknown length (chunked)
+            assertEquals(path, "1024", post(path, new byte[MAX_BODY_SIZE], true).body());
+            assertEquals(path, 413, post(path, new byte[MAX_BODY_SIZE + 1], true).statusCode());
+        }
+    }
+
+    @Test
+    public void testMaxBodySize_RejectedBeforeReading() throws Exception {
+        HttpResponse<String> response = post("/never-read", new byte[10 * MAX_BODY_SIZE], false);
+
+        assertEquals(413, response.statusCode());
+        assertEquals("", response.body());
+        assertEquals("not read", post("/never-read", new byte[10], false).body());
+        assertEquals(Optional.of("close"), response.headers().firstValue("Connection"));
+    }
+
+    @Test
+    public void testMaxBodySize_BeforeFilters() throws Exception {
+        filterCalls.set(0);
+        assertEquals(413, post("/filtered", new byte[MAX_BODY_SIZE + 1], false).statusCode());
+        assertEquals(0, filterCalls.get());
+
+        // Unknown length (chunked), the filter reading the body is limited too
+        assertEquals(413, post("/filtered", new byte[MAX_BODY_SIZE + 1], true).statusCode());
+        assertEquals("1024", post("/filtered", new byte[MAX_BODY_SIZE], true).body());
+        assertEquals(2, filterCalls.get());
+    }
+
+    @Test
+    public void testHalt_ConnectionKept() throws Exception {
+        HttpResponse<String> response = post("/halted", new byte[10], false);
+
+        assertEquals(413, response.statusCode());
+        assertEquals("halted", response.body());
+        assertEquals(Optional.empty(), response.headers().firstValue("Connection"));
+    }
+
+    private static HttpResponse<String> post(String path, byte[] body, boolean chunked) throws Exception {
+        HttpRequest.BodyPublisher publisher = chunked
+                ? HttpRequest.BodyPublishers.ofInputStream(() -> new ByteArrayInputStream(body))
+                : HttpRequest.BodyPublishers.ofByteArray(body);
+        URI uri = URI.create("http://localhost:" + service.port() + path);
+        return client.send(HttpRequest.newBuilder(uri).POST(publisher).build(), HttpResponse.BodyHandlers.ofString());
+    }
+}
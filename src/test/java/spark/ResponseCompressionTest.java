@@ -0,0 +1,129 @@
+package spark;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.zip.GZIPInputStream;
+import java.util.zip.GZIPOutputStream;
+
+import org.junit.AfterClass;
+import org.junit.BeforeClass;
+import org.junit.Test;
+
+import spark.compression.AdaptiveCompression;
+import spark.compression.CompressionPolicy;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+
+/**
+ * The compression policy set per response (by Spark) and per path (by the server).
+ */
+public class ResponseCompressionTest {
+
+    private static final String TEXT = "Compressed by Spark. ".repeat(200);
+
+    private static Path file;
+    private static byte[] gzipped;
+    private static Service service;
+    private static HttpClient client;
+
+    @BeforeClass
+    public static void setup() throws IOException {
+        file = Files.createTempFile("spark-compression-", ".txt");
+        Files.write(file, TEXT.getBytes(StandardCharsets.UTF_8));
+        gzipped = gzip(TEXT);
+
+        service = Service.ignite().port(0)
+                .compression(CompressionPolicy.create()
+                                     .minSize(256)
+                                     .excludeMimeTypes("image/png")
+                                     .level("gzip", 6)
+                                     .adaptive(AdaptiveCompression.create().interval(50)))
+                .compression("/raw/*", CompressionPolicy.disabled());
+        service.get("/text", (request, response) -> {
+            response.compression = Response.Compression.GZIP_COMPRESS;
+            return TEXT;
+        });
+        service.get("/file", (request, response) -> {
+            response.compression = Response.Compression.GZIP_COMPRESS;
+            return file;
+        });
+        service.get("/gzipped", (request, response) -> {
+            response.compression = Response.Compression.GZIP_COMPRESSED;
+            return gzipped;
+        });
+        service.get("/raw/text", (request, response) -> TEXT);
+        service.awaitInitialization();
+        client = HttpClient.newHttpClient();
+    }
+
+    @AfterClass
+    public static void tearDown() throws IOException {
+        service.stop();
+        service.awaitStop();
+        Files.deleteIfExists(file);
+    }
+
+    @Test
+    public void testCompressedBySpark() throws Exception {
+        for (String path : new String[] {"/text", "/file", "/gzipped"}) {
+            HttpResponse<byte[]> response = get(path, "gzip");
+
+            assertEquals(200, response.statusCode());
+            assertEquals(path, "gzip", response.headers().firstValue("Content-Encoding").orElse(null));
+            assertEquals(path, TEXT, gunzip(response.body()));
+        }
+    }
+
+    @Test
+    public void testNotAccepted() throws Exception {
+        HttpResponse<byte[]> response = get("/text", null);
+
+        assertFalse(response.headers().firstValue("Content-Encoding").isPresent());
+        assertEquals(TEXT, new String(response.body(), StandardCharsets.UTF_8));
+    }
+
+    @Test
+    public void testPathPolicy() throws Exception {
+        HttpResponse<byte[]> response = get("/raw/text", "gzip");
+
+        assertFalse(response.headers().firstValue("Content-Encoding").isPresent());
+        assertEquals(TEXT, new String(response.body(), StandardCharsets.UTF_8));
+    }
+
+    @Test(expected = IllegalStateException.class)
+    public void testPolicy_SetBeforeRouteMapping() {
+        service.compression(CompressionPolicy.disabled());
+    }
+
+    private static HttpResponse<byte[]> get(String path, String acceptEncoding) throws Exception {
+        HttpRequest.Builder request = HttpRequest.newBuilder(URI.create("http://localhost:" + service.port() + path));
+        if (acceptEncoding != null) {
+            request.header("Accept-Encoding", acceptEncoding);
+        }
+        return client.send(request.build(), HttpResponse.BodyHandlers.ofByteArray());
+    }
+
+    private static byte[] gzip(String text) throws IOException {
+        ByteArrayOutputStream compressed = new ByteArrayOutputStream();
+        try (GZIPOutputStream output = new GZIPOutputStream(compressed)) {
+            output.write(text.getBytes(StandardCharsets.UTF_8));
+        }
+        return compressed.toByteArray();
+    }
+
+    private static String gunzip(byte[] bytes) throws IOException {
+        try (InputStream input = new GZIPInputStream(new ByteArrayInputStream(bytes))) {
+            return new String(input.readAllBytes(), StandardCharsets.UTF_8);
+        }
+    }
+}
@@ -0,0 +1,90 @@
+package spark;
+
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.eclipse.jetty.util.VirtualThreads;
+import org.junit.After;
+import org.junit.Assume;
+import org.junit.Before;
+import org.junit.Test;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+/**
+ * Load test showing that, with virtual threads, the number of requests handled concurrently
+ * is not capped by the size of the thread pool when the routes block.
+ */
+public class VirtualThreadsTest {
+
+    private static final int MAX_THREADS = 16;
+    private static final int CONCURRENT_REQUESTS = 4 * MAX_THREADS;
+
+    private final CountDownLatch allStarted = new CountDownLatch(CONCURRENT_REQUESTS);
+    private final CountDownLatch release = new CountDownLatch(1);
+    private final AtomicInteger running = new AtomicInteger();
+    private final AtomicInteger maxRunning = new AtomicInteger();
+
+    private Service service;
+
+    @Before
+    public void setup() {
+        Assume.assumeTrue("Virtual threads require Java 21+", VirtualThreads.areSupported());
+
+        service = Service.ignite().port(0).threadPool(MAX_THREADS).virtualThreads();
+        service.get("/blocking", (request, response) -> {
+            maxRunning.accumulateAndGet(running.incrementAndGet(), Math::max);
+            try {
+                allStarted.countDown();
+                // Blocks like a JDBC or HTTP call would, until all the requests are being handled
+                return release.await(10, TimeUnit.SECONDS) ? "done" : "timeout";
+            } finally {
+                running.decrementAndGet();
+            }
+        });
+        service.awaitInitialization();
+    }
+
+    @After
+    public void tearDown() {
+        release.countDown();
+        if (service != null) {
+            service.stop();
+            service.awaitStop();
+        }
+    }
+
+    @Test
+    public void testBlockingRoutes_NotCappedByThreadPool() throws Exception {
+        HttpClient client = HttpClient.newHttpClient();
+        URI uri = URI.create("http://localhost:" + service.port() + "/blocking");
+
+        long start = System.nanoTime();
+        List<CompletableFuture<HttpResponse<String>>> responses = new ArrayList<>();
+        for (int i = 0; i < CONCURRENT_REQUESTS; i++) {
+            responses.add(client.sendAsync(HttpRequest.newBuilder(uri).build(), HttpResponse.BodyHandlers.ofString()));
+        }
+
+        assertTrue("All the requests should be handled concurrently", allStarted.await(10, TimeUnit.SECONDS));
+        assertTrue("Active threads should include the virtual threads: " + service.activeThreadCount(),
+                   service.activeThreadCount() >= CONCURRENT_REQUESTS);
+        release.countDown();
+
+        for (CompletableFuture<HttpResponse<String>> response : responses) {
+            assertEquals("done", response.get(10, TimeUnit.SECONDS).body());
+        }
+        System.out.println(CONCURRENT_REQUESTS + " blocking requests handled with a pool of " + MAX_THREADS
+                                   + " threads in " + TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - start)
+                                   + "ms (max concurrent: " + maxRunning.get() + ")");
+        assertEquals(CONCURRENT_REQUESTS, maxRunning.get());
+    }
+}
@@ -0,0 +1,74 @@
+package spark.compression;
+
+import org.junit.Test;
+
+import spark.compression.AdaptiveCompression.Mode;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+public class AdaptiveCompressionTest {
+
+    private final AdaptiveCompression adaptive = AdaptiveCompression.create()
+            .cpuThresholds(0.7, 0.9)
+            .queueThresholds(10, 100)
+            .reducedLevel("br", 3)
+            .saturatedMinSize(8192);
+
+    @Test
+    public void testUpdate_BacksOffUnderLoad() {
+        assertEquals(Mode.NORMAL, adaptive.update(0.5, 0));
+        assertEquals(Mode.REDUCED, adaptive.update(0.75, 0));
+        assertEquals(Mode.SATURATED, adaptive.update(0.5, 100));
+        assertEquals(2, adaptive.modeChanges());
+        assertEquals(0.5, adaptive.cpuLoad(), 0);
+        assertEquals(100, adaptive.queueSize());
+    }
+
+    @Test
+    public void testUpdate_SaturatedAtOnce() {
+        assertEquals(Mode.SATURATED, adaptive.update(0.95, 0));
+    }
+
+    @Test
+    public void testUpdate_RestoredOneModeAtATimeWhenLoadFalls() {
+        adaptive.update(0.95, 0);
+
+        // Under the threshold, but not well under it
+        assertEquals(Mode.SATURATED, adaptive.update(0.85, 0));
+        assertEquals(Mode.SATURATED, adaptive.update(0.7, 60));
+        assertEquals(Mode.REDUCED, adaptive.update(0.7, 0));
+        assertEquals(Mode.REDUCED, adaptive.update(0.65, 0));
+        assertEquals(Mode.NORMAL, adaptive.update(0.5, 4));
+    }
+
+    @Test
+    public void testUpdate_CpuLoadNotAvailable() {
+        assertEquals(Mode.NORMAL, adaptive.update(-1, 0));
+        assertEquals(Mode.REDUCED, adaptive.update(-1, 10));
+    }
+
+    @Test
+    public void testDecisions() {
+        assertTrue(adaptive.isBrotliPreferred());
+        assertEquals(-1, adaptive.level("br"));
+        assertEquals(-1, adaptive.minSize());
+
+        adaptive.update(0.8, 0);
+        assertFalse(adaptive.isBrotliPreferred());
+        assertEquals(3, adaptive.level("br"));
+        assertEquals(1, adaptive.level("gzip"));
+        assertEquals(-1, adaptive.level("deflate"));
+        assertEquals(-1, adaptive.minSize());
+
+        adaptive.update(0.95, 0);
+        assertFalse(adaptive.isBrotliPreferred());
+        assertEquals(8192, adaptive.minSize());
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void testCpuThresholds_Ordered() {
+        AdaptiveCompression.create().cpuThresholds(0.9, 0.7);
+    }
+}
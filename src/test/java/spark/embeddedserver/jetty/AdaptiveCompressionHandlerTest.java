@@ -0,0 +1,81 @@
+package spark.embeddedserver.jetty;
+
+import java.lang.reflect.Proxy;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.eclipse.jetty.compression.Compression;
+import org.eclipse.jetty.http.HttpFields;
+import org.eclipse.jetty.http.HttpHeader;
+import org.eclipse.jetty.server.Handler;
+import org.eclipse.jetty.server.Request;
+import org.junit.Test;
+
+import spark.compression.AdaptiveCompression;
+import spark.compression.CompressionPolicy;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertSame;
+
+public class AdaptiveCompressionHandlerTest {
+
+    @Test
+    public void testSample_AppliesMode() {
+        AdaptiveCompression adaptive = AdaptiveCompression.create().queueThresholds(10, 100).saturatedMinSize(8192);
+        List<Compression> compressions =
+                JettyCompression.compressions(CompressionPolicy.create().minSize(256).level("gzip", 6));
+        Compression gzip = compressions.stream()
+                .filter(compression -> compression.getEncodingName().equals("gzip"))
+                .findFirst()
+                .orElseThrow();
+        AtomicInteger queueSize = new AtomicInteger();
+        AdaptiveCompressionHandler handler =
+                new AdaptiveCompressionHandler(new Handler.Wrapper(), adaptive, compressions, () -> 0.1, queueSize::get);
+
+        queueSize.set(10);
+        handler.sample();
+        assertEquals(AdaptiveCompression.Mode.REDUCED, adaptive.mode());
+        assertEquals(1, gzip.getDefaultEncoderConfig().getCompressionLevel());
+        assertEquals(256, gzip.getMinCompressSize());
+
+        queueSize.set(100);
+        handler.sample();
+        assertEquals(8192, gzip.getMinCompressSize());
+
+        queueSize.set(0);
+        handler.sample();
+        handler.sample();
+        assertEquals(AdaptiveCompression.Mode.NORMAL, adaptive.mode());
+        assertEquals(6, gzip.getDefaultEncoderConfig().getCompressionLevel());
+        assertEquals(256, gzip.getMinCompressSize());
+    }
+
+    @Test
+    public void testWithoutBrotli() {
+        assertEquals("gzip, deflate", acceptEncoding(AdaptiveCompressionHandler.withoutBrotli(request("br, gzip, deflate"))));
+        assertEquals("gzip;q=0.8", acceptEncoding(AdaptiveCompressionHandler.withoutBrotli(request("br;q=1.0, gzip;q=0.8"))));
+
+        // Only br, or gzip refused: kept as is
+        Request brotliOnly = request("br");
+        assertSame(brotliOnly, AdaptiveCompressionHandler.withoutBrotli(brotliOnly));
+        Request gzipRefused = request("br, gzip;q=0");
+        assertSame(gzipRefused, AdaptiveCompressionHandler.withoutBrotli(gzipRefused));
+        Request gzipRefusedSpaces = request("BR, gzip;q=0.00");
+        assertSame(gzipRefusedSpaces, AdaptiveCompressionHandler.withoutBrotli(gzipRefusedSpaces));
+        Request brotliRefused = request("br;q=0.0, gzip");
+        assertSame(brotliRefused, AdaptiveCompressionHandler.withoutBrotli(brotliRefused));
+
+        assertEquals("gzip;q=0.01", acceptEncoding(AdaptiveCompressionHandler.withoutBrotli(request(" Br , gzip;q=0.01"))));
+    }
+
+    private static String acceptEncoding(Request request) {
+        return request.getHeaders().get(HttpHeader.ACCEPT_ENCODING);
+    }
+
+    private static Request request(String acceptEncoding) {
+        HttpFields headers = HttpFields.build().put(HttpHeader.ACCEPT_ENCODING, acceptEncoding).asImmutable();
+        return (Request) Proxy.newProxyInstance(Request.class.getClassLoader(), new Class<?>[] {Request.class},
+                                                (proxy, method, args) ->
+                                                        method.getName().equals("getHeaders") ? headers : null);
+    }
+}
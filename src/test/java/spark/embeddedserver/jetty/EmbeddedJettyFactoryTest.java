@@ -3,6 +3,7 @@ package spark.embeddedserver.jetty;
 import org.eclipse.jetty.compression.server.CompressionHandler;
 import org.eclipse.jetty.ee10.servlet.ServletContextHandler;
 import org.eclipse.jetty.server.Server;
+import org.eclipse.jetty.util.VirtualThreads;
 import org.eclipse.jetty.util.thread.QueuedThreadPool;
 import org.junit.After;
 import org.junit.Test;
@@ -12,6 +13,7 @@ import spark.embeddedserver.EmbeddedServer;
 import spark.route.Routes;
 import spark.staticfiles.StaticFilesConfiguration;
 
+import static org.junit.Assert.assertEquals;
 import static org.junit.Assert.assertFalse;
 import static org.junit.Assert.assertTrue;
 import static org.mockito.Mockito.mock;
@@ -101,6 +103,24 @@ public class EmbeddedJettyFactoryTest {
         assertFalse(((ServletContextHandler)((CompressionHandler) server.getHandler()).getHandler()).getSessionHandler().isHttpOnly());
     }
 
+    @Test
+    public void create_withVirtualThreads() throws Exception {
+        final JettyServerFactory jettyServerFactory = mock(JettyServerFactory.class);
+        final StaticFilesConfiguration staticFilesConfiguration = mock(StaticFilesConfiguration.class);
+        final Routes routes = mock(Routes.class);
+
+        final QueuedThreadPool threadPool = new QueuedThreadPool(100);
+        when(jettyServerFactory.create(100, 10, 10000)).thenReturn(new Server(threadPool));
+
+        final EmbeddedJettyFactory embeddedJettyFactory = new EmbeddedJettyFactory(jettyServerFactory).withVirtualThreads(true);
+        embeddedServer = embeddedJettyFactory.create(routes, staticFilesConfiguration, false);
+        embeddedServer.trustForwardHeaders(true);
+        embeddedServer.ignite("localhost", 6760, null, 100, 10, 10000, false);
+
+        // Falls back to the thread pool when the JVM doesn't support virtual threads
+        assertEquals(VirtualThreads.areSupported(), threadPool.getVirtualThreadsExecutor() != null);
+    }
+
     @After
     public void tearDown() {
         if (embeddedServer != null) {
@@ -0,0 +1,86 @@
+package spark.embeddedserver.jetty;
+
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.lang.reflect.Proxy;
+import java.util.Arrays;
+
+import jakarta.servlet.ReadListener;
+import jakarta.servlet.ServletInputStream;
+import jakarta.servlet.http.HttpServletRequest;
+
+import org.junit.Test;
+
+import static org.junit.Assert.assertArrayEquals;
+
+public class HttpRequestWrapperTest {
+
+    @Test
+    public void testGetInputStream_ContentLengthKnown() throws IOException {
+        byte[] body = body(100_000);
+
+        assertArrayEquals(body, new HttpRequestWrapper(request(body, body.length)).getInputStream().readAllBytes());
+    }
+
+    @Test
+    public void testGetInputStream_ContentLengthUnknown() throws IOException {
+        byte[] body = body(100_000);
+        HttpRequestWrapper wrapper = new HttpRequestWrapper(request(body));
+
+        assertArrayEquals(body, wrapper.getInputStream().readAllBytes());
+        assertArrayEquals(body, wrapper.getInputStream().readAllBytes());
+    }
+
+    private static byte[] body(int size) {
+        byte[] body = new byte[size];
+        Arrays.fill(body, (byte) 'x');
+        body[size - 1] = 'y';
+        return body;
+    }
+
+    private static HttpServletRequest request(byte[] body) {
+        return request(body, -1L);
+    }
+
+    private static HttpServletRequest request(byte[] body, long contentLength) {
+        ByteArrayInputStream input = new ByteArrayInputStream(body);
+        ServletInputStream servletInput = new ServletInputStream() {
+            @Override
+            public int read() {
+                return input.read();
+            }
+
+            @Override
+            public int read(byte[] b, int off, int len) {
+                return input.read(b, off, len);
+            }
+
+            @Override
+            public boolean isFinished() {
+                return input.available() == 0;
+            }
+
+            @Override
+            public boolean isReady() {
+                return true;
+            }
+
+            @Override
+            public void setReadListener(ReadListener readListener) {
+            }
+        };
+        return (HttpServletRequest) Proxy.newProxyInstance(
+                HttpRequestWrapperTest.class.getClassLoader(),
+                new Class<?>[] {HttpServletRequest.class},
+                (proxy, method, args) -> {
+                    switch (method.getName()) {
+                        case "getInputStream":
+                            return servletInput;
+                        case "getContentLengthLong":
+                            return contentLength;
+                        default:
+                            return null;
+                    }
+                });
+    }
+}
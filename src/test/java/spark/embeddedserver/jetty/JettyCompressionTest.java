@@ -0,0 +1,62 @@
+package spark.embeddedserver.jetty;
+
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+
+import org.eclipse.jetty.compression.Compression;
+import org.eclipse.jetty.compression.server.CompressionHandler;
+import org.eclipse.jetty.server.Handler;
+import org.junit.Test;
+
+import spark.compression.CompressionPolicy;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+
+public class JettyCompressionTest {
+
+    @Test
+    public void testPathSpec() {
+        assertEquals("/", JettyCompression.pathSpec("/"));
+        assertEquals("/api/*", JettyCompression.pathSpec("/api/*"));
+        assertEquals("/api/items", JettyCompression.pathSpec("/api/items"));
+        assertEquals("^/\\Qfiles\\E/[^/]+$", JettyCompression.pathSpec("/files/:name"));
+        assertEquals("^/\\Qapi\\E/.*/\\Qraw\\E$", JettyCompression.pathSpec("/api/*/raw"));
+        assertTrue("/files/a.zip".matches(JettyCompression.pathSpec("/files/:name")));
+        assertFalse("/files/a/b.zip".matches(JettyCompression.pathSpec("/files/:name")));
+    }
+
+    @Test
+    public void testWrap() {
+        Handler handler = new Handler.Wrapper();
+
+        assertSame(handler, JettyCompression.wrap(handler, CompressionPolicy.disabled(), Collections.emptyMap()));
+
+        Handler wrapped = JettyCompression.wrap(handler, CompressionPolicy.disabled(),
+                                                Map.of("/api/*", CompressionPolicy.create()));
+        assertTrue(wrapped instanceof CompressionHandler);
+        assertSame(handler, ((CompressionHandler) wrapped).getHandler());
+    }
+
+    @Test
+    public void testCompressions_DiscoveredByServerWhenDefault() {
+        assertTrue(JettyCompression.compressions(CompressionPolicy.create()).isEmpty());
+    }
+
+    @Test
+    public void testCompressions_MinSizeAndLevels() {
+        List<Compression> compressions =
+                JettyCompression.compressions(CompressionPolicy.create().minSize(1024).level("gzip", 3));
+
+        Compression gzip = compressions.stream()
+                .filter(compression -> compression.getEncodingName().equals("gzip"))
+                .findFirst()
+                .orElseThrow();
+        assertEquals(1024, gzip.getMinCompressSize());
+        assertEquals(3, gzip.getDefaultEncoderConfig().getCompressionLevel());
+        compressions.forEach(compression -> assertEquals(1024, compression.getMinCompressSize()));
+    }
+}
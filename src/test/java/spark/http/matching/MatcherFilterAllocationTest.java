@@ -0,0 +1,158 @@
+package spark.http.matching;
+
+import java.lang.management.ManagementFactory;
+import java.lang.reflect.Proxy;
+
+import jakarta.servlet.ServletOutputStream;
+import jakarta.servlet.WriteListener;
+import jakarta.servlet.http.HttpServletRequest;
+import jakarta.servlet.http.HttpServletResponse;
+
+import org.junit.Assume;
+import org.junit.Test;
+
+import spark.ExceptionMapper;
+import spark.FilterImpl;
+import spark.RouteImpl;
+import spark.route.HttpMethod;
+import spark.route.Routes;
+import spark.staticfiles.StaticFilesConfiguration;
+
+import static org.junit.Assert.assertTrue;
+
+/**
+ * Measures the bytes allocated to dispatch a simple GET request, so regressions are caught
+ * (the request and response are stubs, which allocate a little too).
+ */
+public class MatcherFilterAllocationTest {
+
+    private static final int WARMUP = 20_000;
+    private static final int REQUESTS = 20_000;
+
+    // Generous limits, the point is to catch allocations growing with the number of routes or filters
+    private static final long MAX_BYTES_PER_REQUEST = 4_000;
+    private static final long MAX_BYTES_PER_FILTER = 96;
+
+    @Test
+    public void testDispatch_BytesAllocatedPerRequest() throws Exception {
+        com.sun.management.ThreadMXBean threads = threadMXBean();
+        Assume.assumeTrue(threads != null);
+
+        long withOneFilter = bytesPerRequest(threads, 1);
+        long withTwentyFilters = bytesPerRequest(threads, 21);
+        long perFilter = Math.max(0, withTwentyFilters - withOneFilter) / 20;
+
+        System.out.println("Bytes allocated per request: " + withOneFilter + " with 1 before filter, "
+                                   + withTwentyFilters + " with 21 before filters (" + perFilter + " per filter)");
+
+        assertTrue("Too many bytes allocated per request: " + withOneFilter, withOneFilter < MAX_BYTES_PER_REQUEST);
+        assertTrue("Too many bytes allocated per filter: " + perFilter, perFilter < MAX_BYTES_PER_FILTER);
+    }
+
+    private static long bytesPerRequest(com.sun.management.ThreadMXBean threads, int filters) throws Exception {
+        Routes routes = Routes.create();
+        routes.startBatch();
+        for (int i = 0; i < 1000; i++) {
+            routes.add(HttpMethod.get, RouteImpl.create("/service/" + i + "/items/:id", (request, response) -> "item"));
+        }
+        routes.add(HttpMethod.get, RouteImpl.create("/hello", (request, response) -> "Hello World!"));
+        for (int i = 0; i < filters; i++) {
+            routes.add(HttpMethod.before, FilterImpl.create("/hello", FilterImpl.DEFAULT_ACCEPT_TYPE, (request, response) -> {
+            }));
+        }
+        routes.endBatch();
+
+        MatcherFilter filter = new MatcherFilter(routes, StaticFilesConfiguration.create(), new ExceptionMapper(),
+                                                 false, false);
+        HttpServletRequest request = request();
+        HttpServletResponse response = response();
+
+        for (int i = 0; i < WARMUP; i++) {
+            filter.doFilter(request, response, null);
+        }
+        long threadId = Thread.currentThread().getId();
+        long before = threads.getThreadAllocatedBytes(threadId);
+        for (int i = 0; i < REQUESTS; i++) {
+            filter.doFilter(request, response, null);
+        }
+        return (threads.getThreadAllocatedBytes(threadId) - before) / REQUESTS;
+    }
+
+    private static com.sun.management.ThreadMXBean threadMXBean() {
+        if (!(ManagementFactory.getThreadMXBean() instanceof com.sun.management.ThreadMXBean)) {
+            return null;
+        }
+        com.sun.management.ThreadMXBean threads = (com.sun.management.ThreadMXBean) ManagementFactory.getThreadMXBean();
+        if (!threads.isThreadAllocatedMemorySupported()) {
+            return null;
+        }
+        threads.setThreadAllocatedMemoryEnabled(true);
+        return threads;
+    }
+
+    private static HttpServletRequest request() {
+        return (HttpServletRequest) Proxy.newProxyInstance(
+                MatcherFilterAllocationTest.class.getClassLoader(),
+                new Class<?>[] {HttpServletRequest.class},
+                (proxy, method, args) -> {
+                    switch (method.getName()) {
+                        case "getMethod":
+                            return "GET";
+                        case "getRequestURI":
+                        case "getPathInfo":
+                            return "/hello";
+                        case "getHeader":
+                            return "Accept".equals(args[0]) ? "*/*" : null;
+                        default:
+                            return defaultValue(method.getReturnType());
+                    }
+                });
+    }
+
+    private static HttpServletResponse response() {
+        ServletOutputStream outputStream = new ServletOutputStream() {
+            @Override
+            public boolean isReady() {
+                return true;
+            }
+
+            @Override
+            public void setWriteListener(WriteListener writeListener) {
+            }
+
+            @Override
+            public void write(int b) {
+            }
+
+            @Override
+            public void write(byte[] b, int off, int len) {
+            }
+        };
+        return (HttpServletResponse) Proxy.newProxyInstance(
+                MatcherFilterAllocationTest.class.getClassLoader(),
+                new Class<?>[] {HttpServletResponse.class},
+                (proxy, method, args) -> {
+                    switch (method.getName()) {
+                        case "getOutputStream":
+                            return outputStream;
+                        case "getStatus":
+                            return 200;
+                        default:
+                            return defaultValue(method.getReturnType());
+                    }
+                });
+    }
+
+    private static Object defaultValue(Class<?> type) {
+        if (type == boolean.class) {
+            return false;
+        }
+        if (type == int.class) {
+            return 0;
+        }
+        if (type == long.class) {
+            return 0L;
+        }
+        return null;
+    }
+}
@@ -0,0 +1,137 @@
+package spark.http.matching;
+
+import java.io.IOException;
+import java.lang.reflect.Proxy;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+
+import jakarta.servlet.AsyncContext;
+import jakarta.servlet.AsyncEvent;
+import jakarta.servlet.AsyncListener;
+import jakarta.servlet.http.HttpServletRequest;
+import jakarta.servlet.http.HttpServletResponse;
+
+import org.junit.Test;
+
+import spark.ExceptionMapper;
+import spark.FilterImpl;
+import spark.RouteImpl;
+import spark.route.HttpMethod;
+import spark.route.Routes;
+import spark.staticfiles.StaticFilesConfiguration;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+public class MatcherFilterAsyncTest {
+
+    private final List<String> calls = new ArrayList<>();
+    private final List<AsyncListener> listeners = new ArrayList<>();
+
+    private AsyncContext asyncContext;
+    private long timeout = -1;
+    private boolean completed;
+
+    @Test
+    public void testAsyncRoute_DefaultTimeoutSet() throws Exception {
+        doFilter(RouteImpl.create("/async", (request, response) -> new CompletableFuture<String>()));
+
+        assertEquals(RouteImpl.DEFAULT_ASYNC_TIMEOUT, timeout);
+    }
+
+    @Test
+    public void testAsyncRoute_NoTimeoutSet() throws Exception {
+        doFilter(RouteImpl.create("/async", (request, response) -> new CompletableFuture<String>())
+                         .withAsyncTimeout(0));
+
+        assertEquals(0, timeout);
+    }
+
+    @Test
+    public void testAsyncRoute_ErrorRunsAfterAfterFilters() throws Exception {
+        CompletableFuture<String> result = new CompletableFuture<>();
+        doFilter(RouteImpl.create("/async", (request, response) -> result));
+        assertTrue(calls.isEmpty());
+
+        for (AsyncListener listener : listeners) {
+            listener.onError(new AsyncEvent(asyncContext, new IOException("connection reset")));
+        }
+
+        assertEquals(List.of("afterafter"), calls);
+        assertTrue("Expected the stage to be cancelled", result.isCancelled());
+        assertTrue("Expected the request to be completed", completed);
+    }
+
+    private void doFilter(RouteImpl route) throws Exception {
+        Routes routes = Routes.create();
+        routes.add(HttpMethod.get, route);
+        routes.add(HttpMethod.afterafter, FilterImpl.create("/async", FilterImpl.DEFAULT_ACCEPT_TYPE,
+                                                            (request, response) -> calls.add("afterafter")));
+
+        MatcherFilter filter = new MatcherFilter(routes, StaticFilesConfiguration.create(), new ExceptionMapper(),
+                                                 false, false);
+        filter.doFilter(request(), response(), null);
+    }
+
+    private HttpServletRequest request() {
+        asyncContext = (AsyncContext) Proxy.newProxyInstance(
+                MatcherFilterAsyncTest.class.getClassLoader(),
+                new Class<?>[] {AsyncContext.class},
+                (proxy, method, args) -> {
+                    switch (method.getName()) {
+                        case "setTimeout":
+                            timeout = (Long) args[0];
+                            return null;
+                        case "getTimeout":
+                            return timeout;
+                        case "addListener":
+                            listeners.add((AsyncListener) args[0]);
+                            return null;
+                        case "complete":
+                            completed = true;
+                            return null;
+                        default:
+                            return null;
+                    }
+                });
+        return (HttpServletRequest) Proxy.newProxyInstance(
+                MatcherFilterAsyncTest.class.getClassLoader(),
+                new Class<?>[] {HttpServletRequest.class},
+                (proxy, method, args) -> {
+                    switch (method.getName()) {
+                        case "getMethod":
+                            return "GET";
+                        case "getRequestURI":
+                        case "getPathInfo":
+                            return "/async";
+                        case "isAsyncSupported":
+                            return true;
+                        case "isAsyncStarted":
+                            return false;
+                        case "startAsync":
+                            return asyncContext;
+                        case "getContentLengthLong":
+                            return -1L;
+                        default:
+                            return null;
+                    }
+                });
+    }
+
+    private static HttpServletResponse response() {
+        return (HttpServletResponse) Proxy.newProxyInstance(
+                MatcherFilterAsyncTest.class.getClassLoader(),
+                new Class<?>[] {HttpServletResponse.class},
+                (proxy, method, args) -> {
+                    switch (method.getName()) {
+                        case "getStatus":
+                            return 200;
+                        case "isCommitted":
+                            return false;
+                        default:
+                            return null;
+                    }
+                });
+    }
+}
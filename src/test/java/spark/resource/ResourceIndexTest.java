@@ -0,0 +1,144 @@
+package spark.resource;
+
+import java.io.IOException;
+import java.net.URL;
+import java.net.URLClassLoader;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Comparator;
+import java.util.function.BooleanSupplier;
+import java.util.stream.Stream;
+
+import org.junit.After;
+import org.junit.Assume;
+import org.junit.Before;
+import org.junit.Test;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+public class ResourceIndexTest {
+
+    private Path folder;
+    private ResourceIndex index;
+
+    @Before
+    public void setup() throws IOException {
+        folder = Files.createTempDirectory("spark-index-");
+        Files.write(folder.resolve("app.js"), new byte[10]);
+        Files.createDirectories(folder.resolve("docs"));
+        Files.write(folder.resolve("docs/index.html"), new byte[10]);
+        Files.createDirectories(folder.resolve("empty"));
+    }
+
+    @After
+    public void tearDown() throws IOException {
+        if (index != null) {
+            index.close();
+        }
+        try (Stream<Path> files = Files.walk(folder)) {
+            files.sorted(Comparator.reverseOrder()).forEach(file -> file.toFile().delete());
+        }
+    }
+
+    @Test
+    public void testForExternal() throws IOException {
+        index = ResourceIndex.forExternal(folder.toString(), "index.html");
+
+        assertNotNull(index);
+        assertEquals(folder.resolve("app.js").toString(), ((ExternalResource) index.get("/app.js")).getPath());
+        assertEquals(folder.resolve("docs/index.html").toString(),
+                     ((ExternalResource) index.get("/docs/")).getPath());
+        assertNotNull(index.get("/docs"));
+        assertNotNull(index.get("/docs/index.html"));
+        assertNull(index.get("/empty/"));
+        assertNull(index.get("/api/users"));
+        assertEquals(4, index.size());
+    }
+
+    @Test
+    public void testForExternal_Refreshed() throws Exception {
+        index = ResourceIndex.forExternal(folder.toString(), null);
+
+        Files.createDirectories(folder.resolve("css"));
+        Files.write(folder.resolve("css/style.css"), new byte[10]);
+        assertTrue("Created file not indexed", eventually(() -> index.get("/css/style.css") != null));
+
+        Files.delete(folder.resolve("app.js"));
+        assertTrue("Deleted file still indexed", eventually(() -> index.get("/app.js") == null));
+    }
+
+    @Test
+    public void testForExternal_SymbolicLinks() throws IOException {
+        Path target = Files.createTempDirectory("spark-index-target-");
+        try {
+            Files.write(target.resolve("lib.js"), new byte[10]);
+            try {
+                Files.createSymbolicLink(folder.resolve("vendor"), target);
+                Files.createSymbolicLink(target.resolve("loop"), folder);
+            } catch (UnsupportedOperationException | IOException e) {
+                Assume.assumeNoException("Symbolic links not supported", e);
+            }
+            Path root = folder.resolveSibling(folder.getFileName() + "-link");
+            Files.createSymbolicLink(root, folder);
+            try {
+                index = ResourceIndex.forExternal(root.toString(), "index.html");
+
+                assertNotNull(index);
+                assertNotNull(index.get("/app.js"));
+                assertNotNull(index.get("/docs/"));
+                assertEquals(root.resolve("vendor/lib.js").toString(),
+                             ((ExternalResource) index.get("/vendor/lib.js")).getPath());
+                assertNull(index.get("/vendor/loop/app.js"));
+            } finally {
+                Files.delete(root);
+            }
+        } finally {
+            Files.delete(folder.resolve("vendor"));
+            try (Stream<Path> files = Files.walk(target)) {
+                files.sorted(Comparator.reverseOrder()).forEach(file -> file.toFile().delete());
+            }
+        }
+    }
+
+    @Test
+    public void testForClassPath() {
+        index = ResourceIndex.forClassPath("/public", "index.html");
+
+        assertNotNull(index);
+        assertEquals("public/page.html", ((ClassPathResource) index.get("/page.html")).getPath());
+        assertNotNull(index.get("/css/style.css"));
+        assertNull(index.get("/api/users"));
+        assertNull(ResourceIndex.forClassPath("/does-not-exist", "index.html"));
+    }
+
+    @Test
+    public void testForClassPath_Jar() throws IOException {
+        ClassLoader initialClassLoader = Thread.currentThread().getContextClassLoader();
+        URL jar = ResourceIndexTest.class.getResource("/public-jar.zip");
+        try (URLClassLoader classLoader = new URLClassLoader(new URL[] {jar}, null)) {
+            Thread.currentThread().setContextClassLoader(classLoader);
+
+            index = ResourceIndex.forClassPath("/public-jar", null);
+
+            assertNotNull(index);
+            assertEquals(1, index.size());
+            assertNotNull(index.get("/css/style.css"));
+        } finally {
+            Thread.currentThread().setContextClassLoader(initialClassLoader);
+        }
+    }
+
+    private static boolean eventually(BooleanSupplier condition) throws InterruptedException {
+        long deadline = System.currentTimeMillis() + 10_000;
+        while (!condition.getAsBoolean()) {
+            if (System.currentTimeMillis() > deadline) {
+                return false;
+            }
+            Thread.sleep(20);
+        }
+        return true;
+    }
+}
@@ -0,0 +1,42 @@
+package spark.route;
+
+import org.junit.Test;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+public class PathSegmentsTest {
+
+    @Test
+    public void testOf_IgnoresEmptySegments() {
+        PathSegments path = PathSegments.of("//api/person//:id/");
+
+        assertEquals(3, path.size());
+        assertEquals("api", path.get(0));
+        assertEquals("person", path.get(1));
+        assertEquals(":id", path.get(2));
+        assertTrue(path.endsWithSlash());
+    }
+
+    @Test
+    public void testOf_Root() {
+        assertEquals(0, PathSegments.of("/").size());
+        assertEquals(0, PathSegments.of("").size());
+    }
+
+    @Test
+    public void testSegmentEquals() {
+        PathSegments path = PathSegments.of("/hello/world");
+
+        assertTrue(path.segmentEquals(1, "world"));
+        assertFalse(path.segmentEquals(1, "worl"));
+        assertFalse(path.segmentEquals(0, "world"));
+        assertTrue("Out of bounds segments are empty", path.segmentEquals(2, ""));
+    }
+
+    @Test
+    public void testDecoded() {
+        assertEquals("hello world", PathSegments.of("/say/hello%20world").decoded(1));
+    }
+}
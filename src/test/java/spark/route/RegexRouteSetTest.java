@@ -0,0 +1,116 @@
+package spark.route;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+import org.junit.Test;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+
+public class RegexRouteSetTest {
+
+    private static final List<String> EXPRESSIONS = Arrays.asList(
+            "~/private", "~/^\\/(user|login)", "~/\\.html?$/", "~/^\\/(?<topic>[^-]+)-(?<code>[^-]+)\\.(?<ext>.*)$/",
+            "~/ADMIN/", "~/report|export", "~/\\/api\\/v\\d+\\/items", "~/colou?r", "~/ab+c", "~/\\Q.php\\E$",
+            "~/[a-z]+\\.json$", "~/^\\/static\\/.*\\.css$", "~/^$");
+
+    private static final List<String> PATHS = Arrays.asList(
+            "", "/", "/panel/private-room/my.page", "/users.list", "/login", "/beer/glass.htm", "/beer/glass.HTML",
+            "/login-1233-shake%20hands.html", "/admin/panel", "/Admin", "/export/all", "/api/v2/items", "/color",
+            "/colour", "/abbbc", "/index.php", "/data.json", "/static/css/site.css", "/other");
+
+    @Test
+    public void testRequiredLiteral() {
+        assertEquals("private", RegexRouteSet.requiredLiteral("private"));
+        assertEquals(".htm", RegexRouteSet.requiredLiteral("\\.html?$"));
+        assertEquals("/api/v", RegexRouteSet.requiredLiteral("\\/api\\/v\\d+\\/items"));
+        assertEquals("admin", RegexRouteSet.requiredLiteral("ADMIN"));
+        assertEquals("colo", RegexRouteSet.requiredLiteral("colou?r"));
+        assertNull(RegexRouteSet.requiredLiteral("report|export"));
+        assertNull(RegexRouteSet.requiredLiteral("^\\/(user|login)"));
+        assertNull(RegexRouteSet.requiredLiteral("\\Q.php\\E$"));
+        assertNull(RegexRouteSet.requiredLiteral("[a-z]+\\.json$"));
+    }
+
+    @Test
+    public void testCollect_SameResultsAsLinearScan() {
+        RouteEntry[] entries = entries(EXPRESSIONS);
+        RegexRouteSet set = new RegexRouteSet(entries);
+
+        for (String path : PATHS) {
+            assertEquals("Unexpected match for " + path, linearScan(entries, path), setScan(set, path));
+        }
+    }
+
+    // A simple performance comparison to gauge the effect of the regex set against testing each route
+    @Test
+    public void testCollect_Performance() {
+        for (int routes : new int[] {10, 100, 1000}) {
+            List<String> expressions = new ArrayList<>();
+            for (int i = 0; i < routes; i++) {
+                expressions.add("~/^\\/service" + i + "\\/item\\/\\d+$");
+            }
+            RouteEntry[] entries = entries(expressions);
+            RegexRouteSet set = new RegexRouteSet(entries);
+            String[] paths = {"/service" + (routes / 2) + "/item/12", "/other/path/not/mapped", "/service1/list"};
+            int iterations = 100_000 / routes;
+
+            for (String path : paths) {
+                assertEquals(linearScan(entries, path), setScan(set, path));
+            }
+
+            long start = System.nanoTime();
+            for (int i = 0; i < iterations; i++) {
+                linearScan(entries, paths[i % paths.length]);
+            }
+            long linear = System.nanoTime() - start;
+
+            start = System.nanoTime();
+            for (int i = 0; i < iterations; i++) {
+                setScan(set, paths[i % paths.length]);
+            }
+            long regexSet = System.nanoTime() - start;
+
+            System.out.println("Matching against " + routes + " regex routes: "
+                                       + (linear / iterations) + "ns per request testing each route, "
+                                       + (regexSet / iterations) + "ns per request with the regex set");
+        }
+    }
+
+    private static RouteEntry[] entries(List<String> expressions) {
+        RouteEntry[] entries = new RouteEntry[expressions.size()];
+        for (int i = 0; i < entries.length; i++) {
+            RouteEntry entry = new RouteEntry();
+            entry.httpMethod = HttpMethod.get;
+            entry.path = expressions.get(i);
+            entry.order = i;
+            entry.compile();
+            entries[i] = entry;
+        }
+        return entries;
+    }
+
+    private static List<RouteEntry> linearScan(RouteEntry[] entries, String path) {
+        List<RouteEntry> matches = new ArrayList<>();
+        for (RouteEntry entry : entries) {
+            if (entry.matches(HttpMethod.get, path)) {
+                matches.add(entry);
+            }
+        }
+        return matches;
+    }
+
+    private static List<RouteEntry> setScan(RegexRouteSet set, String path) {
+        List<RouteEntry> candidates = new ArrayList<>();
+        set.collect(path, candidates);
+        List<RouteEntry> matches = new ArrayList<>();
+        for (RouteEntry entry : candidates) {
+            if (entry.matches(HttpMethod.get, path)) {
+                matches.add(entry);
+            }
+        }
+        return matches;
+    }
+}
@@ -4,6 +4,9 @@ import org.junit.Test;
 
 import spark.utils.SparkUtils;
 
+import java.util.Arrays;
+
+import static org.junit.Assert.assertEquals;
 import static org.junit.Assert.assertFalse;
 import static org.junit.Assert.assertTrue;
 
@@ -15,6 +18,7 @@ public class RouteEntryTest {
         RouteEntry entry = new RouteEntry();
         entry.httpMethod = HttpMethod.before;
         entry.path = SparkUtils.ALL_PATHS;
+        entry.compile();
 
         assertTrue(
                 "Should return true because HTTP method is \"Before\", the methods of route and match request match," +
@@ -29,6 +33,7 @@ public class RouteEntryTest {
         RouteEntry entry = new RouteEntry();
         entry.httpMethod = HttpMethod.after;
         entry.path = SparkUtils.ALL_PATHS;
+        entry.compile();
 
         assertTrue(
                 "Should return true because HTTP method is \"After\", the methods of route and match request match," +
@@ -43,6 +48,7 @@ public class RouteEntryTest {
         RouteEntry entry = new RouteEntry();
         entry.httpMethod = HttpMethod.post;
         entry.path = "/test";
+        entry.compile();
 
         assertFalse("Should return false because path names did not match",
                     entry.matches(HttpMethod.get, "/path"));
@@ -54,6 +60,7 @@ public class RouteEntryTest {
         RouteEntry entry = new RouteEntry();
         entry.httpMethod = HttpMethod.get;
         entry.path = "/test/";
+        entry.compile();
 
         assertTrue("Should return true because route path and path is exactly the same",
                    entry.matches(HttpMethod.get, "/test/"));
@@ -65,6 +72,7 @@ public class RouteEntryTest {
         RouteEntry entry = new RouteEntry();
         entry.httpMethod = HttpMethod.get;
         entry.path = "/test/*";
+        entry.compile();
 
         assertTrue("Should return true because path specified is covered by the route path wildcard",
                    entry.matches(HttpMethod.get, "/test/me"));
@@ -76,6 +84,7 @@ public class RouteEntryTest {
         RouteEntry entry = new RouteEntry();
         entry.httpMethod = HttpMethod.get;
         entry.path = "/test/me";
+        entry.compile();
 
         assertFalse("Should return false because path does not match route path",
                     entry.matches(HttpMethod.get, "/test/other"));
@@ -87,6 +96,7 @@ public class RouteEntryTest {
         RouteEntry entry = new RouteEntry();
         entry.httpMethod = HttpMethod.get;
         entry.path = "/test/:name";
+        entry.compile();
 
         assertTrue("Should return true because path matches route path",
                     entry.matches(HttpMethod.get, "/test/other"));
@@ -98,6 +108,7 @@ public class RouteEntryTest {
         RouteEntry entry = new RouteEntry();
         entry.httpMethod = HttpMethod.get;
         entry.path = "~/private";
+        entry.compile();
 
         assertTrue("Should return true because path matches route path",
                    entry.matches(HttpMethod.get, "/panel/private-room/my.page"));
@@ -110,6 +121,7 @@ public class RouteEntryTest {
         RouteEntry entry = new RouteEntry();
         entry.httpMethod = HttpMethod.get;
         entry.path = "~/^\\/(user|login)";
+        entry.compile();
 
         assertTrue("Should return true because path matches route path",
                    entry.matches(HttpMethod.get, "/users.list"));
@@ -122,6 +134,7 @@ public class RouteEntryTest {
         RouteEntry entry = new RouteEntry();
         entry.httpMethod = HttpMethod.get;
         entry.path = "~/^\\/(?<topic>[^-]+)-(?<code>[^-]+)-(?<text>[^.]+)\\.(?<ext>.*)$/";
+        entry.compile();
 
         assertTrue("Should return true because path matches route path",
                    entry.matches(HttpMethod.get, "/login-1233-shake%20hands.html"));
@@ -134,6 +147,7 @@ public class RouteEntryTest {
         RouteEntry entry = new RouteEntry();
         entry.httpMethod = HttpMethod.get;
         entry.path = "~/\\.html?$/";
+        entry.compile();
 
         assertTrue("Should return true because path matches route path",
                    entry.matches(HttpMethod.get, "/beer/hold-into-my-glass.htm"));
@@ -147,6 +161,7 @@ public class RouteEntryTest {
         RouteEntry entry = new RouteEntry();
         entry.httpMethod = HttpMethod.get;
         entry.path = "/test/this/resource/*";
+        entry.compile();
 
         assertTrue("Should return true because path specified is covered by the route path wildcard",
                    entry.matches(HttpMethod.get, "/test/this/resource/child/id"));
@@ -158,6 +173,7 @@ public class RouteEntryTest {
         RouteEntry entry = new RouteEntry();
         entry.httpMethod = HttpMethod.get;
         entry.path = "/test/:name?";
+        entry.compile();
 
         assertTrue("Should return true because the :name? section in path is optional",
             entry.matches(HttpMethod.get, "/test"));
@@ -168,10 +184,61 @@ public class RouteEntryTest {
         RouteEntry entry = new RouteEntry();
         entry.httpMethod = HttpMethod.get;
         entry.path = "/test/:name?";
+        entry.compile();
 
         assertTrue("Should return true because the :name? section in path is optional," +
                 "the statement can match /test/*",
             entry.matches(HttpMethod.get, "/test/foo"));
     }
 
+    @Test
+    public void testParams_CapturedFromPath() {
+        RouteEntry entry = new RouteEntry();
+        entry.httpMethod = HttpMethod.get;
+        entry.path = "/users/:UserId/books/:book";
+        entry.compile();
+
+        PathSegments path = PathSegments.of("/users/john%20doe/books/42");
+
+        assertTrue(entry.matches(HttpMethod.get, path));
+        assertEquals("john doe", entry.params(path).get("userid"));
+        assertEquals("42", entry.params(path).get("book"));
+        assertTrue(entry.splat(path).isEmpty());
+    }
+
+    @Test
+    public void testSplat_CapturedFromPath() {
+        RouteEntry entry = new RouteEntry();
+        entry.httpMethod = HttpMethod.get;
+        entry.path = "/files/*/to/*";
+        entry.compile();
+
+        PathSegments path = PathSegments.of("/files/a/to/b/c.txt");
+
+        assertTrue(entry.matches(HttpMethod.get, path));
+        assertEquals(Arrays.asList("a", "b/c.txt"), entry.splat(path));
+        assertTrue(entry.params(path).isEmpty());
+    }
+
+    @Test
+    public void testMayMatchSamePath() {
+        assertTrue(entry("/hello/:name").mayMatchSamePath(entry("/hello/john")));
+        assertTrue(entry("/hello/:name").mayMatchSamePath(entry("/:dir/:file")));
+        assertTrue(entry("/hello/*").mayMatchSamePath(entry("/hello/john/doe")));
+        assertTrue(entry("/hello/:name?").mayMatchSamePath(entry("/hello")));
+        assertTrue(entry("~/private").mayMatchSamePath(entry("/hello")));
+
+        assertFalse(entry("/hello/:name").mayMatchSamePath(entry("/users/:id")));
+        assertFalse(entry("/hello/:name").mayMatchSamePath(entry("/hello")));
+        assertFalse(entry("/hello/*").mayMatchSamePath(entry("/users/*")));
+    }
+
+    private static RouteEntry entry(String path) {
+        RouteEntry entry = new RouteEntry();
+        entry.httpMethod = HttpMethod.get;
+        entry.path = path;
+        entry.compile();
+        return entry;
+    }
+
 }
@@ -0,0 +1,80 @@
+package spark.route;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+import org.junit.Test;
+
+import spark.utils.SparkUtils;
+
+import static org.junit.Assert.assertEquals;
+
+public class RouteIndexTest {
+
+    private static final List<String> ROUTE_PATHS = Arrays.asList(
+            "/", "/hello", "/hello/", "/hello/?", "/hello/:name", "/hello/:name/", "/hello/:name/?",
+            "/hello/:name?", "/hello/:name/:surname?", "/hello/*", "/hello/*/world", "/*", "*",
+            "/users/:id/books/:book", "/users/:id/*", "/users/admin", "/users/admin/?", "/:dir",
+            "/:dir/:file", "/static/*", "/a/b*", "/file.html", "/dir/", "/:page/?",
+            "~/^\\/(user|login)", "~/\\.html?$/", "~/private", SparkUtils.ALL_PATHS);
+
+    private static final List<String> REQUEST_PATHS = Arrays.asList(
+            "", "/", "/hello", "/hello/", "/hello/john", "/hello/john/", "/hello/john/doe", "/hello/john/doe/",
+            "/hello/john/world", "/users/1/books/2", "/users/1/books/2/", "/users/1", "/users/1/",
+            "/users/admin", "/users/admin/", "/users", "/file.html", "/dir/", "/dir", "/static/js/app.js",
+            "/static/", "/static", "/a/b*", "/a/b*/c", "/login-page", "/panel/private-room/my.page",
+            "/beer/glass.htm", "//hello", "/hello//john", SparkUtils.ALL_PATHS);
+
+    @Test
+    public void testFind_SameResultsAsLinearScan() {
+        for (HttpMethod method : Arrays.asList(HttpMethod.get, HttpMethod.before, HttpMethod.after)) {
+            List<RouteEntry> entries = new ArrayList<>();
+            long order = 0;
+            for (String path : ROUTE_PATHS) {
+                RouteEntry entry = new RouteEntry();
+                entry.httpMethod = method;
+                entry.path = path;
+                entry.acceptedType = "*/*";
+                entry.target = path;
+                entry.order = order++;
+                entry.compile();
+                entries.add(entry);
+            }
+            RouteEntry other = new RouteEntry();
+            other.httpMethod = HttpMethod.post;
+            other.path = "/hello";
+            other.order = order;
+            other.compile();
+            entries.add(other);
+
+            RouteIndex index = RouteIndex.build(entries);
+
+            for (String path : REQUEST_PATHS) {
+                List<RouteEntry> expected = new ArrayList<>();
+                for (RouteEntry entry : entries) {
+                    if (entry.matches(method, path)) {
+                        expected.add(entry);
+                    }
+                }
+                assertEquals("Unexpected match for " + method + " " + path, expected, index.find(method, PathSegments.of(path)));
+            }
+        }
+    }
+
+    @Test
+    public void testFind_FirstMappedWins() {
+        Routes routes = Routes.create();
+        routes.add("get '/users/:id'", "*/*", "param");
+        routes.add("get '/users/admin'", "*/*", "literal");
+        routes.add("get '/users/*/page'", "*/*", "splat");
+
+        assertEquals("param", routes.find(HttpMethod.get, "/users/admin", null).getTarget());
+        assertEquals(2, routes.findMultiple(HttpMethod.get, "/users/admin", null).size());
+
+        routes.remove("/users/:id", "get");
+
+        assertEquals("literal", routes.find(HttpMethod.get, "/users/admin", null).getTarget());
+        assertEquals("splat", routes.find(HttpMethod.get, "/users/other/page", null).getTarget());
+    }
+}
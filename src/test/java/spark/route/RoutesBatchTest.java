@@ -0,0 +1,80 @@
+package spark.route;
+
+import org.junit.Test;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+
+public class RoutesBatchTest {
+
+    @Test
+    public void testBatch_RoutesPublishedWhenBatchEnds() {
+        Routes routes = Routes.create();
+        routes.add("get '/existing'", "*/*", "existing");
+
+        routes.startBatch();
+        routes.add("get '/users/:id'", "*/*", "param");
+        routes.add("get '/users/admin'", "*/*", "literal");
+
+        assertNull(routes.find(HttpMethod.get, "/users/admin", null));
+        assertEquals("existing", routes.find(HttpMethod.get, "/existing", null).getTarget());
+        assertEquals(1, routes.findAll().size());
+
+        routes.endBatch();
+
+        assertEquals("param", routes.find(HttpMethod.get, "/users/admin", null).getTarget());
+        assertEquals(2, routes.findMultiple(HttpMethod.get, "/users/admin", null).size());
+        assertEquals(3, routes.findAll().size());
+    }
+
+    @Test
+    public void testBatch_Nested() {
+        Routes routes = Routes.create();
+
+        routes.startBatch();
+        routes.add("get '/outer'", "*/*", "outer");
+        routes.startBatch();
+        routes.add("get '/inner'", "*/*", "inner");
+        routes.endBatch();
+
+        assertNull(routes.find(HttpMethod.get, "/inner", null));
+
+        routes.endBatch();
+
+        assertEquals("outer", routes.find(HttpMethod.get, "/outer", null).getTarget());
+        assertEquals("inner", routes.find(HttpMethod.get, "/inner", null).getTarget());
+    }
+
+    @Test(expected = IllegalStateException.class)
+    public void testEndBatch_WithoutStart() {
+        Routes.create().endBatch();
+    }
+
+    // A simple performance comparison of adding routes one by one and in a batch
+    @Test
+    public void testBatch_Performance() {
+        int count = 20_000;
+
+        Routes routes = Routes.create();
+        long start = System.nanoTime();
+        for (int i = 0; i < count; i++) {
+            routes.add("get '/service/" + i + "/item/:id'", "*/*", i);
+        }
+        long oneByOne = System.nanoTime() - start;
+
+        Routes batched = Routes.create();
+        start = System.nanoTime();
+        batched.startBatch();
+        for (int i = 0; i < count; i++) {
+            batched.add("get '/service/" + i + "/item/:id'", "*/*", i);
+        }
+        batched.endBatch();
+        long batch = System.nanoTime() - start;
+
+        assertEquals(count / 2, batched.find(HttpMethod.get, "/service/" + (count / 2) + "/item/1", null).getTarget());
+        assertEquals(count, batched.findAll().size());
+
+        System.out.println("Adding " + count + " routes: " + (oneByOne / 1_000_000) + "ms one by one, "
+                                   + (batch / 1_000_000) + "ms in a batch");
+    }
+}
@@ -0,0 +1,162 @@
+package spark.route;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+import org.junit.Test;
+
+import spark.routematch.RouteMatch;
+import spark.utils.SparkUtils;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertSame;
+
+public class RoutesTest {
+
+    @Test
+    public void testFirstAcceptType_FirstMappedWithExactPath() {
+        Routes routes = Routes.create();
+        routes.add("get '/hello/:name'", "text/html", "param");
+        routes.add("before '/hello'", "application/xml", "filter");
+        routes.add("get '/hello'", "application/json", "json");
+
+        assertEquals("application/xml", routes.firstAcceptType("/hello"));
+        assertEquals("text/html", routes.firstAcceptType("/hello/:name"));
+        assertNull(routes.firstAcceptType("/hello/john"));
+        assertNull(routes.firstAcceptType("/other"));
+    }
+
+    @Test
+    public void testFirstAcceptType_UpdatedWhenRoutesChange() {
+        Routes routes = Routes.create();
+        assertNull(routes.firstAcceptType("/hello"));
+
+        routes.add("get '/hello'", "application/json", "json");
+        assertEquals("application/json", routes.firstAcceptType("/hello"));
+
+        routes.add("post '/hello'", "text/html", "html");
+        assertEquals("application/json", routes.firstAcceptType("/hello"));
+
+        routes.remove("/hello", "get");
+        assertEquals("text/html", routes.firstAcceptType("/hello"));
+
+        routes.startBatch();
+        routes.add("get '/batch'", "text/plain", "plain");
+        routes.endBatch();
+        assertEquals("text/plain", routes.firstAcceptType("/batch"));
+
+        routes.clear();
+        assertNull(routes.firstAcceptType("/batch"));
+    }
+
+    @Test
+    public void testCache_HitsAndMisses() {
+        Routes routes = Routes.create();
+        routes.cache(10);
+        routes.add("get '/hello/:name'", "*/*", "hello");
+
+        assertEquals("hello", routes.find(HttpMethod.get, "/hello/john", "*/*").getTarget());
+        RouteMatch cached = routes.find(HttpMethod.get, "/hello/john", "*/*");
+        assertSame(cached, routes.find(HttpMethod.get, PathSegments.of("/hello/john"), "*/*"));
+        assertEquals("john", cached.getParams().get("name"));
+
+        // Requests which are not mapped are cached too
+        assertNull(routes.find(HttpMethod.get, "/other", "*/*"));
+        assertNull(routes.find(HttpMethod.get, "/other", "*/*"));
+        // Different method or accept type
+        assertNull(routes.find(HttpMethod.post, "/hello/john", "*/*"));
+        assertEquals("hello", routes.find(HttpMethod.get, "/hello/john", "text/html").getTarget());
+
+        assertEquals(3, routes.cacheHits());
+        assertEquals(4, routes.cacheMisses());
+    }
+
+    @Test
+    public void testCache_InvalidatedWhenRoutesChange() {
+        Routes routes = Routes.create();
+        routes.cache(10);
+
+        assertNull(routes.find(HttpMethod.get, "/hello", null));
+
+        routes.add("get '/hello'", "*/*", "first");
+        assertEquals("first", routes.find(HttpMethod.get, "/hello", null).getTarget());
+
+        routes.remove("/hello");
+        routes.add("get '/hello'", "*/*", "second");
+        assertEquals("second", routes.find(HttpMethod.get, "/hello", null).getTarget());
+
+        routes.startBatch();
+        routes.add("get '/batch'", "*/*", "batch");
+        assertNull(routes.find(HttpMethod.get, "/batch", null));
+        routes.endBatch();
+        assertEquals("batch", routes.find(HttpMethod.get, "/batch", null).getTarget());
+
+        routes.clear();
+        assertNull(routes.find(HttpMethod.get, "/hello", null));
+        assertEquals(0, routes.cacheHits());
+    }
+
+    @Test
+    public void testCache_LeastRecentlyUsedEvicted() {
+        Routes routes = Routes.create();
+        routes.cache(1);
+        routes.add("get '/:page'", "*/*", "page");
+
+        routes.find(HttpMethod.get, "/a", null);
+        routes.find(HttpMethod.get, "/a", null);
+        routes.find(HttpMethod.get, "/b", null);
+        routes.find(HttpMethod.get, "/a", null);
+        assertEquals(1, routes.cacheHits());
+        assertEquals(3, routes.cacheMisses());
+
+        routes.cache(0);
+        routes.find(HttpMethod.get, "/a", null);
+        assertEquals(1, routes.cacheHits());
+        assertEquals(3, routes.cacheMisses());
+    }
+
+    @Test
+    public void testFindFilters_SameFiltersAsFindMultiple() {
+        List<String> routePaths = Arrays.asList(
+                "/", "/hello", "/hello/", "/hello/:name", "/hello/:name/:surname?", "/users/*", "/users/:id/books",
+                "/a/b*", "/:page/?", "~/\\.html?$/");
+        List<String> filterPaths = Arrays.asList(
+                "/", "/hello", "/hello/?", "/hello/john", "/hello/:name", "/hello/*", "/*", "/users/1/books",
+                "/users/:id/*", "/users", "/a/b*", "/:page", "/:dir/:file", "~/private", SparkUtils.ALL_PATHS);
+        List<String> requestPaths = Arrays.asList(
+                "/", "/hello", "/hello/", "/hello/john", "/hello/john/doe", "/users/1", "/users/1/books", "/users/",
+                "/a/b*", "/a/b*/c", "/page", "/page/", "/index.html", "/private/index.html");
+
+        Routes routes = Routes.create();
+        for (String path : routePaths) {
+            routes.add("get '" + path + "'", "*/*", path);
+        }
+        for (HttpMethod method : Arrays.asList(HttpMethod.before, HttpMethod.after, HttpMethod.afterafter)) {
+            for (String path : filterPaths) {
+                routes.add(method + " '" + path + "'", "*/*", method + path);
+            }
+        }
+        routes.add("before '/hello/:name'", "application/json", "json");
+
+        for (String path : requestPaths) {
+            for (String acceptType : Arrays.asList(null, "*/*", "text/html")) {
+                RouteMatch route = routes.find(HttpMethod.get, path, acceptType);
+                for (HttpMethod method : Arrays.asList(HttpMethod.before, HttpMethod.after, HttpMethod.afterafter)) {
+                    assertEquals("Unexpected filters for " + method + " " + path + " (route: " + route + ")",
+                                 targets(routes.findMultiple(method, path, acceptType)),
+                                 targets(routes.findFilters(method, route, PathSegments.of(path), acceptType)));
+                }
+            }
+        }
+    }
+
+    private static List<Object> targets(List<RouteMatch> matches) {
+        List<Object> targets = new ArrayList<>();
+        for (RouteMatch match : matches) {
+            targets.add(match.getTarget());
+        }
+        return targets;
+    }
+}
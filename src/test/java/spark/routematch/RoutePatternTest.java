@@ -0,0 +1,36 @@
+package spark.routematch;
+
+import org.junit.Test;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+public class RoutePatternTest {
+
+    @Test
+    public void testCompile_RemovesPrefixAndTrailingSlash() {
+        RoutePattern pattern = RoutePattern.compile("~/\\.html?$/");
+
+        assertEquals("\\.html?$", pattern.toString());
+        assertTrue(pattern.matches("/beer/hold-into-my-glass.HTM"));
+        assertFalse(pattern.matches("/beer/hold-into-my-glass.pdf"));
+        assertFalse(pattern.hasGroups());
+    }
+
+    @Test
+    public void testCompile_NamedGroups() {
+        RoutePattern pattern = RoutePattern.compile("~/^\\/(?<topic>[^-]+)-(?<code>[^-]+)\\.(html)$/");
+
+        assertTrue(pattern.hasGroups());
+        assertEquals(2, pattern.namedGroups().size());
+        assertTrue(pattern.namedGroups().contains("topic"));
+        assertTrue(pattern.namedGroups().contains("code"));
+    }
+
+    @Test
+    public void testIsRegex() {
+        assertTrue(RoutePattern.isRegex("~/private"));
+        assertFalse(RoutePattern.isRegex("/private"));
+    }
+}
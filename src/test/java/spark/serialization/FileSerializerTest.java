@@ -0,0 +1,95 @@
+package spark.serialization;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.Random;
+
+import org.junit.After;
+import org.junit.Assert;
+import org.junit.Before;
+import org.junit.Test;
+
+import spark.Service;
+
+public class FileSerializerTest {
+
+    private FileSerializer serializer = new FileSerializer();
+
+    private Path file;
+
+    @Before
+    public void setup() throws IOException {
+        file = Files.createTempFile("spark-file-serializer-", ".txt");
+        Files.write(file, "Hello file".getBytes(StandardCharsets.UTF_8));
+    }
+
+    @After
+    public void tearDown() throws IOException {
+        Files.deleteIfExists(file);
+    }
+
+    @Test
+    public void testCanProcess() throws IOException {
+        Assert.assertTrue(serializer.canProcess(file));
+        Assert.assertTrue(serializer.canProcess(file.toFile()));
+        try (FileChannel channel = FileChannel.open(file)) {
+            Assert.assertTrue(serializer.canProcess(channel));
+        }
+        Assert.assertFalse(serializer.canProcess(file.toString()));
+    }
+
+    @Test
+    public void testProcess() throws IOException {
+        ByteArrayOutputStream output = new ByteArrayOutputStream();
+
+        serializer.process(output, file);
+        serializer.process(output, file.toFile());
+
+        Assert.assertEquals("Hello fileHello file", output.toString(StandardCharsets.UTF_8));
+    }
+
+    @Test
+    public void testProcess_FileChannelFromPosition() throws IOException {
+        ByteArrayOutputStream output = new ByteArrayOutputStream();
+        FileChannel channel = FileChannel.open(file, StandardOpenOption.READ);
+        channel.position(6);
+
+        serializer.process(output, channel);
+
+        Assert.assertEquals("file", output.toString(StandardCharsets.UTF_8));
+        Assert.assertFalse("Expected channel to be closed", channel.isOpen());
+    }
+
+    @Test
+    public void testProcess_MappedSegments() throws Exception {
+        // More than one segment, each one is unmapped once written
+        byte[] content = new byte[(int) FileSerializer.SEGMENT_SIZE + 10];
+        new Random(1).nextBytes(content);
+        Files.write(file, content);
+
+        Service service = Service.ignite().port(0);
+        try {
+            service.get("/file", (request, response) -> file);
+            service.awaitInitialization();
+
+            URI uri = URI.create("http://localhost:" + service.port() + "/file");
+            for (int i = 0; i < 2; i++) {
+                HttpResponse<byte[]> response = HttpClient.newHttpClient().send(
+                        HttpRequest.newBuilder(uri).build(), HttpResponse.BodyHandlers.ofByteArray());
+                Assert.assertArrayEquals(content, response.body());
+            }
+        } finally {
+            service.stop();
+            service.awaitStop();
+        }
+    }
+}
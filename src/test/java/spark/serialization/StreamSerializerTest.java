@@ -0,0 +1,165 @@
+package spark.serialization;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+import java.util.Iterator;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.stream.Collectors;
+import java.util.stream.IntStream;
+import java.util.stream.Stream;
+
+import org.junit.Assert;
+import org.junit.Test;
+
+public class StreamSerializerTest {
+
+    private StreamSerializer serializer = new StreamSerializer();
+
+    @Test
+    public void testCanProcess() {
+        Assert.assertTrue(serializer.canProcess(Stream.of("a")));
+        Assert.assertTrue(serializer.canProcess(Arrays.asList("a").iterator()));
+        Assert.assertTrue(serializer.canProcess(DelimitedStream.of(Stream.of("a"))));
+        Assert.assertTrue(serializer.canProcess(DelimitedStream.of((Iterable<String>) () -> Arrays.asList("a").iterator())));
+        // Iterables (ie: collections or JSON arrays) keep their toString() rendering
+        Assert.assertFalse(serializer.canProcess(Arrays.asList("a")));
+        Assert.assertFalse(serializer.canProcess((Iterable<String>) () -> Arrays.asList("a").iterator()));
+        Assert.assertFalse(serializer.canProcess("a"));
+    }
+
+    @Test
+    public void testProcess_OneElementPerLine() throws IOException {
+        ByteArrayOutputStream output = new ByteArrayOutputStream();
+
+        serializer.process(output, Stream.of("{\"id\":1}", "{\"id\":2}"));
+
+        Assert.assertEquals("{\"id\":1}\n{\"id\":2}\n", output.toString(StandardCharsets.UTF_8));
+    }
+
+    @Test
+    public void testProcess_Delimited() throws IOException {
+        ByteArrayOutputStream output = new ByteArrayOutputStream();
+
+        serializer.process(output, DelimitedStream.of(Arrays.asList(1, 2, 3)).prefix("[").delimiter(",").suffix("]"));
+        serializer.process(output, DelimitedStream.of(Stream.empty()).prefix("[").delimiter(",").suffix("]"));
+        serializer.process(output, DelimitedStream.of(Stream.of("a".getBytes(), "b".getBytes())).suffix(""));
+
+        Assert.assertEquals("[1,2,3][]a\nb", output.toString(StandardCharsets.UTF_8));
+    }
+
+    @Test
+    public void testProcess_IterableNotWrapped() throws IOException {
+        ByteArrayOutputStream output = new ByteArrayOutputStream();
+
+        new SerializerChain().process(output, new JsonArray("a", "b"));
+
+        Assert.assertEquals("[\"a\",\"b\"]", output.toString(StandardCharsets.UTF_8));
+    }
+
+    @Test
+    public void testProcess_ElementsWrittenLazily() throws IOException {
+        AtomicInteger generated = new AtomicInteger();
+        AtomicInteger generatedAtFirstFlush = new AtomicInteger();
+        CountingOutputStream output = new CountingOutputStream() {
+            @Override
+            public void flush() {
+                generatedAtFirstFlush.compareAndSet(0, generated.get());
+                super.flush();
+            }
+        };
+
+        // 1000 elements of 100 bytes, flushed every 1000 bytes
+        Stream<String> lines = IntStream.range(0, 1000).mapToObj(i -> {
+            generated.incrementAndGet();
+            return String.format("%0100d", i);
+        });
+        serializer.process(output, DelimitedStream.of(lines).delimiter("").suffix("").flushEvery(1000));
+
+        Assert.assertEquals(100_000, output.count);
+        Assert.assertEquals(100, output.flushes);
+        Assert.assertEquals(10, generatedAtFirstFlush.get());
+    }
+
+    @Test
+    public void testProcess_ClosesStream() throws IOException {
+        AtomicBoolean closed = new AtomicBoolean();
+
+        serializer.process(new ByteArrayOutputStream(), Stream.of("a").onClose(() -> closed.set(true)));
+
+        Assert.assertTrue("Expected stream to be closed", closed.get());
+    }
+
+    @Test
+    public void testProcess_ClosesStreamWhenClientDisconnects() {
+        AtomicBoolean closed = new AtomicBoolean();
+        AtomicInteger generated = new AtomicInteger();
+        Stream<Integer> infinite = Stream.iterate(0, i -> i + 1).peek(i -> generated.incrementAndGet());
+        OutputStream disconnected = new CountingOutputStream() {
+            @Override
+            public void write(byte[] b, int off, int len) throws IOException {
+                if (count > 1000) {
+                    throw new IOException("Connection reset");
+                }
+                super.write(b, off, len);
+            }
+        };
+
+        try {
+            serializer.process(disconnected, infinite.onClose(() -> closed.set(true)));
+            Assert.fail("Expected the write to fail");
+        } catch (IOException e) {
+            Assert.assertEquals("Connection reset", e.getMessage());
+        }
+        Assert.assertTrue("Expected stream to be closed", closed.get());
+        Assert.assertTrue(generated.get() < 1000);
+    }
+
+    private static class CountingOutputStream extends OutputStream {
+
+        int count;
+        int flushes;
+
+        @Override
+        public void write(int b) throws IOException {
+            write(new byte[] {(byte) b}, 0, 1);
+        }
+
+        @Override
+        public void write(byte[] b, int off, int len) throws IOException {
+            count += len;
+        }
+
+        @Override
+        public void flush() {
+            flushes++;
+        }
+    }
+
+    /**
+     * An iterable which is not a collection, rendered as JSON by its toString() (like the JSON arrays of JSON
+     * libraries)
+     */
+    private static class JsonArray implements Iterable<String> {
+
+        private final List<String> values;
+
+        JsonArray(String... values) {
+            this.values = Arrays.asList(values);
+        }
+
+        @Override
+        public Iterator<String> iterator() {
+            return values.iterator();
+        }
+
+        @Override
+        public String toString() {
+            return values.stream().map(value -> "\"" + value + "\"").collect(Collectors.joining(",", "[", "]"));
+        }
+    }
+}
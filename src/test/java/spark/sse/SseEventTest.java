@@ -0,0 +1,27 @@
+package spark.sse;
+
+import org.junit.Test;
+
+import static org.junit.Assert.assertEquals;
+
+public class SseEventTest {
+
+    @Test
+    public void testToString() {
+        assertEquals("data: hello\n\n", SseEvent.of("hello").toString());
+        assertEquals("data: \n\n", SseEvent.of("").toString());
+        assertEquals("id: 7\nevent: update\nretry: 500\ndata: a\ndata: \ndata: b\n\n",
+                     SseEvent.of("a\n\nb").event("update").id("7").retry(500).toString());
+        assertEquals("data: a\ndata: b\ndata: c\n\n", SseEvent.of("a\r\nb\rc").toString());
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void testEvent_NewLineNotAllowed() {
+        SseEvent.of("data").event("up\ndate");
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void testId_NewLineNotAllowed() {
+        SseEvent.of("data").id("1\r");
+    }
+}
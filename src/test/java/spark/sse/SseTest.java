@@ -0,0 +1,133 @@
+package spark.sse;
+
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.function.BooleanSupplier;
+import java.util.stream.Stream;
+
+import org.junit.AfterClass;
+import org.junit.BeforeClass;
+import org.junit.Test;
+
+import spark.Service;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+public class SseTest {
+
+    private static final int MAX_THREADS = 16;
+
+    private static final SseBroadcaster BROADCASTER = new SseBroadcaster();
+    private static final CountDownLatch CLOSED = new CountDownLatch(1);
+
+    private static Service service;
+    private static HttpClient client;
+
+    @BeforeClass
+    public static void setup() {
+        service = Service.ignite().port(0).threadPool(MAX_THREADS);
+
+        service.sse("/events", (request, emitter) -> {
+            emitter.send(SseEvent.of("first\nsecond").event("greeting").id("1").retry(1000));
+            emitter.send("Hello " + request.queryParams("name"));
+            emitter.close();
+        });
+        service.sse("/broadcast", (request, emitter) -> {
+            BROADCASTER.add(emitter);
+            emitter.onClose(CLOSED::countDown);
+        }, 100);
+        service.asyncTimeout(100, () -> service.sse("/slow", (request, emitter) -> {
+            emitter.send("opened");
+            CompletableFuture.delayedExecutor(500, TimeUnit.MILLISECONDS).execute(() -> {
+                emitter.send("later");
+                emitter.close();
+            });
+        }));
+        service.awaitInitialization();
+
+        client = HttpClient.newHttpClient();
+    }
+
+    @AfterClass
+    public static void tearDown() {
+        BROADCASTER.close();
+        service.stop();
+        service.awaitStop();
+    }
+
+    @Test
+    public void testEvents() throws Exception {
+        HttpResponse<Stream<String>> response = open("/events?name=sse");
+
+        assertEquals(200, response.statusCode());
+        assertEquals("text/event-stream", response.headers().firstValue("Content-Type").orElse(null));
+        assertEquals("no-cache", response.headers().firstValue("Cache-Control").orElse(null));
+
+        List<String> lines = new ArrayList<>();
+        response.body().forEach(lines::add);
+        assertEquals(List.of("id: 1", "event: greeting", "retry: 1000", "data: first", "data: second", "",
+                             "data: Hello sse", ""), lines);
+    }
+
+    @Test
+    public void testEvents_NoGroupTimeout() throws Exception {
+        List<String> lines = new ArrayList<>();
+        open("/slow").body().forEach(lines::add);
+
+        assertEquals(List.of("data: opened", "", "data: later", ""), lines);
+    }
+
+    @Test
+    public void testBroadcast_IdleStreamsHoldNoThread() throws Exception {
+        int subscribers = 4 * MAX_THREADS;
+        List<Stream<String>> streams = new ArrayList<>();
+        for (int i = 0; i < subscribers; i++) {
+            streams.add(open("/broadcast").body());
+        }
+        await(() -> BROADCASTER.size() == subscribers);
+        assertTrue("Idle streams should not hold threads: " + service.activeThreadCount(),
+                   service.activeThreadCount() < MAX_THREADS);
+
+        assertEquals(subscribers, BROADCASTER.broadcast(SseEvent.of("update").event("tick")));
+        for (Stream<String> stream : streams) {
+            Iterator<String> lines = stream.iterator();
+            // Heartbeats may come first
+            String line;
+            while ((line = lines.next()).startsWith(":") || line.isEmpty()) {
+                // skip
+            }
+            assertEquals("event: tick", line);
+            assertEquals("data: update", lines.next());
+        }
+
+        // A disconnected client is removed (detected by the heartbeat)
+        streams.get(0).close();
+        assertTrue(CLOSED.await(10, TimeUnit.SECONDS));
+        await(() -> BROADCASTER.size() == subscribers - 1);
+
+        streams.forEach(Stream::close);
+    }
+
+    private static HttpResponse<Stream<String>> open(String path) throws Exception {
+        URI uri = URI.create("http://localhost:" + service.port() + path);
+        return client.send(HttpRequest.newBuilder(uri).header("Accept", "text/event-stream").build(),
+                           HttpResponse.BodyHandlers.ofLines());
+    }
+
+    private static void await(BooleanSupplier condition) throws InterruptedException {
+        long deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(10);
+        while (!condition.getAsBoolean() && System.nanoTime() < deadline) {
+            Thread.sleep(10);
+        }
+        assertTrue(condition.getAsBoolean());
+    }
+}
@@ -0,0 +1,47 @@
+package spark.staticfiles;
+
+import java.util.List;
+
+import org.junit.Assert;
+import org.junit.Test;
+
+public class ByteRangeTest {
+
+    @Test
+    public void testParse() {
+        assertRanges("bytes=0-9", 100, "bytes 0-9/100");
+        assertRanges("bytes=90-", 100, "bytes 90-99/100");
+        assertRanges("bytes=-10", 100, "bytes 90-99/100");
+        assertRanges("bytes=-1000", 100, "bytes 0-99/100");
+        assertRanges("bytes=50-1000", 100, "bytes 50-99/100");
+        assertRanges("bytes=0-0, 10-19 ,-5", 100, "bytes 0-0/100", "bytes 10-19/100", "bytes 95-99/100");
+    }
+
+    @Test
+    public void testParse_Unsatisfiable() {
+        assertRanges("bytes=100-", 100);
+        assertRanges("bytes=200-300", 100);
+        assertRanges("bytes=-0", 100);
+        // Only the satisfiable ones
+        assertRanges("bytes=200-300,0-1", 100, "bytes 0-1/100");
+    }
+
+    @Test
+    public void testParse_Invalid() {
+        Assert.assertNull(ByteRange.parse("items=0-9", 100));
+        Assert.assertNull(ByteRange.parse("bytes=9-0", 100));
+        Assert.assertNull(ByteRange.parse("bytes=a-b", 100));
+        Assert.assertNull(ByteRange.parse("bytes=10", 100));
+        Assert.assertNull(ByteRange.parse("bytes=" + "0-1,".repeat(ByteRange.MAX_RANGES + 1), 100));
+    }
+
+    private static void assertRanges(String header, long length, String... expected) {
+        List<ByteRange> ranges = ByteRange.parse(header, length);
+
+        Assert.assertNotNull(header, ranges);
+        Assert.assertEquals(header, expected.length, ranges.size());
+        for (int i = 0; i < expected.length; i++) {
+            Assert.assertEquals(header, expected[i], ranges.get(i).contentRange(length));
+        }
+    }
+}
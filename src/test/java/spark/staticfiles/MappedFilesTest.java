@@ -0,0 +1,190 @@
+package spark.staticfiles;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.attribute.FileTime;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.TimeUnit;
+
+import org.junit.AfterClass;
+import org.junit.BeforeClass;
+import org.junit.Test;
+
+import spark.Service;
+import spark.resource.ExternalResource;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertNotSame;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+
+public class MappedFilesTest {
+
+    private static final int SIZE = 4 * 1024 * 1024;
+
+    private static Path folder;
+    private static byte[] content;
+    private static Service service;
+    private static HttpClient client;
+
+    @BeforeClass
+    public static void setup() throws IOException {
+        folder = Files.createTempDirectory("spark-mapped-");
+        content = new byte[SIZE];
+        for (int i = 0; i < SIZE; i++) {
+            content[i] = (byte) (i * 31 + i / 4096);
+        }
+        Files.write(folder.resolve("video.mp4"), content);
+        Files.write(folder.resolve("small.txt"), "small".getBytes());
+
+        service = Service.ignite().port(0);
+        service.staticFiles.externalLocation(folder.toString());
+        service.staticFiles.memoryMapped(1024 * 1024, 64 * 1024 * 1024);
+        service.init();
+        service.awaitInitialization();
+        client = HttpClient.newHttpClient();
+    }
+
+    @AfterClass
+    public static void tearDown() throws IOException {
+        service.stop();
+        service.awaitStop();
+        try (var files = Files.list(folder)) {
+            for (Path file : (Iterable<Path>) files::iterator) {
+                Files.delete(file);
+            }
+        }
+        Files.delete(folder);
+    }
+
+    @Test
+    public void testAcquire_Thresholds() throws IOException {
+        MappedFiles mappedFiles = new MappedFiles(1024 * 1024, 64 * 1024 * 1024);
+
+        assertNull(mappedFiles.acquire(resource("small.txt")));
+        assertNull(new MappedFiles(1024, 1024 * 1024).acquire(resource("video.mp4")));
+
+        MappedFiles.MappedFile mapped = mappedFiles.acquire(resource("video.mp4"));
+        assertNotNull(mapped);
+        assertEquals(SIZE, mapped.size());
+        assertEquals(SIZE, mappedFiles.mappedBytes());
+        mapped.release();
+        mappedFiles.clear();
+    }
+
+    @Test
+    public void testAcquire_SharedUntilChanged() throws IOException {
+        Path file = folder.resolve("changing.bin");
+        Files.write(file, content);
+        MappedFiles mappedFiles = new MappedFiles(1024 * 1024, 64 * 1024 * 1024);
+
+        MappedFiles.MappedFile first = mappedFiles.acquire(resource("changing.bin"));
+        MappedFiles.MappedFile second = mappedFiles.acquire(resource("changing.bin"));
+        assertSame(first, second);
+        first.release();
+        second.release();
+
+        byte[] changed = Arrays.copyOf(content, SIZE / 2);
+        Files.write(file, changed);
+        Files.setLastModifiedTime(file, FileTime.fromMillis(System.currentTimeMillis() + 60_000));
+
+        MappedFiles.MappedFile remapped = mappedFiles.acquire(resource("changing.bin"));
+        assertNotSame(first, remapped);
+        assertEquals(changed.length, remapped.size());
+        assertEquals(changed.length, mappedFiles.mappedBytes());
+        assertEquals(1, mappedFiles.size());
+        ByteArrayOutputStream output = new ByteArrayOutputStream();
+        remapped.write(output, 0, remapped.size());
+        assertArrayEquals(changed, output.toByteArray());
+        remapped.release();
+        mappedFiles.clear();
+    }
+
+    @Test
+    public void testAcquire_LeastRecentlyUsedEvicted() throws IOException {
+        for (String name : new String[] {"a.bin", "b.bin", "c.bin"}) {
+            Files.write(folder.resolve(name), content);
+        }
+        MappedFiles mappedFiles = new MappedFiles(1024 * 1024, 2 * SIZE);
+
+        mappedFiles.acquire(resource("a.bin")).release();
+        mappedFiles.acquire(resource("b.bin")).release();
+        MappedFiles.MappedFile a = mappedFiles.acquire(resource("a.bin"));
+        // Evicts "b.bin", while "a.bin", still being written, stays readable
+        mappedFiles.acquire(resource("c.bin")).release();
+
+        assertEquals(2, mappedFiles.size());
+        assertEquals(2L * SIZE, mappedFiles.mappedBytes());
+        ByteArrayOutputStream output = new ByteArrayOutputStream();
+        a.write(output, SIZE - 10, 10);
+        assertArrayEquals(Arrays.copyOfRange(content, SIZE - 10, SIZE), output.toByteArray());
+        a.release();
+        assertSame(a, mappedFiles.acquire(resource("a.bin")));
+        a.release();
+        mappedFiles.clear();
+        assertEquals(0, mappedFiles.mappedBytes());
+    }
+
+    @Test
+    public void testServe() throws Exception {
+        HttpResponse<byte[]> response = get("/video.mp4", null);
+
+        assertEquals(200, response.statusCode());
+        assertEquals(String.valueOf(SIZE), response.headers().firstValue("Content-Length").orElse(null));
+        assertArrayEquals(content, response.body());
+        assertEquals("small", new String(get("/small.txt", null).body()));
+    }
+
+    @Test
+    public void testServe_Ranges() throws Exception {
+        HttpResponse<byte[]> response = get("/video.mp4", "bytes=1000-1999");
+        assertEquals(206, response.statusCode());
+        assertEquals("bytes 1000-1999/" + SIZE, response.headers().firstValue("Content-Range").orElse(null));
+        assertArrayEquals(Arrays.copyOfRange(content, 1000, 2000), response.body());
+
+        response = get("/video.mp4", "bytes=-100");
+        assertEquals(206, response.statusCode());
+        assertArrayEquals(Arrays.copyOfRange(content, SIZE - 100, SIZE), response.body());
+
+        response = get("/video.mp4", "bytes=0-9,100-109");
+        assertEquals(206, response.statusCode());
+        String body = new String(response.body(), "ISO-8859-1");
+        assertTrue(body.contains(new String(Arrays.copyOfRange(content, 100, 110), "ISO-8859-1")));
+    }
+
+    @Test
+    public void testServe_ConcurrentDownloads() throws Exception {
+        URI uri = URI.create("http://localhost:" + service.port() + "/video.mp4");
+        List<CompletableFuture<HttpResponse<byte[]>>> responses = new ArrayList<>();
+        for (int i = 0; i < 8; i++) {
+            responses.add(client.sendAsync(HttpRequest.newBuilder(uri).build(), HttpResponse.BodyHandlers.ofByteArray()));
+        }
+        for (CompletableFuture<HttpResponse<byte[]>> response : responses) {
+            assertArrayEquals(content, response.get(30, TimeUnit.SECONDS).body());
+        }
+    }
+
+    private static ExternalResource resource(String name) throws IOException {
+        return new ExternalResource(folder.resolve(name).toString());
+    }
+
+    private static HttpResponse<byte[]> get(String path, String range) throws Exception {
+        HttpRequest.Builder request = HttpRequest.newBuilder(URI.create("http://localhost:" + service.port() + path));
+        if (range != null) {
+            request.header("Range", range);
+        }
+        return client.send(request.build(), HttpResponse.BodyHandlers.ofByteArray());
+    }
+}
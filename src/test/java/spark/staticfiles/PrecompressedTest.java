@@ -0,0 +1,143 @@
+package spark.staticfiles;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.zip.GZIPOutputStream;
+
+import org.junit.AfterClass;
+import org.junit.BeforeClass;
+import org.junit.Test;
+
+import spark.Service;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+
+public class PrecompressedTest {
+
+    private static final String SCRIPT = "console.log('Hello precompressed');";
+    private static final byte[] BROTLI = {'b', 'r', 0, 1, 2};
+
+    private static Path folder;
+    private static byte[] gzip;
+    private static Service service;
+    private static Service cachedService;
+    private static HttpClient client;
+
+    @BeforeClass
+    public static void setup() throws IOException {
+        folder = Files.createTempDirectory("spark-precompressed-");
+        Files.write(folder.resolve("app.js"), SCRIPT.getBytes(StandardCharsets.UTF_8));
+        ByteArrayOutputStream compressed = new ByteArrayOutputStream();
+        try (GZIPOutputStream output = new GZIPOutputStream(compressed)) {
+            output.write(SCRIPT.getBytes(StandardCharsets.UTF_8));
+        }
+        gzip = compressed.toByteArray();
+        Files.write(folder.resolve("app.js.gz"), gzip);
+        Files.write(folder.resolve("app.js.br"), BROTLI);
+
+        service = ignite(false);
+        cachedService = ignite(true);
+        client = HttpClient.newHttpClient();
+    }
+
+    private static Service ignite(boolean cached) {
+        Service service = Service.ignite().port(0);
+        service.staticFiles.externalLocation(folder.toString());
+        service.staticFiles.precompressed();
+        if (cached) {
+            service.staticFiles.cache(1024 * 1024, 1024);
+        }
+        service.init();
+        service.awaitInitialization();
+        return service;
+    }
+
+    @AfterClass
+    public static void tearDown() throws IOException {
+        for (Service service : new Service[] {service, cachedService}) {
+            service.stop();
+            service.awaitStop();
+        }
+        for (String file : new String[] {"app.js", "app.js.gz", "app.js.br"}) {
+            Files.deleteIfExists(folder.resolve(file));
+        }
+        Files.deleteIfExists(folder);
+    }
+
+    @Test
+    public void testPrecompressed() throws Exception {
+        for (Service service : new Service[] {service, cachedService, service, cachedService}) {
+            HttpResponse<byte[]> response = get(service, "/app.js", "gzip, deflate");
+
+            assertEquals(200, response.statusCode());
+            assertArrayEquals(gzip, response.body());
+            assertEquals("gzip", header(response, "Content-Encoding"));
+            assertEquals("Accept-Encoding", header(response, "Vary"));
+            assertEquals("application/javascript", header(response, "Content-Type"));
+            assertEquals(String.valueOf(gzip.length), header(response, "Content-Length"));
+
+            assertArrayEquals(BROTLI, get(service, "/app.js", "gzip, br").body());
+        }
+        assertEquals(2, cachedService.staticFiles.cache().hits());
+    }
+
+    @Test
+    public void testPrecompressed_Preferences() throws Exception {
+        assertEquals("gzip", header(get(service, "/app.js", "br;q=0.5, gzip"), "Content-Encoding"));
+        assertEquals("gzip", header(get(service, "/app.js", "br;q=0, *"), "Content-Encoding"));
+        assertEquals("br", header(get(service, "/app.js", "*"), "Content-Encoding"));
+        // No Zstandard sibling
+        assertNull(header(get(service, "/app.js", "zstd"), "Content-Encoding"));
+        assertEquals("gzip", header(get(service, "/app.js", "zstd, gzip"), "Content-Encoding"));
+    }
+
+    @Test
+    public void testPrecompressed_NotAccepted() throws Exception {
+        for (Service service : new Service[] {service, cachedService}) {
+            HttpResponse<byte[]> response = get(service, "/app.js", null);
+
+            assertEquals(SCRIPT, new String(response.body(), StandardCharsets.UTF_8));
+            assertNull(header(response, "Content-Encoding"));
+            assertEquals("Accept-Encoding", header(response, "Vary"));
+
+            response = get(service, "/app.js", "identity");
+            assertEquals(SCRIPT, new String(response.body(), StandardCharsets.UTF_8));
+        }
+    }
+
+    @Test
+    public void testPrecompressed_Validators() throws Exception {
+        String etag = header(get(service, "/app.js", null), "ETag");
+        String gzipEtag = header(get(service, "/app.js", "gzip"), "ETag");
+
+        assertEquals(false, etag.equals(gzipEtag));
+        HttpRequest request = HttpRequest.newBuilder(uri(service, "/app.js"))
+                .headers("Accept-Encoding", "gzip", "If-None-Match", gzipEtag).build();
+        assertEquals(304, client.send(request, HttpResponse.BodyHandlers.ofByteArray()).statusCode());
+    }
+
+    private static HttpResponse<byte[]> get(Service service, String path, String acceptEncoding) throws Exception {
+        HttpRequest.Builder request = HttpRequest.newBuilder(uri(service, path));
+        if (acceptEncoding != null) {
+            request.header("Accept-Encoding", acceptEncoding);
+        }
+        return client.send(request.build(), HttpResponse.BodyHandlers.ofByteArray());
+    }
+
+    private static URI uri(Service service, String path) {
+        return URI.create("http://localhost:" + service.port() + path);
+    }
+
+    private static String header(HttpResponse<?> response, String name) {
+        return response.headers().firstValue(name).orElse(null);
+    }
+}
@@ -0,0 +1,154 @@
+package spark.staticfiles;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import spark.Service;
+import spark.resource.ExternalResource;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertNull;
+
+public class StaticFilesCacheTest {
+
+    private Path folder;
+    private Service service;
+
+    @Before
+    public void setup() throws IOException {
+        folder = Files.createTempDirectory("spark-cache-");
+    }
+
+    @After
+    public void tearDown() throws IOException {
+        if (service != null) {
+            service.stop();
+            service.awaitStop();
+        }
+        try (var files = Files.list(folder)) {
+            for (Path file : (Iterable<Path>) files::iterator) {
+                Files.delete(file);
+            }
+        }
+        Files.delete(folder);
+    }
+
+    @Test
+    public void testLoad() throws IOException {
+        StaticFilesCache cache = new StaticFilesCache(1000, 100);
+
+        StaticFilesCache.Entry entry = cache.load("/app.js", resource("app.js", 10));
+
+        assertNotNull(entry);
+        assertEquals(10, entry.length());
+        assertEquals("application/javascript", entry.contentType());
+        assertNotNull(entry.validators().etag());
+        try (InputStream content = entry.getInputStream()) {
+            assertEquals(10, content.readAllBytes().length);
+        }
+        assertEquals(entry, cache.get("/app.js"));
+        assertNull(cache.get("/other.js"));
+        assertEquals(1, cache.hits());
+        assertEquals(1, cache.misses());
+    }
+
+    @Test
+    public void testLoad_FileTooLarge() throws IOException {
+        StaticFilesCache cache = new StaticFilesCache(1000, 100);
+
+        assertNull(cache.load("/video.mp4", resource("video.mp4", 101)));
+        assertEquals(0, cache.size());
+        assertEquals(1, cache.misses());
+    }
+
+    @Test
+    public void testLoad_LeastRecentlyUsedEvicted() throws IOException {
+        StaticFilesCache cache = new StaticFilesCache(250, 100);
+
+        cache.load("/a.css", resource("a.css", 100));
+        cache.load("/b.css", resource("b.css", 100));
+        cache.get("/a.css");
+        cache.load("/c.css", resource("c.css", 100));
+
+        assertNotNull(cache.get("/a.css"));
+        assertNull(cache.get("/b.css"));
+        assertNotNull(cache.get("/c.css"));
+        assertEquals(2, cache.size());
+        assertEquals(200, cache.bytes());
+        assertEquals(1, cache.evictions());
+    }
+
+    @Test
+    public void testInvalidate() throws IOException {
+        StaticFilesCache cache = new StaticFilesCache(1000, 100);
+        cache.load("/a.css", resource("a.css", 10));
+        cache.load("/b.css", resource("b.css", 20));
+
+        cache.invalidate("/a.css");
+        assertNull(cache.get("/a.css"));
+        assertEquals(20, cache.bytes());
+
+        cache.invalidate();
+        assertNull(cache.get("/b.css"));
+        assertEquals(0, cache.size());
+        assertEquals(0, cache.bytes());
+    }
+
+    @Test
+    public void testServe_FromCache() throws Exception {
+        Path file = folder.resolve("style.css");
+        Files.write(file, "body {}".getBytes(StandardCharsets.UTF_8));
+
+        service = Service.ignite().port(0);
+        service.staticFiles.externalLocation(folder.toString());
+        service.staticFiles.cache(1024 * 1024, 64 * 1024);
+        service.init();
+        service.awaitInitialization();
+        StaticFilesCache cache = service.staticFiles.cache();
+
+        HttpResponse<String> response = get("/style.css");
+        assertEquals("body {}", response.body());
+        assertEquals("text/css", response.headers().firstValue("Content-Type").orElse(null));
+        String etag = response.headers().firstValue("ETag").orElse(null);
+        assertNotNull(etag);
+
+        Files.write(file, "body {color: red}".getBytes(StandardCharsets.UTF_8));
+        response = get("/style.css");
+        assertEquals("body {}", response.body());
+        assertEquals(etag, response.headers().firstValue("ETag").orElse(null));
+        assertEquals(304, get("/style.css", "If-None-Match", etag).statusCode());
+        assertEquals("bod", get("/style.css", "Range", "bytes=0-2").body());
+        assertEquals(1, cache.misses());
+        assertEquals(3, cache.hits());
+
+        cache.invalidate("/style.css");
+        assertEquals("body {color: red}", get("/style.css").body());
+        assertEquals(2, cache.misses());
+    }
+
+    private ExternalResource resource(String name, int size) throws IOException {
+        Path file = folder.resolve(name);
+        Files.write(file, new byte[size]);
+        return new ExternalResource(file.toString());
+    }
+
+    private HttpResponse<String> get(String path, String... headers) throws Exception {
+        HttpRequest.Builder request = HttpRequest.newBuilder(URI.create("http://localhost:" + service.port() + path));
+        if (headers.length > 0) {
+            request.headers(headers);
+        }
+        return HttpClient.newHttpClient().send(request.build(), HttpResponse.BodyHandlers.ofString());
+    }
+}
@@ -0,0 +1,185 @@
+package spark.staticfiles;
+
+import java.io.IOException;
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.attribute.FileTime;
+
+import org.junit.AfterClass;
+import org.junit.BeforeClass;
+import org.junit.Test;
+
+import spark.Service;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotEquals;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertTrue;
+
+/**
+ * Conditional (ETag, Last-Modified) and Range requests of static files.
+ */
+public class StaticFilesValidatorsTest {
+
+    private static final String CONTENT = "0123456789abcdefghijklmnopqrstuvwxyz";
+
+    private static Path folder;
+    private static Path file;
+    private static Service service;
+    private static HttpClient client;
+
+    @BeforeClass
+    public static void setup() throws IOException {
+        folder = Files.createTempDirectory("spark-validators-");
+        file = folder.resolve("video.txt");
+        Files.write(file, CONTENT.getBytes(StandardCharsets.UTF_8));
+        Files.setLastModifiedTime(file, FileTime.fromMillis(1_600_000_000_000L));
+
+        service = Service.ignite().port(0);
+        service.staticFiles.location("/public");
+        service.staticFiles.externalLocation(folder.toString());
+        service.init();
+        service.awaitInitialization();
+
+        client = HttpClient.newHttpClient();
+    }
+
+    @AfterClass
+    public static void tearDown() throws IOException {
+        service.stop();
+        service.awaitStop();
+        Files.deleteIfExists(file);
+        Files.deleteIfExists(folder);
+    }
+
+    @Test
+    public void testValidators() throws Exception {
+        HttpResponse<String> response = get("/video.txt");
+
+        assertEquals(200, response.statusCode());
+        assertEquals(CONTENT, response.body());
+        assertEquals("\"24-" + Long.toHexString(1_600_000_000_000L) + "\"", header(response, "ETag"));
+        assertEquals("Sun, 13 Sep 2020 12:26:40 GMT", header(response, "Last-Modified"));
+        assertEquals("bytes", header(response, "Accept-Ranges"));
+    }
+
+    @Test
+    public void testValidators_ClassPathContentHash() throws Exception {
+        HttpResponse<String> response = get("/page.html");
+        String etag = header(response, "ETag");
+
+        assertNotNull(etag);
+        assertTrue(etag, etag.matches("\"[0-9a-f]{32}\""));
+        assertEquals(etag, header(get("/page.html"), "ETag"));
+        assertNotEquals(etag, header(get("/css/style.css"), "ETag"));
+    }
+
+    @Test
+    public void testIfNoneMatch() throws Exception {
+        for (String path : new String[] {"/video.txt", "/page.html"}) {
+            String etag = header(get(path), "ETag");
+
+            HttpResponse<String> response = get(path, "If-None-Match", "\"other\", " + etag);
+            assertEquals(path, 304, response.statusCode());
+            assertEquals(path, "", response.body());
+            assertEquals(path, etag, header(response, "ETag"));
+
+            assertEquals(path, 304, get(path, "If-None-Match", "W/" + etag).statusCode());
+            assertEquals(path, 200, get(path, "If-None-Match", "\"other\"").statusCode());
+        }
+    }
+
+    @Test
+    public void testIfNoneMatch_Compressed() throws Exception {
+        String etag = header(get("/video.txt"), "ETag");
+        HttpResponse<String> response = get("/video.txt", "Accept-Encoding", "gzip");
+
+        assertEquals("gzip", header(response, "Content-Encoding"));
+        String gzipEtag = header(response, "ETag");
+        assertEquals(etag.substring(0, etag.length() - 1) + "--gzip\"", gzipEtag);
+        assertEquals(304, get("/video.txt", "Accept-Encoding", "gzip", "If-None-Match", gzipEtag).statusCode());
+    }
+
+    @Test
+    public void testIfModifiedSince() throws Exception {
+        assertEquals(304, get("/video.txt", "If-Modified-Since", "Sun, 13 Sep 2020 12:26:40 GMT").statusCode());
+        assertEquals(304, get("/video.txt", "If-Modified-Since", "Mon, 14 Sep 2020 00:00:00 GMT").statusCode());
+        assertEquals(200, get("/video.txt", "If-Modified-Since", "Sat, 12 Sep 2020 00:00:00 GMT").statusCode());
+        assertEquals(200, get("/video.txt", "If-Modified-Since", "not a date").statusCode());
+        // If-None-Match takes precedence
+        assertEquals(200, get("/video.txt", "If-None-Match", "\"other\"",
+                              "If-Modified-Since", "Mon, 14 Sep 2020 00:00:00 GMT").statusCode());
+    }
+
+    @Test
+    public void testRange() throws Exception {
+        HttpResponse<String> response = get("/video.txt", "Range", "bytes=10-19");
+
+        assertEquals(206, response.statusCode());
+        assertEquals("abcdefghij", response.body());
+        assertEquals("bytes 10-19/36", header(response, "Content-Range"));
+        assertEquals("10", header(response, "Content-Length"));
+
+        assertEquals("wxyz", get("/video.txt", "Range", "bytes=-4").body());
+        assertEquals("Hello", get("/page.html", "Range", "bytes=12-16").body());
+    }
+
+    @Test
+    public void testRange_Multiple() throws Exception {
+        HttpResponse<String> response = get("/video.txt", "Range", "bytes=0-1,-2");
+
+        assertEquals(206, response.statusCode());
+        String contentType = header(response, "Content-Type");
+        assertTrue(contentType, contentType.startsWith("multipart/byteranges; boundary="));
+        String boundary = contentType.substring(contentType.indexOf('=') + 1);
+        String type = header(get("/video.txt"), "Content-Type");
+        assertEquals("--" + boundary + "\r\n"
+                             + "Content-Type: " + type + "\r\n"
+                             + "Content-Range: bytes 0-1/36\r\n\r\n"
+                             + "01\r\n"
+                             + "--" + boundary + "\r\n"
+                             + "Content-Type: " + type + "\r\n"
+                             + "Content-Range: bytes 34-35/36\r\n\r\n"
+                             + "yz\r\n"
+                             + "--" + boundary + "--\r\n", response.body());
+        assertEquals(String.valueOf(response.body().length()), header(response, "Content-Length"));
+    }
+
+    @Test
+    public void testRange_NotSatisfiable() throws Exception {
+        HttpResponse<String> response = get("/video.txt", "Range", "bytes=100-");
+
+        assertEquals(416, response.statusCode());
+        assertEquals("bytes */36", header(response, "Content-Range"));
+    }
+
+    @Test
+    public void testRange_Ignored() throws Exception {
+        String etag = header(get("/video.txt"), "ETag");
+
+        // Invalid
+        assertEquals(CONTENT, get("/video.txt", "Range", "bytes=9-1").body());
+        // Another version of the file
+        assertEquals(CONTENT, get("/video.txt", "Range", "bytes=0-1", "If-Range", "\"other\"").body());
+        assertEquals("01", get("/video.txt", "Range", "bytes=0-1", "If-Range", etag).body());
+        assertEquals("01", get("/video.txt", "Range", "bytes=0-1",
+                               "If-Range", "Sun, 13 Sep 2020 12:26:40 GMT").body());
+    }
+
+    private static HttpResponse<String> get(String path, String... headers) throws Exception {
+        HttpRequest.Builder request = HttpRequest.newBuilder(URI.create("http://localhost:" + service.port() + path));
+        if (headers.length > 0) {
+            request.headers(headers);
+        }
+        return client.send(request.build(), HttpResponse.BodyHandlers.ofString());
+    }
+
+    private static String header(HttpResponse<?> response, String name) {
+        return response.headers().firstValue(name).orElse(null);
+    }
+}
@@ -0,0 +1,63 @@
+package spark.staticfiles;
+
+import java.io.IOException;
+import java.net.URL;
+import java.net.URLClassLoader;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.attribute.FileTime;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import spark.resource.ClassPathResource;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotEquals;
+
+public class ValidatorsTest {
+
+    private Path folder;
+    private URLClassLoader classLoader;
+
+    @Before
+    public void setup() throws IOException {
+        folder = Files.createTempDirectory("spark-validators-");
+        classLoader = new URLClassLoader(new URL[] {folder.toUri().toURL()}, null);
+    }
+
+    @After
+    public void tearDown() throws IOException {
+        classLoader.close();
+        Files.deleteIfExists(folder.resolve("changing.txt"));
+        Files.deleteIfExists(folder);
+    }
+
+    @Test
+    public void testContentHash_LatestVersionKept() throws IOException {
+        Path file = folder.resolve("changing.txt");
+        ClassPathResource resource = new ClassPathResource("changing.txt", classLoader);
+
+        write(file, "version 0", 0);
+        String etag = Validators.of(resource).etag();
+        assertEquals(etag, Validators.of(resource).etag());
+        int hashes = Validators.contentHashes();
+
+        for (int i = 1; i <= 10; i++) {
+            write(file, "version " + i, i);
+            String changed = Validators.of(resource).etag();
+            assertNotEquals(etag, changed);
+            etag = changed;
+        }
+
+        // Only the hash of the latest version is kept
+        assertEquals(hashes, Validators.contentHashes());
+    }
+
+    private static void write(Path file, String content, int version) throws IOException {
+        Files.write(file, content.getBytes(StandardCharsets.UTF_8));
+        Files.setLastModifiedTime(file, FileTime.fromMillis(1_600_000_000_000L + version * 1000L));
+    }
+}
@@ -0,0 +1,112 @@
+package spark.utils;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.lang.management.ManagementFactory;
+import java.nio.charset.StandardCharsets;
+
+import org.junit.Assume;
+import org.junit.Test;
+
+import static org.junit.Assert.assertTrue;
+
+/**
+ * Measures the bytes allocated to read request bodies of JSON, compared to reading them with a growing
+ * <code>ByteArrayOutputStream</code> (what reading a body used to do).
+ */
+public class IOUtilsAllocationTest {
+
+    private static final int[] SIZES = {1024, 64 * 1024, 4 * 1024 * 1024};
+
+    // The total number of bytes read for each size, so the large bodies are not read too many times
+    private static final long BYTES_READ = 256L * 1024 * 1024;
+
+    @Test
+    public void testToByteArray_BytesAllocatedPerBody() throws Exception {
+        com.sun.management.ThreadMXBean threads = threadMXBean();
+        Assume.assumeTrue(threads != null);
+
+        for (int size : SIZES) {
+            byte[] json = json(size);
+            int reads = (int) Math.max(10, BYTES_READ / size);
+
+            long growing = bytesPerRead(threads, reads, () -> growingByteArray(new ByteArrayInputStream(json)));
+            long known = bytesPerRead(threads, reads, () -> IOUtils.toByteArray(new ByteArrayInputStream(json), size));
+            long unknown = bytesPerRead(threads, reads, () -> IOUtils.toByteArray(new ByteArrayInputStream(json), -1));
+
+            System.out.println("Bytes allocated to read a body of " + size + " bytes: " + growing
+                                       + " with a growing array, " + known + " with its Content-Length, "
+                                       + unknown + " without");
+
+            // The body array itself, and a little for the streams (also the chunks a very large body takes beyond
+            // the buffers of the pool)
+            assertTrue("Too many bytes allocated with Content-Length: " + known,
+                       size > 1024 * 1024 || known < size + 1024);
+            assertTrue("Too many bytes allocated without Content-Length: " + unknown,
+                       size > 1024 * 1024 || unknown < size + 1024);
+            assertTrue("Expected fewer bytes than a growing array: " + known, known < growing * 2 / 3);
+            assertTrue("Expected fewer bytes than a growing array: " + unknown, unknown < growing * 2 / 3);
+        }
+    }
+
+    @Test
+    public void testToByteArray_LargeContentLengthShortBody() throws Exception {
+        com.sun.management.ThreadMXBean threads = threadMXBean();
+        Assume.assumeTrue(threads != null);
+        byte[] json = json(1024);
+
+        // A client declaring a huge body, but sending a small one
+        long allocated = bytesPerRead(threads, 10,
+                                      () -> IOUtils.toByteArray(new ByteArrayInputStream(json), 1L << 30));
+
+        assertTrue("Allocated for the declared length: " + allocated, allocated < 64 * 1024);
+    }
+
+    private static long bytesPerRead(com.sun.management.ThreadMXBean threads, int reads, Read read) throws IOException {
+        for (int i = 0; i < reads; i++) {
+            read.read();
+        }
+        long threadId = Thread.currentThread().getId();
+        long before = threads.getThreadAllocatedBytes(threadId);
+        for (int i = 0; i < reads; i++) {
+            read.read();
+        }
+        return (threads.getThreadAllocatedBytes(threadId) - before) / reads;
+    }
+
+    private static byte[] growingByteArray(InputStream input) throws IOException {
+        ByteArrayOutputStream os = new ByteArrayOutputStream();
+        byte[] buf = new byte[1024];
+        for (int n = input.read(buf); n != -1; n = input.read(buf)) {
+            os.write(buf, 0, n);
+        }
+        return os.toByteArray();
+    }
+
+    private static byte[] json(int size) {
+        StringBuilder json = new StringBuilder("[");
+        for (int i = 0; json.length() < size; i++) {
+            json.append("{\"id\":").append(i).append(",\"name\":\"item ").append(i).append("\"},");
+        }
+        json.setLength(size - 1);
+        return json.append(']').toString().getBytes(StandardCharsets.UTF_8);
+    }
+
+    private static com.sun.management.ThreadMXBean threadMXBean() {
+        if (!(ManagementFactory.getThreadMXBean() instanceof com.sun.management.ThreadMXBean)) {
+            return null;
+        }
+        com.sun.management.ThreadMXBean threads = (com.sun.management.ThreadMXBean) ManagementFactory.getThreadMXBean();
+        if (!threads.isThreadAllocatedMemorySupported()) {
+            return null;
+        }
+        threads.setThreadAllocatedMemoryEnabled(true);
+        return threads;
+    }
+
+    private interface Read {
+        byte[] read() throws IOException;
+    }
+}
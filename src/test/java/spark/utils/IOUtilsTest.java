@@ -0,0 +1,68 @@
+package spark.utils;
+
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.Random;
+
+import org.junit.Test;
+
+import static org.junit.Assert.assertArrayEquals;
+
+public class IOUtilsTest {
+
+    private static final byte[] CONTENT = content(3 * BufferPool.BUFFER_SIZE + 17);
+
+    @Test
+    public void testToByteArray() throws IOException {
+        assertArrayEquals(CONTENT, IOUtils.toByteArray(new ByteArrayInputStream(CONTENT)));
+        assertArrayEquals(new byte[0], IOUtils.toByteArray(new ByteArrayInputStream(new byte[0])));
+        assertArrayEquals(CONTENT, IOUtils.toByteArray(new TrickleInputStream(CONTENT)));
+    }
+
+    @Test
+    public void testToByteArray_ExpectedLength() throws IOException {
+        assertArrayEquals(CONTENT, IOUtils.toByteArray(new ByteArrayInputStream(CONTENT), CONTENT.length));
+        assertArrayEquals(CONTENT, IOUtils.toByteArray(new TrickleInputStream(CONTENT), CONTENT.length));
+        assertArrayEquals(CONTENT, IOUtils.toByteArray(new ByteArrayInputStream(CONTENT), -1));
+        assertArrayEquals(new byte[0], IOUtils.toByteArray(new ByteArrayInputStream(new byte[0]), 0));
+    }
+
+    @Test
+    public void testToByteArray_ExpectedLengthWrong() throws IOException {
+        // Shorter than expected
+        assertArrayEquals(CONTENT, IOUtils.toByteArray(new ByteArrayInputStream(CONTENT), CONTENT.length + 100));
+        assertArrayEquals(CONTENT, IOUtils.toByteArray(new ByteArrayInputStream(CONTENT), Integer.MAX_VALUE - 8));
+        // Longer than expected
+        assertArrayEquals(CONTENT, IOUtils.toByteArray(new ByteArrayInputStream(CONTENT), 100));
+        assertArrayEquals(CONTENT, IOUtils.toByteArray(new ByteArrayInputStream(CONTENT), 0));
+    }
+
+    private static byte[] content(int size) {
+        byte[] content = new byte[size];
+        new Random(42).nextBytes(content);
+        return content;
+    }
+
+    /**
+     * Returns a few bytes at a time, like a network stream would.
+     */
+    private static class TrickleInputStream extends InputStream {
+
+        private final ByteArrayInputStream input;
+
+        TrickleInputStream(byte[] content) {
+            this.input = new ByteArrayInputStream(content);
+        }
+
+        @Override
+        public int read() {
+            return input.read();
+        }
+
+        @Override
+        public int read(byte[] b, int off, int len) {
+            return input.read(b, off, Math.min(len, 1000));
+        }
+    }
+}
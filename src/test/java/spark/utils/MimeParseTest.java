@@ -2,8 +2,11 @@ package spark.utils;
 
 import org.junit.Test;
 
+import java.util.ArrayList;
 import java.util.Arrays;
 import java.util.Collection;
+import java.util.LinkedHashSet;
+import java.util.List;
 
 import static org.junit.Assert.*;
 
@@ -36,4 +39,32 @@ public class MimeParseTest {
 
     }
 
-}
\ No newline at end of file
+    @Test
+    public void testBestMatch_whenCached() throws Exception {
+
+        final String header = "text/*";
+
+        List<String> supported = new ArrayList<>(Arrays.asList("application/json", "text/plain"));
+
+        assertEquals("text/plain", MimeParse.bestMatch(supported, header));
+        assertEquals("text/plain", MimeParse.bestMatch(new LinkedHashSet<>(supported), header));
+
+        supported.set(1, "image/png");
+        assertEquals("the cached negotiation should not be changed by the caller's collection",
+                MimeParse.NO_MIME_TYPE, MimeParse.bestMatch(supported, header));
+        assertEquals("text/plain", MimeParse.bestMatch(Arrays.asList("application/json", "text/plain"), header));
+    }
+
+    @Test
+    public void testAccepts() throws Exception {
+
+        MimeParse.MediaRange json = MimeParse.mediaRange("application/json");
+
+        assertTrue(MimeParse.accepts(json, "application/json"));
+        assertTrue(MimeParse.accepts(json, "text/html,*/*;q=0.8"));
+        assertFalse(MimeParse.accepts(json, "text/html"));
+        assertFalse(MimeParse.accepts(json, "text/html"));
+        assertEquals(MimeParse.NO_MIME_TYPE, MimeParse.bestMatch(Arrays.asList("application/json"), "text/html"));
+    }
+
+}